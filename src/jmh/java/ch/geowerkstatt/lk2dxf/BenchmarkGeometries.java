@@ -0,0 +1,57 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.interlis.iom.IomObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Creates the INTERLIS geometries used by the benchmarks.
+ */
+public final class BenchmarkGeometries {
+    private BenchmarkGeometries() {
+    }
+
+    /**
+     * Creates a closed polyline around a circle that consists of arcs only.
+     */
+    public static IomObject createArcPolyline(double centerX, double centerY, double radius, int arcCount) {
+        return IomObjectHelper.createPolyline(createArcRing(centerX, centerY, radius, arcCount).toArray(IomObject[]::new));
+    }
+
+    /**
+     * Creates a surface with an outer and an inner boundary that both consist of arcs only.
+     */
+    public static IomObject createArcSurface(double centerX, double centerY, double radius, int arcCount) {
+        return IomObjectHelper.createPolygonFromBoundaries(
+                IomObjectHelper.createBoundary(createArcRing(centerX, centerY, radius, arcCount).toArray(IomObject[]::new)),
+                IomObjectHelper.createBoundary(createArcRing(centerX, centerY, radius / 2, arcCount).toArray(IomObject[]::new)));
+    }
+
+    /**
+     * Creates a point with the specified coordinates.
+     */
+    public static IomObject createPoint(double x, double y) {
+        return IomObjectHelper.createCoord(format(x), format(y));
+    }
+
+    private static List<IomObject> createArcRing(double centerX, double centerY, double radius, int arcCount) {
+        var segments = new ArrayList<IomObject>(arcCount + 1);
+        segments.add(createPoint(centerX + radius, centerY));
+        for (int i = 0; i < arcCount; i++) {
+            double midAngle = Math.TAU * (i + 0.5) / arcCount;
+            double endAngle = Math.TAU * (i + 1) / arcCount;
+            segments.add(IomObjectHelper.createArc(
+                    format(centerX + radius * Math.cos(midAngle)),
+                    format(centerY + radius * Math.sin(midAngle)),
+                    format(centerX + radius * Math.cos(endAngle)),
+                    format(centerY + radius * Math.sin(endAngle))));
+        }
+        return segments;
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
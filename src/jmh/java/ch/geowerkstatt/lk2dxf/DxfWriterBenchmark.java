@@ -0,0 +1,61 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.interlis.iom.IomObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing single entities with the {@link DxfWriter}.
+ * The output is discarded so only the formatting and the geometry traversal are measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DxfWriterBenchmark {
+    @Param({"8", "64"})
+    public int arcCount;
+
+    private DxfWriter dxfWriter;
+    private IomObject arcPolyline;
+    private IomObject arcSurface;
+    private IomObject textPosition;
+
+    @Setup
+    public void setup() throws IOException {
+        dxfWriter = new DxfWriter(Writer.nullWriter());
+        arcPolyline = BenchmarkGeometries.createArcPolyline(2_600_000.123, 1_200_000.456, 25.5, arcCount);
+        arcSurface = BenchmarkGeometries.createArcSurface(2_600_000.123, 1_200_000.456, 25.5, arcCount);
+        textPosition = BenchmarkGeometries.createPoint(2_600_000.123, 1_200_000.456);
+    }
+
+    @Benchmark
+    public void writeLwPolyline() throws IOException {
+        dxfWriter.writeLwPolyline("LINE", arcPolyline);
+    }
+
+    @Benchmark
+    public void writeHatch() throws IOException {
+        dxfWriter.writeHatch("SURFACE", arcSurface);
+    }
+
+    @Benchmark
+    public void writeText() throws IOException {
+        dxfWriter.writeText("TEXT", "Arial", "Schacht 4711", "Left", "Base", 87.5, 1.25, textPosition);
+    }
+}
@@ -0,0 +1,79 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.geowerkstatt.lk2dxf.mapping.LayerMapping;
+import ch.geowerkstatt.lk2dxf.mapping.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Measures the extra cost of writing entities grouped by layer with the {@link EntitySorter} compared to writing them in input order.
+ * The objects alternate between the layers, so every entity is moved by the sort.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntitySorterBenchmark {
+    private static final int OBJECT_COUNT = 10_000;
+
+    /**
+     * The number of buffered characters before spilling, the large value keeps all entities in memory.
+     */
+    @Param({"1048576", "1073741824"})
+    public long memoryCharacters;
+
+    private List<LayerMapping> layerMappings;
+    private List<MappedObject> objects;
+    private ToLongFunction<MappedObject> layerKey;
+
+    @Setup
+    public void setup() throws Exception {
+        layerMappings = new ObjectMapper().getLayerMappings();
+        var lineMappings = layerMappings.stream().filter(m -> m.output() == LayerMapping.OutputType.LINE).limit(8).toList();
+        layerKey = o -> lineMappings.indexOf(o.layerMapping());
+
+        objects = new ArrayList<>(OBJECT_COUNT);
+        for (int i = 0; i < OBJECT_COUNT; i++) {
+            var polyline = BenchmarkGeometries.createArcPolyline(2_600_000.123 + i, 1_200_000.456, 25.5, 8);
+            objects.add(new MappedObject("obj_" + i, polyline, null, null, null, null, lineMappings.get(i % lineMappings.size())));
+        }
+    }
+
+    @Benchmark
+    public void writeInInputOrder() throws IOException {
+        try (var dxfWriter = new DxfWriter(Writer.nullWriter(), 3, layerMappings, null)) {
+            for (var object : objects) {
+                object.writeToDxf(dxfWriter);
+            }
+        }
+    }
+
+    @Benchmark
+    public void writeInLayerOrder() throws IOException {
+        try (var dxfWriter = new DxfWriter(Writer.nullWriter(), 3, layerMappings, null);
+             var sorter = new EntitySorter(layerKey, 3, layerMappings, memoryCharacters)) {
+            for (var object : objects) {
+                sorter.add(object);
+            }
+            sorter.writeTo(dxfWriter);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.geowerkstatt.lk2dxf.mapping.LayerMapping;
+import ch.geowerkstatt.lk2dxf.mapping.ObjectMapper;
+import ch.interlis.iom.IomObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the construction of the JTS geometry of a {@link MappedObject}, which is done for every mapped object.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappedObjectBenchmark {
+    @Param({"8", "64"})
+    public int arcCount;
+
+    private LayerMapping pointMapping;
+    private LayerMapping lineMapping;
+    private LayerMapping surfaceMapping;
+    private IomObject point;
+    private IomObject arcPolyline;
+    private IomObject arcSurface;
+
+    @Setup
+    public void setup() throws Exception {
+        var layerMappings = new ObjectMapper().getLayerMappings();
+        pointMapping = findMapping(layerMappings, LayerMapping.OutputType.POINT);
+        lineMapping = findMapping(layerMappings, LayerMapping.OutputType.LINE);
+        surfaceMapping = findMapping(layerMappings, LayerMapping.OutputType.SURFACE);
+
+        point = BenchmarkGeometries.createPoint(2_600_000.123, 1_200_000.456);
+        arcPolyline = BenchmarkGeometries.createArcPolyline(2_600_000.123, 1_200_000.456, 25.5, arcCount);
+        arcSurface = BenchmarkGeometries.createArcSurface(2_600_000.123, 1_200_000.456, 25.5, arcCount);
+    }
+
+    @Benchmark
+    public MappedObject constructPoint() {
+        return new MappedObject("obj_1", point, null, null, null, null, pointMapping);
+    }
+
+    @Benchmark
+    public MappedObject constructLine() {
+        return new MappedObject("obj_1", arcPolyline, null, null, null, null, lineMapping);
+    }
+
+    @Benchmark
+    public MappedObject constructSurface() {
+        return new MappedObject("obj_1", arcSurface, null, null, null, null, surfaceMapping);
+    }
+
+    private static LayerMapping findMapping(List<LayerMapping> layerMappings, LayerMapping.OutputType outputType) {
+        return layerMappings.stream()
+                .filter(m -> m.output() == outputType)
+                .findFirst()
+                .orElseThrow();
+    }
+}
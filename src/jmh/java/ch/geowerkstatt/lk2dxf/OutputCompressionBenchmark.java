@@ -0,0 +1,82 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.interlis.iom.IomObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing a DXF file to disk without compression, as gzip stream and as ZIP archive.
+ * The file is written through {@link Converter#openOutput(String, OutputCompression)} like by the conversion,
+ * so the time includes formatting the entities. The entities are spread over a few kilometers with varying radii
+ * to avoid an unrealistically high compression ratio. The size of the written file is printed after the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class OutputCompressionBenchmark {
+    private static final int GEOMETRY_COUNT = 1000;
+
+    @Param({"20000"})
+    public int entityCount;
+
+    @Param({"NONE", "GZIP", "ZIP"})
+    public OutputCompression compression;
+
+    private File dxfFile;
+    private IomObject[] arcPolylines;
+    private IomObject[] arcSurfaces;
+    private IomObject[] textPositions;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        dxfFile = Files.createTempFile("lk2dxf-benchmark", ".dxf").toFile();
+        arcPolylines = new IomObject[GEOMETRY_COUNT];
+        arcSurfaces = new IomObject[GEOMETRY_COUNT];
+        textPositions = new IomObject[GEOMETRY_COUNT];
+        var random = new Random(1);
+        for (int i = 0; i < GEOMETRY_COUNT; i++) {
+            double x = 2_600_000 + random.nextDouble() * 2000;
+            double y = 1_200_000 + random.nextDouble() * 2000;
+            arcPolylines[i] = BenchmarkGeometries.createArcPolyline(x, y, 0.5 + random.nextDouble() * 20, 8);
+            arcSurfaces[i] = BenchmarkGeometries.createArcSurface(x, y, 0.5 + random.nextDouble() * 20, 8);
+            textPositions[i] = BenchmarkGeometries.createPoint(x, y);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%nWrote %d entities with %s compression to %d bytes%n", entityCount, compression, dxfFile.length());
+        dxfFile.delete();
+    }
+
+    @Benchmark
+    public void writeDxf() throws Exception {
+        try (var dxfWriter = new DxfWriter(Converter.openOutput(dxfFile.getPath(), compression))) {
+            for (int i = 0; i < entityCount; i += 3) {
+                int geometry = i % GEOMETRY_COUNT;
+                dxfWriter.writeLwPolyline("LINE", arcPolylines[geometry]);
+                dxfWriter.writeHatch("SURFACE", arcSurfaces[geometry]);
+                dxfWriter.writeText("TEXT", "Arial", "Schacht " + i, "Left", "Base", 87.5, 1.25, textPositions[geometry]);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.geowerkstatt.lk2dxf.mapping.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the parse throughput of the {@link XtfStreamReader} for a large generated LKMap transfer file,
+ * with the streaming parser and with the strict iox-ili reader.
+ * The size of the file is printed during the setup, so the time per operation can be converted to MB/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class XtfStreamReaderBenchmark {
+    @Param({"100000"})
+    public int objectCount;
+
+    @Param({"false", "true"})
+    public boolean strict;
+
+    private File xtfFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        xtfFile = Files.createTempFile("lk2dxf-benchmark", ".xtf").toFile();
+        var generator = new LKMapDataGenerator(LKMapDataGenerator.Language.GERMAN, LKMapDataGenerator.ClassMix.DEFAULT, 0.1, 1);
+        generator.write(xtfFile, new ObjectMapper().getTransferDescription(), 0, objectCount);
+        System.out.printf("%nGenerated %d objects with %d bytes%n", objectCount, xtfFile.length());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        xtfFile.delete();
+    }
+
+    @Benchmark
+    public void readObjects(Blackhole blackhole) throws Exception {
+        try (var reader = new XtfStreamReader(xtfFile, strict)) {
+            reader.readObjects().forEach(blackhole::consume);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package ch.geowerkstatt.lk2dxf.mapping;
+
+import ch.geowerkstatt.lk2dxf.BenchmarkGeometries;
+import ch.geowerkstatt.lk2dxf.IomObjectHelper;
+import ch.geowerkstatt.lk2dxf.LKMapDataGenerator;
+import ch.interlis.iom.IomObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ObjectMapper#mapObjects} for a batch of objects.
+ * <p>
+ * {@link #mapClassMix} uses the class and attribute mix of the {@link LKMapDataGenerator}.
+ * {@link #resolveReferences} maps texts and the points they reference, the references are either resolved
+ * immediately or, if the referenced points follow the texts, in the deferred second pass.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ObjectMapperBenchmark {
+    private static final String MODEL = "SIA405_LKMap_2015_LV95.SIA405_LKMap.";
+    private static final String[] PRECISION_VALUES = {"genau", "unbekannt", "ungenau"};
+    private static final String[] OBJECT_TYPE_VALUES = {"Abwasser", "Elektrizitaet", "Fernwaerme", "Gas", "Kommunikation", "Wasser", "weitereMedien"};
+    private static final String[] STATUS_VALUES = {"ausser_Betrieb", "in_Betrieb", "tot", "unbekannt", "weitere"};
+
+    @Param({"10000"})
+    public int objectCount;
+
+    @Param({"BACKWARD", "FORWARD"})
+    public ReferenceOrder referenceOrder;
+
+    private ObjectMapper objectMapper;
+    private List<IomObject> classMix;
+    private List<IomObject> referencingTexts;
+
+    /**
+     * The position of the referenced objects relative to the texts referencing them.
+     */
+    public enum ReferenceOrder {
+        /**
+         * The referenced object precedes the text.
+         */
+        BACKWARD,
+
+        /**
+         * The referenced object follows the text, which defers the mapping of the text.
+         */
+        FORWARD,
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        objectMapper = new ObjectMapper();
+        var random = new Random(1);
+
+        classMix = LKMapDataGenerator.DEFAULT.createObjects(0, objectCount).toList();
+
+        referencingTexts = new ArrayList<>(objectCount);
+        for (int i = 0; referencingTexts.size() < objectCount; i += 2) {
+            var point = createPoint(random, "obj_" + i);
+            var text = createText("obj_" + (i + 1), "obj_" + i);
+            if (referenceOrder == ReferenceOrder.BACKWARD) {
+                referencingTexts.add(point);
+                referencingTexts.add(text);
+            } else {
+                referencingTexts.add(text);
+                referencingTexts.add(point);
+            }
+        }
+    }
+
+    @Benchmark
+    public void mapClassMix(Blackhole blackhole) {
+        objectMapper.mapObjects(classMix.stream()).forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void resolveReferences(Blackhole blackhole) {
+        objectMapper.mapObjects(referencingTexts.stream()).forEach(blackhole::consume);
+    }
+
+    private static IomObject createPoint(Random random, String oid) {
+        var x = random.nextDouble() * 1000;
+        return IomObjectHelper.createIomObject(MODEL + "LKPunkt", oid,
+                o -> o.addattrobj("SymbolPos", BenchmarkGeometries.createPoint(x, 0)),
+                o -> o.addattrvalue("Objektart", OBJECT_TYPE_VALUES[random.nextInt(OBJECT_TYPE_VALUES.length)]),
+                o -> o.addattrvalue("Lagebestimmung", PRECISION_VALUES[random.nextInt(PRECISION_VALUES.length)]),
+                o -> o.addattrvalue("Status", STATUS_VALUES[random.nextInt(STATUS_VALUES.length)]));
+    }
+
+    private static IomObject createText(String oid, String referencedOid) {
+        return IomObjectHelper.createIomObject(MODEL + "LKObjekt_Text", oid,
+                o -> o.addattrobj("TextPos", BenchmarkGeometries.createPoint(0, 0)),
+                o -> o.addattrvalue("TextOri", "90"),
+                o -> o.addattrvalue("TextHAli", "Left"),
+                o -> o.addattrvalue("TextVAli", "Base"),
+                o -> o.addattrvalue("Textinhalt", oid),
+                o -> o.addattrobj("LKObjektRef", IomObjectHelper.createIomObject("REF", null,
+                        r -> r.setobjectrefoid(referencedOid))));
+    }
+}
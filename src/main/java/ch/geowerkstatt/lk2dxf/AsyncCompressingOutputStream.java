@@ -0,0 +1,138 @@
+package ch.geowerkstatt.lk2dxf;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * An output stream that hands the written bytes in large chunks to a separate thread, which writes them to a
+ * compressing stream. The writing thread only waits if the compressor falls behind by more than {@link #QUEUED_CHUNKS} chunks.
+ * <p>
+ * {@link #flush()} does not force a partial chunk to the compressor, the data is complete once the stream is closed.
+ * Errors of the compressor are reported by the next write or by {@link #close()}.
+ */
+final class AsyncCompressingOutputStream extends OutputStream {
+    private static final int CHUNK_SIZE = 256 * 1024;
+    private static final int QUEUED_CHUNKS = 4;
+    private static final Chunk END = new Chunk(new byte[0], 0);
+
+    private final OutputStream compressor;
+    private final BlockingQueue<Chunk> filledChunks = new ArrayBlockingQueue<>(QUEUED_CHUNKS);
+    private final BlockingQueue<byte[]> freeBuffers = new ArrayBlockingQueue<>(QUEUED_CHUNKS + 2);
+    private final Thread thread;
+    private volatile IOException failure;
+    private byte[] buffer = new byte[CHUNK_SIZE];
+    private int position;
+    private boolean closed;
+
+    /**
+     * Starts the compressor thread.
+     * @param compressor The compressing stream, e.g. a {@link java.util.zip.GZIPOutputStream}. It is closed with this stream.
+     */
+    AsyncCompressingOutputStream(OutputStream compressor) {
+        this.compressor = compressor;
+        this.thread = new Thread(this::compress, "lk2dxf-compressor");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (position == buffer.length) {
+            handOver();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (position == buffer.length) {
+                handOver();
+            }
+            int length = Math.min(len, buffer.length - position);
+            System.arraycopy(b, off, buffer, position, length);
+            position += length;
+            off += length;
+            len -= length;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        checkFailure();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            if (position > 0) {
+                handOver();
+            }
+            filledChunks.put(END);
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            thread.interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the compressor.");
+        }
+        checkFailure();
+    }
+
+    private void handOver() throws IOException {
+        checkFailure();
+        try {
+            filledChunks.put(new Chunk(buffer, position));
+            byte[] freeBuffer = freeBuffers.poll();
+            buffer = freeBuffer != null ? freeBuffer : new byte[CHUNK_SIZE];
+            position = 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the compressor.");
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("Failed to write the compressed DXF file.", failure);
+        }
+    }
+
+    /**
+     * Runs on the compressor thread. After a failure the remaining chunks are discarded, so the writer never blocks.
+     */
+    private void compress() {
+        try (compressor) {
+            while (true) {
+                Chunk chunk = filledChunks.take();
+                if (chunk == END) {
+                    break;
+                }
+                if (failure == null) {
+                    try {
+                        compressor.write(chunk.data(), 0, chunk.length());
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                freeBuffers.offer(chunk.data());
+            }
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException("The compressor was interrupted.");
+        }
+    }
+
+    private record Chunk(byte[] data, int length) {
+    }
+}
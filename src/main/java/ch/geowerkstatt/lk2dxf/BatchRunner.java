@@ -0,0 +1,159 @@
+package ch.geowerkstatt.lk2dxf;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the conversion jobs of a batch manifest in one JVM with a shared {@link Converter}.
+ * <p>
+ * The manifest is a JSON array of {@link ConversionJob}s. The jobs run on a work-stealing pool, the jobs with the
+ * largest inputs are started first to keep all workers busy until the end of the batch.
+ */
+public final class BatchRunner {
+    private static final JsonMapper JSON_MAPPER = JsonMapper.builder().build();
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private final Converter converter;
+    private final int parallelism;
+
+    /**
+     * Creates a new batch runner.
+     * @param converter The converter used for all jobs.
+     * @param parallelism The number of jobs running at the same time.
+     */
+    public BatchRunner(Converter converter, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1.");
+        }
+
+        this.converter = converter;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Reads the conversion jobs from a manifest file.
+     * @param manifest The JSON file containing an array of conversion jobs.
+     * @return The jobs in the order of the manifest.
+     * @throws IOException If the manifest could not be read.
+     */
+    public static List<ConversionJob> readManifest(File manifest) throws IOException {
+        List<ConversionJob> jobs = Arrays.asList(JSON_MAPPER.readValue(manifest, ConversionJob[].class));
+        for (int i = 0; i < jobs.size(); i++) {
+            var job = jobs.get(i);
+            if (job.inputs() == null || job.inputs().isEmpty() || job.output() == null || job.output().isBlank()) {
+                throw new IOException("Job " + (i + 1) + " of the manifest requires at least one input and an output.");
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Runs all jobs and waits for their completion. A failed job does not affect the other jobs.
+     * @param jobs The jobs to run.
+     * @return The results in the order of the given jobs.
+     * @throws InterruptedException If the thread was interrupted while waiting for the jobs.
+     */
+    public List<BatchJobResult> run(List<ConversionJob> jobs) throws InterruptedException {
+        List<SizedJob> sizedJobs = new ArrayList<>(jobs.size());
+        for (int i = 0; i < jobs.size(); i++) {
+            var job = jobs.get(i);
+            long inputBytes = job.inputs().stream().mapToLong(input -> new File(input).length()).sum();
+            sizedJobs.add(new SizedJob(i, job, inputBytes));
+        }
+        sizedJobs.sort(Comparator.comparingLong(SizedJob::inputBytes).reversed());
+
+        var futures = new ArrayList<Future<BatchJobResult>>(jobs.size());
+        var results = new BatchJobResult[jobs.size()];
+        try (ExecutorService executor = Executors.newWorkStealingPool(parallelism)) {
+            for (var sizedJob : sizedJobs) {
+                futures.add(executor.submit(() -> runJob(sizedJob)));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results[sizedJobs.get(i).index()] = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Unexpected error in batch job.", e.getCause());
+                }
+            }
+        }
+
+        return List.of(results);
+    }
+
+    private BatchJobResult runJob(SizedJob sizedJob) {
+        var job = sizedJob.job();
+        long start = System.nanoTime();
+        try {
+            LOGGER.info("Batch job {}: Converting {} to \"{}\"", sizedJob.index() + 1, job.inputs(), job.output());
+            ConversionResult result = converter.convert(job.inputs(), job.output(), job.parsePerimeter());
+            return new BatchJobResult(job, sizedJob.inputBytes(), result.duration(), result.objectCount(), Optional.empty());
+        } catch (Exception e) {
+            LOGGER.error("Batch job {}: Failed to convert {} to \"{}\"", sizedJob.index() + 1, job.inputs(), job.output(), e);
+            return new BatchJobResult(job, sizedJob.inputBytes(), Duration.ofNanos(System.nanoTime() - start), 0, Optional.of(String.valueOf(e.getMessage())));
+        }
+    }
+
+    /**
+     * Logs a summary table with one row per job followed by the totals.
+     */
+    public static void logSummary(List<BatchJobResult> results) {
+        LOGGER.info(String.format("%-6s %-8s %12s %10s %12s  %s", "Job", "Status", "Input bytes", "Objects", "Duration ms", "Output"));
+        for (int i = 0; i < results.size(); i++) {
+            var result = results.get(i);
+            LOGGER.info(String.format("%-6d %-8s %12d %10d %12d  %s%s",
+                    i + 1,
+                    result.isSuccessful() ? "OK" : "FAILED",
+                    result.inputBytes(),
+                    result.objectCount(),
+                    result.duration().toMillis(),
+                    result.job().output(),
+                    result.error().map(e -> " (" + e + ")").orElse("")));
+        }
+
+        long failed = results.stream().filter(r -> !r.isSuccessful()).count();
+        long objects = results.stream().mapToLong(BatchJobResult::objectCount).sum();
+        LOGGER.info("Batch completed: {} jobs, {} failed, {} objects written", results.size(), failed, objects);
+    }
+
+    private record SizedJob(int index, ConversionJob job, long inputBytes) {
+    }
+
+    /**
+     * The outcome of a single job of a batch.
+     *
+     * @param job The job as read from the manifest.
+     * @param inputBytes The total size of the input files.
+     * @param duration The wall time spent for the job.
+     * @param objectCount The number of objects written to the DXF file.
+     * @param error The error message if the job failed.
+     */
+    public record BatchJobResult(
+            ConversionJob job,
+            long inputBytes,
+            Duration duration,
+            int objectCount,
+            Optional<String> error) {
+
+        /**
+         * Checks whether the job completed without error.
+         */
+        public boolean isSuccessful() {
+            return error.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ch.geowerkstatt.lk2dxf;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.WKTReader;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A conversion job as submitted to the conversion server.
+ *
+ * @param inputs The paths of the XTF files to convert.
+ * @param output The path of the DXF file to write.
+ * @param perimeter The WKT of the perimeter polygon. May be {@code null}.
+ */
+public record ConversionJob(
+        List<String> inputs,
+        String output,
+        String perimeter) {
+
+    /**
+     * Parses the perimeter WKT string to a {@link Geometry}.
+     * @return The parsed perimeter geometry, or an empty optional if no perimeter was specified.
+     * @throws IllegalArgumentException If the wkt could not be parsed.
+     */
+    public Optional<Geometry> parsePerimeter() {
+        if (perimeter == null || perimeter.isBlank()) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(new WKTReader().read(perimeter));
+        } catch (com.vividsolutions.jts.io.ParseException e) {
+            throw new IllegalArgumentException("Error parsing perimeter WKT.", e);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ch.geowerkstatt.lk2dxf;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.SortedMap;
+
+/**
+ * The outcome of a single conversion.
+ *
+ * @param objectCount The number of objects written to the DXF file.
+ * @param layerCounts The number of objects written per layer, sorted by layer name.
+ * @param duration The wall time spent for the conversion.
+ * @param files The statistics of each input file in the order of processing.
+ */
+public record ConversionResult(
+        int objectCount,
+        SortedMap<String, Integer> layerCounts,
+        Duration duration,
+        List<FileStatistics> files) {
+}
@@ -0,0 +1,256 @@
+package ch.geowerkstatt.lk2dxf;
+
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local HTTP server that runs conversion jobs with a resident {@link Converter}.
+ * <p>
+ * Jobs are submitted with {@code POST /convert}. A request with a JSON body describes a {@link ConversionJob} with paths
+ * on the server. Any other request body is treated as an uploaded XTF file, the perimeter and output path may then be given
+ * as {@code perimeter} and {@code output} query parameters. Without an output path the DXF is returned as response body.
+ * Output paths are resolved against the output root of the server, paths that resolve to a location outside of it are rejected.
+ * <p>
+ * Every request is handled on its own virtual thread, the number of conversions running at the same time is limited.
+ */
+public final class ConversionServer implements AutoCloseable {
+    private static final String CONVERT_PATH = "/convert";
+    private static final String PARAM_OUTPUT = "output";
+    private static final String PARAM_PERIMETER = "perimeter";
+    private static final String CONTENT_TYPE_JSON = "application/json";
+    private static final String CONTENT_TYPE_DXF = "application/dxf";
+    private static final JsonMapper JSON_MAPPER = JsonMapper.builder().build();
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private final Converter converter;
+    private final Path outputRoot;
+    private final Semaphore conversionPermits;
+    private final ExecutorService executor;
+    private final HttpServer httpServer;
+    private final AtomicLong jobCounter = new AtomicLong();
+
+    /**
+     * Creates a new conversion server. The server does not accept requests until {@link #start()} is called.
+     * @param converter The converter used for all jobs.
+     * @param address The address to listen on.
+     * @param maxConcurrentJobs The maximum number of conversions running at the same time.
+     * @param outputRoot The directory the output files of the jobs are written to.
+     * @throws IOException If the output root does not exist or the server could not be bound to the address.
+     */
+    public ConversionServer(Converter converter, InetSocketAddress address, int maxConcurrentJobs, Path outputRoot) throws IOException {
+        if (maxConcurrentJobs < 1) {
+            throw new IllegalArgumentException("maxConcurrentJobs must be at least 1.");
+        }
+        if (!Files.isDirectory(outputRoot)) {
+            throw new IOException("The output root \"" + outputRoot + "\" is not a directory.");
+        }
+
+        this.converter = converter;
+        this.outputRoot = outputRoot.toRealPath();
+        this.conversionPermits = new Semaphore(maxConcurrentJobs, true);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.httpServer = HttpServer.create(address, 0);
+        httpServer.setExecutor(executor);
+        httpServer.createContext(CONVERT_PATH, this::handleConvert);
+    }
+
+    /**
+     * Starts accepting conversion jobs.
+     */
+    public void start() {
+        httpServer.start();
+    }
+
+    /**
+     * Get the address the server is listening on.
+     */
+    public InetSocketAddress getAddress() {
+        return httpServer.getAddress();
+    }
+
+    /**
+     * Stops accepting new jobs and waits for the running jobs to complete.
+     */
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        executor.close();
+    }
+
+    private void handleConvert(HttpExchange exchange) throws IOException {
+        long jobId = jobCounter.incrementAndGet();
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendJson(exchange, 405, new ErrorResponse(jobId, "Only POST requests are supported."));
+                return;
+            }
+
+            String contentType = Objects.requireNonNullElse(exchange.getRequestHeaders().getFirst("Content-Type"), "");
+            if (contentType.startsWith(CONTENT_TYPE_JSON)) {
+                ConversionJob job;
+                try (InputStream body = exchange.getRequestBody()) {
+                    job = JSON_MAPPER.readValue(body, ConversionJob.class);
+                }
+                job = new ConversionJob(job.inputs(), resolveOutput(job.output()).toString(), job.perimeter());
+                sendJson(exchange, 200, runJob(jobId, job));
+            } else {
+                handleUpload(exchange, jobId);
+            }
+        } catch (IllegalArgumentException | JacksonException e) {
+            LOGGER.warn("Job {}: Invalid request: {}", jobId, e.getMessage());
+            sendJson(exchange, 400, new ErrorResponse(jobId, e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendJson(exchange, 503, new ErrorResponse(jobId, "The server is shutting down."));
+        } catch (Exception e) {
+            LOGGER.error("Job {}: Conversion failed.", jobId, e);
+            sendJson(exchange, 500, new ErrorResponse(jobId, e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleUpload(HttpExchange exchange, long jobId) throws Exception {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        String output = query.get(PARAM_OUTPUT) == null ? null : resolveOutput(query.get(PARAM_OUTPUT)).toString();
+
+        Path xtfFile = Files.createTempFile("lk2dxf_", ".xtf");
+        Path dxfFile = output == null ? Files.createTempFile("lk2dxf_", ".dxf") : null;
+        try {
+            try (InputStream body = exchange.getRequestBody()) {
+                Files.copy(body, xtfFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            var job = new ConversionJob(List.of(xtfFile.toString()), dxfFile == null ? output : dxfFile.toString(), query.get(PARAM_PERIMETER));
+            JobResponse response = runJob(jobId, job);
+            if (dxfFile == null) {
+                sendJson(exchange, 200, response);
+                return;
+            }
+
+            var headers = exchange.getResponseHeaders();
+            headers.set("Content-Type", CONTENT_TYPE_DXF);
+            headers.set("X-Lk2dxf-Job", String.valueOf(jobId));
+            headers.set("X-Lk2dxf-Objects", String.valueOf(response.objectCount()));
+            headers.set("X-Lk2dxf-Queued-Millis", String.valueOf(response.queuedMillis()));
+            headers.set("X-Lk2dxf-Duration-Millis", String.valueOf(response.durationMillis()));
+            exchange.sendResponseHeaders(200, Files.size(dxfFile));
+            Files.copy(dxfFile, exchange.getResponseBody());
+        } finally {
+            Files.deleteIfExists(xtfFile);
+            if (dxfFile != null) {
+                Files.deleteIfExists(dxfFile);
+            }
+        }
+    }
+
+    /**
+     * Runs the job as soon as a conversion permit is available.
+     */
+    private JobResponse runJob(long jobId, ConversionJob job) throws Exception {
+        if (job.inputs() == null || job.inputs().isEmpty()) {
+            throw new IllegalArgumentException("At least one input file is required.");
+        }
+        var perimeter = job.parsePerimeter();
+
+        long queuedAt = System.nanoTime();
+        conversionPermits.acquire();
+        try {
+            long queuedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queuedAt);
+            LOGGER.info("Job {}: Converting {} to \"{}\"", jobId, job.inputs(), job.output());
+            ConversionResult result = converter.convert(job.inputs(), job.output(), perimeter);
+            LOGGER.info("Job {}: Wrote {} objects in {} ms", jobId, result.objectCount(), result.duration().toMillis());
+            return new JobResponse(jobId, job.output(), result.objectCount(), result.layerCounts(), queuedMillis, result.duration().toMillis());
+        } finally {
+            conversionPermits.release();
+        }
+    }
+
+    /**
+     * Resolves the output path of a job against the output root. Relative paths are relative to the output root.
+     * Symbolic links are followed, so a link in the output root cannot be used to write outside of it.
+     * @throws IllegalArgumentException If the path is missing or resolves to a location outside of the output root.
+     */
+    private Path resolveOutput(String output) {
+        if (output == null || output.isBlank()) {
+            throw new IllegalArgumentException("The output file is required.");
+        }
+
+        try {
+            // resolve the existing part of the path like the file system does, including symbolic links and ".."
+            Path path = outputRoot.resolve(output);
+            Path existing = path;
+            while (!Files.exists(existing, LinkOption.NOFOLLOW_LINKS)) {
+                existing = existing.getParent();
+            }
+            Path resolved = existing.toRealPath().resolve(existing.relativize(path)).normalize();
+            if (resolved.equals(outputRoot) || !resolved.startsWith(outputRoot)) {
+                throw new IllegalArgumentException("The output path \"" + output + "\" is outside of the output root.");
+            }
+            return resolved;
+        } catch (InvalidPathException | IOException e) {
+            throw new IllegalArgumentException("Invalid output path \"" + output + "\".", e);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        var parameters = new HashMap<String, String>();
+        if (rawQuery == null) {
+            return parameters;
+        }
+
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(
+                        URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] content = JSON_MAPPER.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE_JSON);
+        exchange.sendResponseHeaders(status, content.length);
+        exchange.getResponseBody().write(content);
+    }
+
+    private record JobResponse(
+            long job,
+            String output,
+            int objectCount,
+            SortedMap<String, Integer> layerCounts,
+            long queuedMillis,
+            long durationMillis) {
+    }
+
+    private record ErrorResponse(long job, String error) {
+    }
+}
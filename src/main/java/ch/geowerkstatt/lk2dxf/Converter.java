@@ -0,0 +1,729 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.geowerkstatt.lk2dxf.mapping.MappingStatistics;
+import ch.geowerkstatt.lk2dxf.mapping.ObjectMapper;
+import ch.interlis.iom.IomObject;
+import com.vividsolutions.jts.geom.Geometry;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Converts INTERLIS transfer files to DXF files using a shared {@link ObjectMapper}.
+ * The converter does not hold any state of a conversion and may be used by several threads at the same time.
+ */
+public final class Converter {
+    /**
+     * The path that stands for the standard input when used as input file or for the standard output when used as DXF file.
+     */
+    public static final String STANDARD_STREAM = "-";
+
+    private static final int DOUBLE_PRECISION = 3;
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private final ObjectMapper objectMapper;
+    private final String comment;
+    private final Optional<FragmentCache> fragmentCache;
+    private final boolean strictParsing;
+
+    /**
+     * Creates a new converter.
+     * @param objectMapper The object mapper used to assign the objects to layers.
+     * @param comment The comment at the beginning of the DXF files. May be {@code null}.
+     */
+    public Converter(ObjectMapper objectMapper, String comment) {
+        this(objectMapper, comment, Optional.empty());
+    }
+
+    /**
+     * Creates a new converter.
+     * @param objectMapper The object mapper used to assign the objects to layers.
+     * @param comment The comment at the beginning of the DXF files. May be {@code null}.
+     * @param fragmentCache If present, the rendered entities of unchanged input files are read from this cache.
+     */
+    public Converter(ObjectMapper objectMapper, String comment, Optional<FragmentCache> fragmentCache) {
+        this(objectMapper, comment, fragmentCache, false);
+    }
+
+    /**
+     * Creates a new converter.
+     * @param objectMapper The object mapper used to assign the objects to layers.
+     * @param comment The comment at the beginning of the DXF files. May be {@code null}.
+     * @param fragmentCache If present, the rendered entities of unchanged input files are read from this cache.
+     * @param strictParsing If {@code true}, the input files are read with the iox-ili reader instead of the streaming parser.
+     */
+    public Converter(ObjectMapper objectMapper, String comment, Optional<FragmentCache> fragmentCache, boolean strictParsing) {
+        this.objectMapper = objectMapper;
+        this.comment = comment;
+        this.fragmentCache = fragmentCache;
+        this.strictParsing = strictParsing;
+    }
+
+    /**
+     * Processes the input files and writes the generated DXF to the output file.
+     *
+     * @param xtfFiles The paths of the transfer files to read.
+     * @param dxfFile The path of the DXF file to write.
+     * @param perimeter If present, only objects that intersect the perimeter are written.
+     * @return The number of written objects.
+     * @throws Exception If an input file could not be processed or the DXF file could not be written.
+     */
+    public ConversionResult convert(List<String> xtfFiles, String dxfFile, Optional<Geometry> perimeter) throws Exception {
+        return convert(xtfFiles, dxfFile, perimeter, Optional.empty(), OutputOptions.DEFAULT);
+    }
+
+    /**
+     * Processes the input files and writes the generated DXF to the output file.
+     *
+     * @param xtfFiles The paths of the transfer files to read, {@link #STANDARD_STREAM} reads from the standard input.
+     * @param dxfFile The path of the DXF file to write, {@link #STANDARD_STREAM} writes to the standard output.
+     * @param perimeter If present, only objects that intersect the perimeter are written.
+     * @param progressInterval If present, the progress across all input files is logged at this interval.
+     * @param outputOptions Controls how the DXF file is written.
+     * @return The number of written objects.
+     * @throws Exception If an input file could not be processed or the DXF file could not be written.
+     */
+    public ConversionResult convert(List<String> xtfFiles, String dxfFile, Optional<Geometry> perimeter, Optional<Duration> progressInterval, OutputOptions outputOptions) throws Exception {
+        Optional<ProgressReporter> progressReporter = progressInterval.map(interval ->
+                new ProgressReporter(getTotalInputBytes(xtfFiles), interval));
+        try {
+            return convertFiles(xtfFiles, dxfFile, perimeter, progressReporter, outputOptions);
+        } finally {
+            progressReporter.ifPresent(ProgressReporter::close);
+        }
+    }
+
+    /**
+     * Maps the objects of the input files and writes them to a {@link MappedObjectStore}.
+     * The store can be converted later on by passing it as input file instead of the transfer files.
+     *
+     * @param xtfFiles The paths of the transfer files to read, {@link #STANDARD_STREAM} reads from the standard input.
+     * @param storeFile The path of the store to write.
+     * @return The number of stored objects.
+     * @throws Exception If an input file could not be processed or the store could not be written.
+     */
+    public ConversionResult importFiles(List<String> xtfFiles, String storeFile) throws Exception {
+        try (var store = MappedObjectStore.create(new File(storeFile), objectMapper)) {
+            EntitySink sink = object -> {
+                store.add(object);
+                return true;
+            };
+            var result = convertFiles(xtfFiles, Optional.empty(), Optional.empty(), store::getWrittenBytes,
+                    (file, progress) -> convertFile(file, sink, Optional.empty(), progress));
+            store.commit();
+            return result;
+        }
+    }
+
+    private ConversionResult convertFiles(List<String> xtfFiles, String dxfFile, Optional<Geometry> perimeter, Optional<ProgressReporter> progressReporter, OutputOptions outputOptions) throws Exception {
+        Optional<OidSet> writtenOids = outputOptions.dedupe() ? Optional.of(new OidSet()) : Optional.empty();
+        if (outputOptions.splitLayers()) {
+            if (fragmentCache.isPresent()) {
+                LOGGER.warn("The conversion cache is not used when splitting the output by layer.");
+            }
+
+            try (var splitOutput = new LayerSplitOutput(Path.of(dxfFile), objectMapper.getLayerMappings(), outputOptions.layerGroups(), outputOptions.compression(), DOUBLE_PRECISION, comment)) {
+                EntitySink sink = object -> {
+                    Optional<DxfWriter> dxfWriter = splitOutput.getWriter(object.layerMapping());
+                    if (dxfWriter.isEmpty()) {
+                        return false;
+                    }
+                    object.writeToDxf(dxfWriter.get());
+                    return true;
+                };
+                return convertFiles(xtfFiles, progressReporter, writtenOids, splitOutput::getWrittenCharacters,
+                        (file, progress) -> convertFile(file, sink, perimeter, progress));
+            }
+        }
+
+        if (outputOptions.entityOrder() != EntityOrder.INPUT) {
+            if (fragmentCache.isPresent()) {
+                LOGGER.warn("The conversion cache is not used when the entities are sorted.");
+            }
+
+            try (var countingWriter = new CountingWriter(openOutput(dxfFile, outputOptions.compression()));
+                 var dxfWriter = new DxfWriter(countingWriter, DOUBLE_PRECISION, objectMapper.getLayerMappings(), comment);
+                 var sorter = new EntitySorter(createSortKey(outputOptions.entityOrder()), DOUBLE_PRECISION, objectMapper.getLayerMappings(), EntitySorter.DEFAULT_MEMORY_CHARACTERS)) {
+                boolean sortsByGeometry = outputOptions.entityOrder() == EntityOrder.HILBERT;
+                EntitySink sink = new EntitySink() {
+                    @Override
+                    public boolean write(MappedObject object) throws IOException {
+                        sorter.add(object);
+                        return true;
+                    }
+
+                    @Override
+                    public boolean usesGeometry() {
+                        return sortsByGeometry;
+                    }
+                };
+                var result = convertFiles(xtfFiles, progressReporter, writtenOids, sorter::getRenderedCharacters,
+                        (file, progress) -> convertFile(file, sink, perimeter, progress));
+
+                long sortStart = System.nanoTime();
+                sorter.writeTo(dxfWriter);
+                LOGGER.info("Wrote {} entities in {} order in {} ms", result.objectCount(), outputOptions.entityOrder().name().toLowerCase(Locale.ROOT), (System.nanoTime() - sortStart) / 1_000_000);
+                return result;
+            }
+        }
+
+        if (fragmentCache.isPresent() && outputOptions.dedupe()) {
+            LOGGER.warn("The conversion cache is not used when duplicate objects are skipped.");
+        }
+        boolean useCache = fragmentCache.isPresent() && !outputOptions.dedupe();
+
+        String fingerprint = computeFingerprint(perimeter);
+        try (var countingWriter = new CountingWriter(openOutput(dxfFile, outputOptions.compression()));
+             var dxfWriter = new DxfWriter(countingWriter, DOUBLE_PRECISION, objectMapper.getLayerMappings(), comment)) {
+            return convertFiles(xtfFiles, progressReporter, writtenOids, countingWriter::getCount, (file, progress) -> {
+                if (useCache && !STANDARD_STREAM.equals(file.getPath())) {
+                    convertFileCached(file, dxfWriter, perimeter, fragmentCache.get(), fingerprint, progress);
+                } else {
+                    convertFile(file, writeDirectly(dxfWriter), perimeter, progress);
+                }
+            });
+        }
+    }
+
+    /**
+     * Converts the input files one after the other.
+     * With several input files, the referenced objects of all files are kept in a shared index. Objects referencing
+     * an object of another file or a released object of another basket are mapped and written after all files were read,
+     * together with the statistics of their file.
+     */
+    private ConversionResult convertFiles(List<String> xtfFiles, Optional<ProgressReporter> progressReporter, Optional<OidSet> writtenOids, LongSupplier writtenCharacters, FileConversion conversion) {
+        Instant start = Instant.now();
+        AtomicInteger objectCounter = new AtomicInteger();
+        Map<String, Integer> layerCounters = new HashMap<>();
+        List<FileStatistics> fileStatistics = new ArrayList<>(xtfFiles.size());
+        Optional<Map<String, IomObject>> referenceIndex = xtfFiles.size() > 1 ? Optional.of(new HashMap<>()) : Optional.empty();
+        List<FileProgress> fileProgresses = new ArrayList<>(xtfFiles.size());
+
+        for (String xtfFile : xtfFiles) {
+            var progress = new FileProgress(progressReporter, writtenOids, referenceIndex);
+            long fileStart = System.nanoTime();
+            long charactersBefore = writtenCharacters.getAsLong();
+            try {
+                conversion.convert(new File(xtfFile), progress);
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to process file: " + xtfFile, e);
+            }
+            progress.totalNanos = System.nanoTime() - fileStart;
+            progress.writtenCharacters = writtenCharacters.getAsLong() - charactersBefore;
+            progressReporter.ifPresent(reporter -> reporter.completeFile(progress.inputBytes, progress.getObjectCount()));
+            fileProgresses.add(progress);
+        }
+
+        if (fileProgresses.stream().anyMatch(progress -> progress.deferredResolution.isPresent())) {
+            resolveDeferredObjects(xtfFiles, fileProgresses, referenceIndex.orElseGet(HashMap::new), writtenCharacters);
+        }
+
+        for (int i = 0; i < xtfFiles.size(); i++) {
+            String xtfFile = xtfFiles.get(i);
+            var progress = fileProgresses.get(i);
+            logIssues(xtfFile, progress.mappingStatistics);
+            if (progress.duplicateObjects > 0) {
+                LOGGER.info("Skipped {} objects of \"{}\" that were already written for a previous file", progress.duplicateObjects, xtfFile);
+            }
+            logSkippedObjects(xtfFile, progress);
+            progress.layerCounts.forEach((layer, count) -> {
+                objectCounter.addAndGet(count);
+                layerCounters.merge(layer, count, Integer::sum);
+            });
+            fileStatistics.add(progress.toStatistics(xtfFile));
+        }
+
+        return new ConversionResult(objectCounter.get(), new TreeMap<>(layerCounters), Duration.between(start, Instant.now()), fileStatistics);
+    }
+
+    /**
+     * Maps and writes the objects whose references could not be resolved while their file was read.
+     * Input files whose referenced objects are missing from the index, because they were released at the end of their basket
+     * or the file was written from the conversion cache, are read a second time to add them to the index.
+     */
+    private static void resolveDeferredObjects(List<String> xtfFiles, List<FileProgress> fileProgresses, Map<String, IomObject> referenceIndex, LongSupplier writtenCharacters) {
+        for (int i = 0; i < xtfFiles.size(); i++) {
+            var progress = fileProgresses.get(i);
+            if (progress.referenceReread.isEmpty()) {
+                continue;
+            }
+
+            LOGGER.info("Reading \"{}\" again to resolve references to its objects", xtfFiles.get(i));
+            long readStart = System.nanoTime();
+            try {
+                progress.referenceReread.get().run(referenceIndex);
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to read file again: " + xtfFiles.get(i), e);
+            }
+            progress.readNanos += System.nanoTime() - readStart;
+            progress.totalNanos += System.nanoTime() - readStart;
+        }
+
+        for (int i = 0; i < xtfFiles.size(); i++) {
+            var progress = fileProgresses.get(i);
+            if (progress.deferredResolution.isEmpty()) {
+                continue;
+            }
+
+            long resolveStart = System.nanoTime();
+            long charactersBefore = writtenCharacters.getAsLong();
+            try {
+                progress.deferredResolution.get().run(referenceIndex);
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to resolve deferred references of file: " + xtfFiles.get(i), e);
+            }
+            progress.totalNanos += System.nanoTime() - resolveStart;
+            progress.writtenCharacters += writtenCharacters.getAsLong() - charactersBefore;
+        }
+    }
+
+    /**
+     * Writes the entities of the input file from the cache if the file did not change since the last conversion.
+     * Otherwise, the file is converted and the written entities are stored in the cache, unless they depend on the objects of other input files.
+     */
+    private void convertFileCached(File xtfFile, DxfWriter dxfWriter, Optional<Geometry> perimeter, FragmentCache cache, String fingerprint, FileProgress progress) throws Exception {
+        long hashStart = System.nanoTime();
+        String key = cache.computeKey(xtfFile, fingerprint);
+        long replayStart = System.nanoTime();
+        Optional<Map<String, Integer>> cachedLayerCounts = cache.replay(key, dxfWriter);
+        if (cachedLayerCounts.isPresent()) {
+            LOGGER.info("Wrote cached entities of unchanged file \"{}\"", xtfFile.getName());
+            progress.cached = true;
+            if (progress.referenceIndex.isPresent()) {
+                // the objects of the file are only read if objects of other files reference them
+                progress.referenceReread = Optional.of(referenceIndex -> indexFile(xtfFile, perimeter, referenceIndex));
+            }
+            progress.inputBytes = xtfFile.length();
+            progress.readNanos = replayStart - hashStart;
+            progress.writeNanos = System.nanoTime() - replayStart;
+            progress.layerCounts.putAll(cachedLayerCounts.get());
+            return;
+        }
+
+        try (var entry = cache.createEntry(key)) {
+            dxfWriter.startRecording(entry.writer());
+            try {
+                convertFile(xtfFile, writeDirectly(dxfWriter), perimeter, progress);
+            } finally {
+                dxfWriter.stopRecording();
+            }
+            if (progress.mappingStatistics.getForeignReferences() > 0 || progress.deferredResolution.isPresent()) {
+                LOGGER.debug("Not caching the entities of \"{}\", the file references objects of other files", xtfFile.getName());
+                return;
+            }
+            entry.commit(progress.layerCounts);
+        }
+    }
+
+    private void convertFile(File xtfFile, EntitySink sink, Optional<Geometry> perimeter, FileProgress progress) throws Exception {
+        if (MappedObjectStore.isStore(xtfFile)) {
+            convertStore(xtfFile, sink, perimeter, progress);
+            return;
+        }
+
+        long openStart = System.nanoTime();
+        try (XtfStreamReader reader = openReader(xtfFile, perimeter)) {
+            progress.readNanos += System.nanoTime() - openStart;
+            progress.progressReporter.ifPresent(reporter -> reporter.startFile(reader::getBytesRead));
+            Stream<IomObject> iomObjects = StreamSupport.stream(new TimedSpliterator<>(reader.readObjects().spliterator(), progress), false);
+            var unresolvedObjects = new ArrayList<IomObject>();
+            Stream<MappedObject> mappedObjects;
+            if (progress.referenceIndex.isPresent()) {
+                mappedObjects = objectMapper.mapObjects(iomObjects, progress.mappingStatistics, reader::getCompletedBaskets, progress.referenceIndex.get(), unresolvedObjects::add);
+            } else if (STANDARD_STREAM.equals(xtfFile.getPath())) {
+                // the standard input cannot be read again, so the referenced objects are kept until all objects were read
+                mappedObjects = objectMapper.mapObjects(iomObjects, progress.mappingStatistics, reader::getCompletedBaskets);
+            } else {
+                mappedObjects = objectMapper.mapObjects(iomObjects, progress.mappingStatistics, reader::getCompletedBaskets, unresolvedObjects::add);
+            }
+            writeObjects(mappedObjects, sink, perimeter, progress);
+
+            if (!unresolvedObjects.isEmpty()) {
+                LOGGER.info("Deferred {} objects of \"{}\" until all input files were read, they reference objects of other baskets or files", unresolvedObjects.size(), xtfFile.getName());
+                if (progress.mappingStatistics.getReleasedObjects() > 0) {
+                    progress.referenceReread = Optional.of(referenceIndex -> indexFile(xtfFile, perimeter, referenceIndex));
+                }
+                progress.deferredResolution = Optional.of(referenceIndex -> writeObjects(
+                        objectMapper.mapObjects(unresolvedObjects.stream(), progress.mappingStatistics, () -> 0, referenceIndex, null), sink, perimeter, progress));
+            }
+            progress.inputBytes = reader.getBytesRead();
+            progress.skippedObjects = reader.getSkippedObjects();
+            progress.skippedBytes = reader.getSkippedBytes();
+            progress.skippedTags = reader.getSkippedTags();
+            progress.readObjects = reader.getReadObjects();
+        }
+    }
+
+    /**
+     * Reads an input file again and adds the objects that may be referenced by mapped objects to the index.
+     */
+    private void indexFile(File xtfFile, Optional<Geometry> perimeter, Map<String, IomObject> referenceIndex) throws Exception {
+        try (XtfStreamReader reader = openReader(xtfFile, perimeter)) {
+            objectMapper.indexObjects(reader.readObjects(), referenceIndex);
+        }
+    }
+
+    /**
+     * Writes the objects of a store created by {@link #importFiles(List, String)}, the transfer files are not read again.
+     */
+    private void convertStore(File storeFile, EntitySink sink, Optional<Geometry> perimeter, FileProgress progress) throws Exception {
+        long openStart = System.nanoTime();
+        try (var store = MappedObjectStore.open(storeFile, objectMapper)) {
+            progress.readNanos += System.nanoTime() - openStart;
+            LOGGER.info("Reading {} mapped objects of store \"{}\"", store.getObjectCount(), storeFile.getName());
+            progress.progressReporter.ifPresent(reporter -> reporter.startFile(store::getBytesRead));
+            writeObjects(StreamSupport.stream(new TimedSpliterator<>(store.readObjects(perimeter.isPresent() || sink.usesGeometry()).spliterator(), progress), false), sink, perimeter, progress);
+            progress.inputBytes = store.getBytesRead();
+        }
+    }
+
+    /**
+     * Writes the mapped objects of an input file that intersect the perimeter.
+     */
+    private static void writeObjects(Stream<MappedObject> objects, EntitySink sink, Optional<Geometry> perimeter, FileProgress progress) {
+        if (perimeter.isPresent()) {
+            objects = objects.filter(o -> {
+                long filterStart = System.nanoTime();
+                boolean intersects = perimeter.get().intersects(o.geometry());
+                progress.perimeterNanos += System.nanoTime() - filterStart;
+                return intersects;
+            });
+        }
+
+        objects.forEach(o -> {
+            if (progress.writtenOids.isPresent() && progress.writtenOids.get().contains(o.oid())) {
+                progress.duplicateObjects++;
+                return;
+            }
+
+            long writeStart = System.nanoTime();
+            boolean written = writeObject(o, sink, progress.mappingStatistics);
+            progress.writeNanos += System.nanoTime() - writeStart;
+            if (!written) {
+                return;
+            }
+
+            progress.writtenOids.ifPresent(oids -> oids.add(o.oid()));
+
+            progress.layerCounts.merge(o.layerMapping().layer(), 1, Integer::sum);
+            if (++progress.writtenObjects % ProgressReporter.OBJECT_BATCH_SIZE == 0 && progress.progressReporter.isPresent()) {
+                progress.progressReporter.get().updateObjects(progress.writtenObjects);
+            }
+        });
+    }
+
+    /**
+     * Opens the reader of an input file. With a perimeter and an up-to-date spatial index of the file,
+     * only the objects within the envelope of the perimeter and their reference targets are read.
+     */
+    private XtfStreamReader openReader(File xtfFile, Optional<Geometry> perimeter) throws Exception {
+        var projection = Optional.of(objectMapper.getAttributeProjection());
+        if (STANDARD_STREAM.equals(xtfFile.getPath())) {
+            return new XtfStreamReader(System.in, "stdin", strictParsing, projection);
+        }
+
+        if (perimeter.isPresent()) {
+            Optional<SpatialIndex> index = SpatialIndex.open(xtfFile);
+            if (index.isPresent()) {
+                int[] selectedObjects = index.get().select(perimeter.get().getEnvelopeInternal());
+                LOGGER.info("Reading {} of {} objects of \"{}\" selected by the spatial index", selectedObjects.length, index.get().getObjectCount(), xtfFile.getName());
+                return new XtfStreamReader(index.get().openExtract(xtfFile, selectedObjects), xtfFile.getName(), strictParsing, projection);
+            }
+        }
+        return new XtfStreamReader(xtfFile, strictParsing, projection);
+    }
+
+    /**
+     * Opens the DXF output. Compressed output is deflated on a separate thread, so writing the entities never waits for the compression.
+     */
+    static Writer openOutput(String dxfFile, OutputCompression compression) throws IOException {
+        boolean standardOutput = STANDARD_STREAM.equals(dxfFile);
+        if (compression == OutputCompression.NONE && !standardOutput) {
+            return new FileWriter(dxfFile, StandardCharsets.UTF_8);
+        }
+
+        OutputStream output = new BufferedOutputStream(
+                standardOutput ? new FileOutputStream(FileDescriptor.out) : new FileOutputStream(dxfFile),
+                OUTPUT_BUFFER_SIZE);
+        try {
+            output = switch (compression) {
+                case NONE -> output;
+                case GZIP -> new AsyncCompressingOutputStream(new GZIPOutputStream(output, OUTPUT_BUFFER_SIZE));
+                case ZIP -> {
+                    var zipOutput = new ZipOutputStream(output, StandardCharsets.UTF_8);
+                    zipOutput.putNextEntry(new ZipEntry(getZipEntryName(dxfFile)));
+                    yield new AsyncCompressingOutputStream(zipOutput);
+                }
+            };
+        } catch (IOException e) {
+            output.close();
+            throw e;
+        }
+        return new OutputStreamWriter(output, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the name of the DXF file inside a ZIP archive, the name of the archive with the extension {@code .dxf}.
+     */
+    private static String getZipEntryName(String dxfFile) {
+        if (STANDARD_STREAM.equals(dxfFile)) {
+            return "output.dxf";
+        }
+
+        String name = new File(dxfFile).getName();
+        int extension = name.lastIndexOf('.');
+        return (extension > 0 ? name.substring(0, extension) : name) + ".dxf";
+    }
+
+    /**
+     * Get the total size of the input files, or {@code -1} if the size is unknown because the standard input is read.
+     */
+    private static long getTotalInputBytes(List<String> xtfFiles) {
+        if (xtfFiles.contains(STANDARD_STREAM)) {
+            return -1;
+        }
+        return xtfFiles.stream().mapToLong(xtfFile -> new File(xtfFile).length()).sum();
+    }
+
+    /**
+     * Writes a mapped object. Objects that cannot be written are counted in the statistics and skipped.
+     *
+     * @return {@code true} if the object was written, {@code false} if it failed or its layer is not written.
+     * @throws UncheckedIOException If the DXF file could not be written.
+     */
+    private static boolean writeObject(MappedObject object, EntitySink sink, MappingStatistics statistics) {
+        try {
+            return sink.write(object);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            LOGGER.debug("Failed to write object: {} to dxf.", object.oid(), e);
+            statistics.countWriteFailure(object.layerMapping().layer(), object.oid(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Logs a summary of the objects of an input file that were not written.
+     */
+    /**
+     * Logs the objects skipped by the reader because their classes are not used by the layer mappings, per class.
+     * The summary is a warning if no object of the file was read at all.
+     */
+    private static void logSkippedObjects(String xtfFile, FileProgress progress) {
+        if (progress.skippedObjects == 0) {
+            return;
+        }
+
+        Level level = progress.readObjects == 0 ? Level.WARN : Level.INFO;
+        LOGGER.log(level, "Skipped {} objects ({} bytes) of \"{}\" whose classes are not used by the layer mappings:", progress.skippedObjects, progress.skippedBytes, xtfFile);
+        progress.skippedTags.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> LOGGER.log(level, String.format(Locale.ROOT, "%10d  %s", entry.getValue(), entry.getKey())));
+    }
+
+    private static void logIssues(String xtfFile, MappingStatistics statistics) {
+        List<MappingStatistics.Issue> issues = statistics.getIssues();
+        if (issues.isEmpty()) {
+            return;
+        }
+
+        LOGGER.warn("{} objects of \"{}\" were not written:", issues.stream().mapToInt(MappingStatistics.Issue::count).sum(), xtfFile);
+        for (var issue : issues) {
+            LOGGER.warn(String.format(Locale.ROOT, "%10d  %-32s %s, e.g. %s%s",
+                    issue.count(),
+                    issue.reason().getDescription(),
+                    issue.objectTag(),
+                    String.join(", ", issue.sampleOids()),
+                    issue.message() != null ? " (" + issue.message() + ")" : ""));
+        }
+    }
+
+    private static EntitySink writeDirectly(DxfWriter dxfWriter) {
+        return object -> {
+            object.writeToDxf(dxfWriter);
+            return true;
+        };
+    }
+
+    /**
+     * Creates the sort key of the entities of an object for the specified order.
+     */
+    private ToLongFunction<MappedObject> createSortKey(EntityOrder entityOrder) {
+        return switch (entityOrder) {
+            case INPUT -> object -> 0;
+            case LAYER -> {
+                Map<String, Integer> layerIndexes = new HashMap<>();
+                for (var mapping : objectMapper.getLayerMappings()) {
+                    layerIndexes.putIfAbsent(mapping.layer(), layerIndexes.size());
+                }
+                yield object -> layerIndexes.get(object.layerMapping().layer());
+            }
+            case HILBERT -> object -> HilbertCurve.indexOf(object.geometry().getEnvelopeInternal());
+        };
+    }
+
+    /**
+     * Describes everything besides the input files that affects the written entities.
+     */
+    private String computeFingerprint(Optional<Geometry> perimeter) {
+        return String.join("\n",
+                String.valueOf(comment),
+                String.valueOf(DOUBLE_PRECISION),
+                objectMapper.getLayerMappings().toString(),
+                perimeter.map(Geometry::toText).orElse(""));
+    }
+
+    /**
+     * Converts a single input file and records its measurements.
+     */
+    @FunctionalInterface
+    private interface FileConversion {
+        void convert(File xtfFile, FileProgress progress) throws Exception;
+    }
+
+    /**
+     * Works with the referenced objects of all input files after all input files were read.
+     */
+    @FunctionalInterface
+    private interface ReferenceTask {
+        void run(Map<String, IomObject> referenceIndex) throws Exception;
+    }
+
+    /**
+     * Writes the entities of an object, returns {@code false} if the layer of the object is not written.
+     */
+    @FunctionalInterface
+    private interface EntitySink {
+        boolean write(MappedObject object) throws IOException;
+
+        /**
+         * Whether the sink reads the JTS geometry of the objects, which is only created for objects of a store if it is needed.
+         */
+        default boolean usesGeometry() {
+            return false;
+        }
+    }
+
+    /**
+     * Collects the measurements of a single input file while it is converted.
+     */
+    private static final class FileProgress {
+        private final MappingStatistics mappingStatistics = new MappingStatistics();
+        private final Map<String, Integer> layerCounts = new HashMap<>();
+        private final Optional<ProgressReporter> progressReporter;
+        private final Optional<OidSet> writtenOids;
+        private final Optional<Map<String, IomObject>> referenceIndex;
+        private Optional<ReferenceTask> referenceReread = Optional.empty();
+        private Optional<ReferenceTask> deferredResolution = Optional.empty();
+        private boolean cached;
+        private int writtenObjects;
+        private int duplicateObjects;
+        private int skippedObjects;
+        private long skippedBytes;
+        private Map<String, Integer> skippedTags = Map.of();
+        private int readObjects;
+        private long inputBytes;
+        private long readNanos;
+        private long perimeterNanos;
+        private long writeNanos;
+        private long totalNanos;
+        private long writtenCharacters;
+
+        FileProgress(Optional<ProgressReporter> progressReporter, Optional<OidSet> writtenOids, Optional<Map<String, IomObject>> referenceIndex) {
+            this.progressReporter = progressReporter;
+            this.writtenOids = writtenOids;
+            this.referenceIndex = referenceIndex;
+        }
+
+        int getObjectCount() {
+            return layerCounts.values().stream().mapToInt(Integer::intValue).sum();
+        }
+
+        FileStatistics toStatistics(String file) {
+            int objectCount = getObjectCount();
+            long mappingNanos = cached ? 0 : Math.max(0, totalNanos - readNanos - perimeterNanos - writeNanos);
+            return new FileStatistics(
+                    file,
+                    inputBytes,
+                    writtenCharacters,
+                    objectCount,
+                    cached,
+                    Duration.ofNanos(readNanos),
+                    Duration.ofNanos(mappingNanos),
+                    Duration.ofNanos(perimeterNanos),
+                    Duration.ofNanos(writeNanos),
+                    Duration.ofNanos(totalNanos),
+                    mappingStatistics.getDeferredObjects(),
+                    mappingStatistics.getUnmappedObjects(),
+                    duplicateObjects,
+                    skippedObjects,
+                    skippedBytes,
+                    mappingStatistics.getCachedObjects(),
+                    mappingStatistics.getFilterStatistics());
+        }
+    }
+
+    /**
+     * Measures the time spent in the source spliterator, excluding the time of the downstream operations.
+     */
+    private static final class TimedSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+        private final Spliterator<T> source;
+        private final FileProgress progress;
+        private final Consumer<T> nextSetter = value -> next = value;
+        private T next;
+
+        TimedSpliterator(Spliterator<T> source, FileProgress progress) {
+            super(source.estimateSize(), source.characteristics() & ~(Spliterator.SIZED | Spliterator.SUBSIZED));
+            this.source = source;
+            this.progress = progress;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            long start = System.nanoTime();
+            boolean advanced = source.tryAdvance(nextSetter);
+            progress.readNanos += System.nanoTime() - start;
+            if (advanced) {
+                T value = next;
+                next = null;
+                action.accept(value);
+            }
+            return advanced;
+        }
+    }
+}
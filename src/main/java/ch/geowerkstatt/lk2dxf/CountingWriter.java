@@ -0,0 +1,41 @@
+package ch.geowerkstatt.lk2dxf;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A writer that counts the characters written to the underlying writer.
+ */
+final class CountingWriter extends FilterWriter {
+    private long count;
+
+    CountingWriter(Writer out) {
+        super(out);
+    }
+
+    /**
+     * Get the number of characters written so far.
+     */
+    long getCount() {
+        return count;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        super.write(c);
+        count++;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        super.write(cbuf, off, len);
+        count += len;
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        super.write(str, off, len);
+        count += len;
+    }
+}
@@ -3,13 +3,16 @@ package ch.geowerkstatt.lk2dxf;
 import ch.geowerkstatt.lk2dxf.mapping.LayerMapping;
 import ch.interlis.iom.IomObject;
 
+import java.io.BufferedReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.text.FieldPosition;
 import java.util.*;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -19,9 +22,20 @@ import java.util.stream.Stream;
  */
 public final class DxfWriter implements AutoCloseable {
     private static final String DEFAULT_LAYER = "0";
+    private static final String HANDLE_CODE = "5";
+    private static final int BLOCK_CHARACTERS = 64 * 1024;
+    private static final String[] GROUP_CODES = IntStream.range(0, 1072).mapToObj(String::valueOf).toArray(String[]::new);
     private final DecimalFormat decimalFormat;
+    private final StringBuffer numberBuffer = new StringBuffer();
+    private final FieldPosition numberField = new FieldPosition(0);
+    private final PolylineBuffer polylineBuffer = new PolylineBuffer();
     private final Writer dxfWriter;
+    private char[] numberChars = new char[32];
+    private Writer recordingWriter;
     private int handle = 1;
+    private WriteBlockEvent blockEvent;
+    private int blockRecords;
+    private long blockCharacters;
 
     /**
      * Creates a new DXF writer.
@@ -62,6 +76,7 @@ public final class DxfWriter implements AutoCloseable {
 
         dxfWriter = writer;
         decimalFormat = new DecimalFormat("0." + "#".repeat(doublePrecision), new DecimalFormatSymbols(Locale.ROOT));
+        startBlock();
 
         prepareDxfForWritingEntities(layerMappings, comment);
     }
@@ -125,22 +140,27 @@ public final class DxfWriter implements AutoCloseable {
      * @see <a href="https://help.autodesk.com/view/OARX/2024/ENU/?guid=GUID-748FC305-F3F2-4F74-825A-61F04D757A50">LWPOLYLINE (DXF Reference)</a>
      */
     public void writeLwPolyline(String layerName, IomObject polyline) throws IOException {
-        var segments = polyline.getattrobj("sequence", 0);
-        var segmentCount = segments.getattrvaluecount("segment");
+        polylineBuffer.clear();
+        polylineBuffer.add(polyline, false);
+        writeLwPolyline(layerName, polylineBuffer);
+    }
+
+    /**
+     * Writes the first polyline of already parsed vertices as LWPOLYLINE, see {@link #writeLwPolyline(String, IomObject)}.
+     */
+    void writeLwPolyline(String layerName, PolylineBuffer polyline) throws IOException {
+        var isClosed = polyline.isClosed(0);
+        var vertexCount = polyline.getPartEnd(0);
 
         writeElement(0, "LWPOLYLINE");
         writeElement(5, getNextHandle());
         writeElement(100, "AcDbEntity");
         writeElement(8, layerName);
         writeElement(100, "AcDbPolyline");
-
-        var segment = segments.getattrobj("segment", 0);
-        var lastSegment = segments.getattrobj("segment", segmentCount - 1);
-        var isClosed = segment.getattrvalue("C1").equals(lastSegment.getattrvalue("C1")) && segment.getattrvalue("C2").equals(lastSegment.getattrvalue("C2"));
-        writeElement(90, segmentCount - (isClosed ? 1 : 0));
+        writeElement(90, vertexCount - (isClosed ? 1 : 0));
         writeElement(70, isClosed ? 1 : 0);
 
-        writePolylinePoints(polyline, isClosed);
+        writePolylinePoints(polyline, 0, isClosed);
     }
 
     /**
@@ -148,6 +168,21 @@ public final class DxfWriter implements AutoCloseable {
      * @see <a href="https://help.autodesk.com/view/OARX/2024/ENU/?guid=GUID-C6C71CED-CE0F-4184-82A5-07AD6241F15B">HATCH (DXF Reference)</a>
      */
     public void writeHatch(String layerName, IomObject multiSurface) throws IOException {
+        polylineBuffer.clear();
+        for (int i = 0; i < multiSurface.getattrvaluecount("surface"); i++) {
+            var surface = multiSurface.getattrobj("surface", i);
+            for (int j = 0; j < surface.getattrvaluecount("boundary"); j++) {
+                polylineBuffer.add(surface.getattrobj("boundary", j).getattrobj("polyline", 0), j == 0);
+            }
+        }
+        writeHatch(layerName, polylineBuffer);
+    }
+
+    /**
+     * Writes already parsed boundaries as HATCH, see {@link #writeHatch(String, IomObject)}.
+     * Each surface starts with its exterior boundary, followed by the boundaries of its holes.
+     */
+    void writeHatch(String layerName, PolylineBuffer boundaries) throws IOException {
         writeElement(0, "HATCH");
         writeElement(5, getNextHandle());
         writeElement(100, "AcDbEntity");
@@ -162,32 +197,16 @@ public final class DxfWriter implements AutoCloseable {
         writeElement(2, "SOLID");
         writeElement(70, 1); // solid fill
         writeElement(71, 0); // not associative
+        writeElement(91, boundaries.getPartCount());
 
-        int boundaryCount = 0;
-        for (int i = 0; i < multiSurface.getattrvaluecount("surface"); i++) {
-            var surface = multiSurface.getattrobj("surface", i);
-            boundaryCount += surface.getattrvaluecount("boundary");
-        }
-
-        writeElement(91, boundaryCount);
-
-        for (int i = 0; i < multiSurface.getattrvaluecount("surface"); i++) {
-            var surface = multiSurface.getattrobj("surface", i);
+        for (int part = 0; part < boundaries.getPartCount(); part++) {
+            writeElement(92, (boundaries.isExterior(part) ? 1 /*external*/ : 16 /*outermost*/) + 2 /*polygon*/);
+            writeElement(72, 1); // has bulge
+            writeElement(73, 1); // is closed
+            writeElement(93, boundaries.getPartEnd(part) - boundaries.getPartStart(part) - 1);
 
-            for (int j = 0; j < surface.getattrvaluecount("boundary"); j++) {
-                var boundary = surface.getattrobj("boundary", j);
-                var polyline = boundary.getattrobj("polyline", 0);
-                var segments = polyline.getattrobj("sequence", 0);
-                var segmentCount = segments.getattrvaluecount("segment");
-
-                writeElement(92, (j == 0 ? 1 /*external*/ : 16 /*outermost*/) + 2 /*polygon*/);
-                writeElement(72, 1); // has bulge
-                writeElement(73, 1); // is closed
-                writeElement(93, segmentCount - 1);
-
-                writePolylinePoints(polyline, true);
-                writeElement(97, 0); // no source boundaries
-            }
+            writePolylinePoints(boundaries, part, true);
+            writeElement(97, 0); // no source boundaries
         }
 
         writeElement(75, 0); // hatch "odd parity"
@@ -195,40 +214,81 @@ public final class DxfWriter implements AutoCloseable {
         writeElement(98, 0); // no seed points
     }
 
-    private void writePolylinePoints(IomObject polyline, boolean isClosed) throws IOException {
-        var segments = polyline.getattrobj("sequence", 0);
-
-        var segment = segments.getattrobj("segment", 0);
-        var prevX = Double.parseDouble(segment.getattrvalue("C1"));
-        var prevY = Double.parseDouble(segment.getattrvalue("C2"));
+    /**
+     * Writes the vertices of a polyline with the bulge of the segment following each vertex.
+     * The last vertex of a closed polyline is omitted, since it equals the first vertex.
+     */
+    private void writePolylinePoints(PolylineBuffer polyline, int part, boolean isClosed) throws IOException {
+        int start = polyline.getPartStart(part);
+        int end = polyline.getPartEnd(part);
+
+        for (int vertex = start + 1; vertex < end; vertex++) {
+            writeElement(10, polyline.getX(vertex - 1));
+            writeElement(20, polyline.getY(vertex - 1));
+            writeElement(42, polyline.getBulge(vertex));
+        }
 
-        for (int i = 1; i < segments.getattrvaluecount("segment"); i++) {
-            segment = segments.getattrobj("segment", i);
-            var x = Double.parseDouble(segment.getattrvalue("C1"));
-            var y = Double.parseDouble(segment.getattrvalue("C2"));
+        if (!isClosed) {
+            writeElement(10, polyline.getX(end - 1));
+            writeElement(20, polyline.getY(end - 1));
+            writeElement(42, 0.0);
+        }
+    }
 
-            writeElement(10, prevX);
-            writeElement(20, prevY);
+    /**
+     * Writes previously recorded entities to the DXF file.
+     * The handles of the recorded entities are replaced with new handles of this file.
+     * @param fragment The group code and value lines of the entities.
+     * @see #startRecording(Writer)
+     */
+    public void writeFragment(BufferedReader fragment) throws IOException {
+        String code;
+        while ((code = fragment.readLine()) != null) {
+            String value = fragment.readLine();
+            if (value == null) {
+                throw new IOException("Incomplete DXF fragment, missing value for group code " + code + ".");
+            }
 
-            if (segment.getobjecttag().equals("ARC")) {
-                var ax = Double.parseDouble(segment.getattrvalue("A1"));
-                var ay = Double.parseDouble(segment.getattrvalue("A2"));
+            writeElement(code, HANDLE_CODE.equals(code) ? getNextHandle() : value);
+        }
+    }
 
-                var bulge = Math.tan((Math.PI + Math.atan2(y - ay, x - ax) - Math.atan2(prevY - ay, prevX - ax)) / 2.0);
-                writeElement(42, Double.isFinite(bulge) ? bulge : 0.0);
-            } else {
-                writeElement(42, 0.0);
+    /**
+     * Writes previously rendered entities to the DXF file, see {@link #writeFragment(BufferedReader)}.
+     * @param fragment The group code and value lines of the entities, each terminated by a line feed.
+     */
+    public void writeFragment(String fragment) throws IOException {
+        int start = 0;
+        while (start < fragment.length()) {
+            int codeEnd = fragment.indexOf('\n', start);
+            int valueEnd = codeEnd < 0 ? -1 : fragment.indexOf('\n', codeEnd + 1);
+            if (valueEnd < 0) {
+                throw new IOException("Incomplete DXF fragment, missing value for group code " + fragment.substring(start, codeEnd < 0 ? fragment.length() : codeEnd) + ".");
             }
 
-            prevX = x;
-            prevY = y;
+            String code = fragment.substring(start, codeEnd);
+            writeElement(code, HANDLE_CODE.equals(code) ? getNextHandle() : fragment.substring(codeEnd + 1, valueEnd));
+            start = valueEnd + 1;
         }
+    }
 
-        if (!isClosed) {
-            writeElement(10, prevX);
-            writeElement(20, prevY);
-            writeElement(42, 0.0);
+    /**
+     * Starts copying all entities written to this DXF file to {@code recording}, until {@link #stopRecording()} is called.
+     * The recorded entities can be written to another DXF file with {@link #writeFragment(BufferedReader)}.
+     * @param recording The writer to copy the entities to.
+     */
+    public void startRecording(Writer recording) {
+        if (recordingWriter != null) {
+            throw new IllegalStateException("A recording is already in progress.");
         }
+        recordingWriter = recording;
+    }
+
+    /**
+     * Stops copying the written entities to the recording writer. The recording writer is not closed.
+     */
+    public void stopRecording() {
+        recordingWriter = null;
     }
 
     /**
@@ -251,14 +311,23 @@ public final class DxfWriter implements AutoCloseable {
      * @see <a href="https://help.autodesk.com/view/OARX/2024/ENU/?guid=GUID-28FA4CFB-9D5E-4880-9F11-36C97578252F">INSERT (DXF Reference)</a>
      */
     public void writeBlockInsert(String layerName, String blockName, double rotation, IomObject point) throws IOException {
+        polylineBuffer.clear();
+        polylineBuffer.addCoord(point);
+        writeBlockInsert(layerName, blockName, rotation, polylineBuffer);
+    }
+
+    /**
+     * Writes a INSERT at the first vertex of already parsed vertices, see {@link #writeBlockInsert(String, String, double, IomObject)}.
+     */
+    void writeBlockInsert(String layerName, String blockName, double rotation, PolylineBuffer point) throws IOException {
         writeElement(0, "INSERT");
         writeElement(5, getNextHandle());
         writeElement(100, "AcDbEntity");
         writeElement(8, layerName);
         writeElement(100, "AcDbBlockReference");
         writeElement(2, blockName);
-        writeElement(10, Double.parseDouble(point.getattrvalue("C1")));
-        writeElement(20, Double.parseDouble(point.getattrvalue("C2")));
+        writeElement(10, point.getX(0));
+        writeElement(20, point.getY(0));
         writeElement(50, convertOrientation(rotation));
     }
 
@@ -274,6 +343,16 @@ public final class DxfWriter implements AutoCloseable {
      * @see <a href="https://help.autodesk.com/view/OARX/2024/ENU/?guid=GUID-62E5383D-8A14-47B4-BFC4-35824CAE8363">TEXT (DXF Reference)</a>
      */
     public void writeText(String layerName, String textStyle, String text, String hAlignment, String vAlignment, double orientation, double size, IomObject position) throws IOException {
+        polylineBuffer.clear();
+        polylineBuffer.addCoord(position);
+        writeText(layerName, textStyle, text, hAlignment, vAlignment, orientation, size, polylineBuffer);
+    }
+
+    /**
+     * Writes a TEXT at the first vertex of already parsed vertices,
+     * see {@link #writeText(String, String, String, String, String, double, double, IomObject)}.
+     */
+    void writeText(String layerName, String textStyle, String text, String hAlignment, String vAlignment, double orientation, double size, PolylineBuffer position) throws IOException {
         var hAlignmentValue = switch (Objects.requireNonNullElse(hAlignment, "").toLowerCase(Locale.ROOT)) {
             case "right" -> 2;
             case "center" -> 1;
@@ -296,16 +375,16 @@ public final class DxfWriter implements AutoCloseable {
         writeElement(8, layerName);
         writeElement(100, "AcDbText");
         writeElement(7, textStyle);
-        writeElement(10, isDefaultAlignment ? Double.parseDouble(position.getattrvalue("C1")) : 0.0);
-        writeElement(20, isDefaultAlignment ? Double.parseDouble(position.getattrvalue("C2")) : 0.0);
+        writeElement(10, isDefaultAlignment ? position.getX(0) : 0.0);
+        writeElement(20, isDefaultAlignment ? position.getY(0) : 0.0);
         writeElement(40, size); // text height
         writeElement(1, text);
         if (hAlignmentValue != 0) {
             writeElement(72, hAlignmentValue);
         }
         if (!isDefaultAlignment) {
-            writeElement(11, Double.parseDouble(position.getattrvalue("C1")));
-            writeElement(21, Double.parseDouble(position.getattrvalue("C2")));
+            writeElement(11, position.getX(0));
+            writeElement(21, position.getY(0));
         }
         if (orientation != 0) {
             writeElement(50, orientation);
@@ -466,8 +545,28 @@ public final class DxfWriter implements AutoCloseable {
         }
     }
 
+    /**
+     * Writes a double value without allocating, the value is formatted into a reused buffer.
+     */
     private void writeElement(int code, double value) throws IOException {
-        writeElement(code, decimalFormat.format(value));
+        numberBuffer.setLength(0);
+        decimalFormat.format(value, numberBuffer, numberField);
+        int length = numberBuffer.length();
+        if (length > numberChars.length) {
+            numberChars = new char[length * 2];
+        }
+        numberBuffer.getChars(0, length, numberChars, 0);
+
+        String codeValue = getGroupCode(code);
+        writeLine(dxfWriter, codeValue);
+        dxfWriter.write(numberChars, 0, length);
+        dxfWriter.write('\n');
+        if (recordingWriter != null) {
+            writeLine(recordingWriter, codeValue);
+            recordingWriter.write(numberChars, 0, length);
+            recordingWriter.write('\n');
+        }
+        countElement(codeValue, length);
     }
 
     private void writeElement(int code, int value) throws IOException {
@@ -475,10 +574,62 @@ public final class DxfWriter implements AutoCloseable {
     }
 
     private void writeElement(int code, String value) throws IOException {
-        dxfWriter.write(String.valueOf(code));
-        dxfWriter.write("\n");
-        dxfWriter.write(value);
-        dxfWriter.write("\n");
+        writeElement(getGroupCode(code), value);
+    }
+
+    private void writeElement(String code, String value) throws IOException {
+        writeLine(dxfWriter, code);
+        writeLine(dxfWriter, value);
+
+        if (recordingWriter != null) {
+            writeLine(recordingWriter, code);
+            writeLine(recordingWriter, value);
+        }
+        countElement(code, value.length());
+    }
+
+    private static void writeLine(Writer writer, String line) throws IOException {
+        writer.write(line);
+        writer.write('\n');
+    }
+
+    private static String getGroupCode(int code) {
+        return code >= 0 && code < GROUP_CODES.length ? GROUP_CODES[code] : String.valueOf(code);
+    }
+
+    private void countElement(String code, int valueLength) {
+        blockCharacters += code.length() + valueLength + 2;
+        if (blockEvent != null && code.length() == 1 && code.charAt(0) == '0') {
+            blockRecords++;
+        }
+        if (blockCharacters >= BLOCK_CHARACTERS) {
+            completeBlock();
+        }
+    }
+
+    /**
+     * Records a {@link WriteBlockEvent} for the written block, the underlying writer is not flushed.
+     */
+    private void completeBlock() {
+        if (blockEvent != null) {
+            blockEvent.complete(blockRecords, blockCharacters);
+        }
+        startBlock();
+    }
+
+    /**
+     * Starts the next block. Whether the event is enabled is checked once per block, so a disabled event only costs the character count.
+     */
+    private void startBlock() {
+        var event = new WriteBlockEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            blockEvent = event;
+        } else {
+            blockEvent = null;
+        }
+        blockRecords = 0;
+        blockCharacters = 0;
     }
 
     private String getNextHandle() {
@@ -495,6 +646,7 @@ public final class DxfWriter implements AutoCloseable {
     @Override
     public void close() throws Exception {
         finishDxfAfterWritingEntities();
+        completeBlock();
         dxfWriter.close();
     }
 
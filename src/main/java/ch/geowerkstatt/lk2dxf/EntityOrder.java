@@ -0,0 +1,22 @@
+package ch.geowerkstatt.lk2dxf;
+
+/**
+ * The order of the entities in the ENTITIES section of the DXF file.
+ */
+public enum EntityOrder {
+    /**
+     * The entities are written in the order the objects are read from the input files.
+     */
+    INPUT,
+
+    /**
+     * The entities are grouped by layer in the order of the layer mappings, within a layer they keep the input order.
+     */
+    LAYER,
+
+    /**
+     * The entities are written in the order of the centers of their envelopes along a Hilbert curve, so entities close
+     * to each other in space are close to each other in the file.
+     */
+    HILBERT,
+}
@@ -0,0 +1,202 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.geowerkstatt.lk2dxf.mapping.LayerMapping;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ToLongFunction;
+
+/**
+ * Renders entities ahead of time and writes them sorted by a key, using an external merge sort to keep the memory bounded.
+ * <p>
+ * Each object is rendered into a scratch {@link DxfWriter} and buffered with its key and a sequence number, so entities
+ * with equal keys keep the input order. When the buffered entities exceed the memory limit, they are sorted and spilled
+ * to a temporary run file. {@link #writeTo(DxfWriter)} merges all runs into the target writer, which assigns new handles.
+ */
+final class EntitySorter implements AutoCloseable {
+    /**
+     * The default number of buffered characters after which the entities are spilled to disk, about 64 MB of heap.
+     */
+    static final long DEFAULT_MEMORY_CHARACTERS = 32L * 1024 * 1024;
+
+    private static final int RUN_BUFFER_SIZE = 64 * 1024;
+    private static final Comparator<SortEntry> ENTRY_ORDER = Comparator.comparingLong(SortEntry::key).thenComparingLong(SortEntry::sequence);
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private final ToLongFunction<MappedObject> sortKey;
+    private final long memoryCharacters;
+    private final StringWriter scratch = new StringWriter();
+    private final DxfWriter scratchWriter;
+    private final List<SortEntry> entries = new ArrayList<>();
+    private final List<Path> runs = new ArrayList<>();
+    private long bufferedCharacters;
+    private long renderedCharacters;
+    private long sequence;
+
+    /**
+     * Creates a new sorter.
+     * @param sortKey Computes the key of an object, entities are written in ascending key order.
+     * @param doublePrecision The number of decimal places to write for double values.
+     * @param layerMappings The layer mappings of the target file.
+     * @param memoryCharacters The number of buffered characters after which the entities are spilled to disk.
+     * @throws IOException If the scratch writer could not be created.
+     */
+    EntitySorter(ToLongFunction<MappedObject> sortKey, int doublePrecision, Collection<LayerMapping> layerMappings, long memoryCharacters) throws IOException {
+        this.sortKey = sortKey;
+        this.memoryCharacters = memoryCharacters;
+        this.scratchWriter = new DxfWriter(scratch, doublePrecision, layerMappings, null);
+    }
+
+    /**
+     * Renders an object and buffers its entities.
+     * @param object The object to add.
+     * @throws IOException If the buffered entities could not be spilled to disk.
+     */
+    void add(MappedObject object) throws IOException {
+        scratch.getBuffer().setLength(0);
+        object.writeToDxf(scratchWriter);
+        String entity = scratch.toString();
+
+        entries.add(new SortEntry(sortKey.applyAsLong(object), sequence++, entity));
+        bufferedCharacters += entity.length();
+        renderedCharacters += entity.length();
+        if (bufferedCharacters >= memoryCharacters) {
+            spill();
+        }
+    }
+
+    /**
+     * Get the number of characters of all rendered entities.
+     */
+    long getRenderedCharacters() {
+        return renderedCharacters;
+    }
+
+    /**
+     * Writes all added entities in key order.
+     * @param dxfWriter The writer of the target file.
+     * @throws IOException If the runs could not be read or the entities could not be written.
+     */
+    void writeTo(DxfWriter dxfWriter) throws IOException {
+        if (runs.isEmpty()) {
+            entries.sort(ENTRY_ORDER);
+            for (var entry : entries) {
+                dxfWriter.writeFragment(entry.entity());
+            }
+            entries.clear();
+            return;
+        }
+
+        if (!entries.isEmpty()) {
+            spill();
+        }
+        LOGGER.debug("Merging {} sorted runs of {} entities", runs.size(), sequence);
+
+        var readers = new ArrayList<RunReader>(runs.size());
+        try {
+            var queue = new PriorityQueue<RunReader>(runs.size(), Comparator.comparing(RunReader::current, ENTRY_ORDER));
+            for (Path run : runs) {
+                var reader = new RunReader(run);
+                readers.add(reader);
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+
+            while (!queue.isEmpty()) {
+                var reader = queue.poll();
+                dxfWriter.writeFragment(reader.current().entity());
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+        } finally {
+            for (var reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private void spill() throws IOException {
+        entries.sort(ENTRY_ORDER);
+        Path run = Files.createTempFile("lk2dxf-entities", ".run");
+        runs.add(run);
+        try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), RUN_BUFFER_SIZE))) {
+            for (var entry : entries) {
+                byte[] entity = entry.entity().getBytes(StandardCharsets.UTF_8);
+                output.writeLong(entry.key());
+                output.writeLong(entry.sequence());
+                output.writeInt(entity.length);
+                output.write(entity);
+            }
+        }
+
+        LOGGER.debug("Spilled {} entities to {}", entries.size(), run);
+        entries.clear();
+        bufferedCharacters = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        entries.clear();
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+    }
+
+    private record SortEntry(long key, long sequence, String entity) {
+    }
+
+    /**
+     * Reads the entries of a sorted run one at a time.
+     */
+    private static final class RunReader implements AutoCloseable {
+        private final DataInputStream input;
+        private SortEntry current;
+
+        RunReader(Path run) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), RUN_BUFFER_SIZE));
+        }
+
+        SortEntry current() {
+            return current;
+        }
+
+        boolean advance() throws IOException {
+            long key;
+            try {
+                key = input.readLong();
+            } catch (EOFException e) {
+                current = null;
+                return false;
+            }
+
+            long sequence = input.readLong();
+            byte[] entity = new byte[input.readInt()];
+            input.readFully(entity);
+            current = new SortEntry(key, sequence, new String(entity, StandardCharsets.UTF_8));
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+}
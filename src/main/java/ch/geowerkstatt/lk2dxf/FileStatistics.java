@@ -0,0 +1,50 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.geowerkstatt.lk2dxf.mapping.MappingStatistics;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The statistics of a single input file of a conversion.
+ * <p>
+ * Reading, perimeter filtering and writing are measured directly, the mapping time is the remainder of the total time.
+ * For files written from the conversion cache only the total time and the written characters are known.
+ *
+ * @param file The path of the input file.
+ * @param inputBytes The number of bytes read from the input file, or its size if the entities were written from the cache.
+ * @param writtenCharacters The number of characters written to the DXF file for this input file.
+ * @param objectCount The number of objects written to the DXF file.
+ * @param cached Whether the entities were written from the conversion cache.
+ * @param readTime The time spent reading and parsing the input file.
+ * @param mappingTime The time spent assigning the objects to layers and constructing their geometries.
+ * @param perimeterTime The time spent filtering the objects by the perimeter.
+ * @param writeTime The time spent writing the entities.
+ * @param totalTime The wall time spent for the file.
+ * @param deferredObjects The number of objects mapped after the file was read because they reference objects that followed them.
+ * @param unmappedObjects The number of objects that could not be assigned to a layer.
+ * @param duplicateObjects The number of objects skipped because their OID was already written for a previous input file.
+ * @param skippedObjects The number of objects skipped while reading because their class is not used by the layer mappings.
+ * @param skippedBytes The approximate size of the skipped objects in the input file.
+ * @param cachedObjects The number of objects kept in memory to resolve references.
+ * @param filters The evaluation counts of the filters of the layer mappings.
+ */
+public record FileStatistics(
+        String file,
+        long inputBytes,
+        long writtenCharacters,
+        int objectCount,
+        boolean cached,
+        Duration readTime,
+        Duration mappingTime,
+        Duration perimeterTime,
+        Duration writeTime,
+        Duration totalTime,
+        int deferredObjects,
+        int unmappedObjects,
+        int duplicateObjects,
+        int skippedObjects,
+        long skippedBytes,
+        int cachedObjects,
+        List<MappingStatistics.FilterStatistics> filters) {
+}
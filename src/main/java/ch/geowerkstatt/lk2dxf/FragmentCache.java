@@ -0,0 +1,215 @@
+package ch.geowerkstatt.lk2dxf;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An on-disk cache of the DXF entities rendered for an input file.
+ * <p>
+ * An entry is keyed by the SHA-256 hash of the input file content combined with a fingerprint of everything else that
+ * affects the rendered entities, like the application code, the layer mappings and the perimeter.
+ * Each entry consists of the gzip compressed entities and a file with the number of objects per layer.
+ * The counts file is written last, an entry without counts file is incomplete and ignored.
+ */
+public final class FragmentCache {
+    private static final String FRAGMENT_EXTENSION = ".fragment.gz";
+    private static final String COUNTS_EXTENSION = ".counts";
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private final Path directory;
+
+    /**
+     * Creates a new cache in the specified directory. The directory is created when the first entry is stored.
+     * @param directory The directory containing the cache entries.
+     */
+    public FragmentCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Computes the key of the cache entry for an input file.
+     * @param xtfFile The input file whose content is hashed.
+     * @param fingerprint Describes all other inputs that affect the rendered entities.
+     * @return The cache key.
+     * @throws IOException If the input file could not be read.
+     */
+    public String computeKey(File xtfFile, String fingerprint) throws IOException {
+        MessageDigest digest = createDigest();
+
+        digest.update(CodeFingerprint.VALUE);
+        digest.update(fingerprint.getBytes(StandardCharsets.UTF_8));
+        try (InputStream input = new DigestInputStream(Files.newInputStream(xtfFile.toPath()), digest)) {
+            input.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Writes the cached entities of an entry to the DXF file.
+     * @param key The key of the cache entry.
+     * @param dxfWriter The writer to write the entities to.
+     * @return The number of written objects per layer, or an empty optional if the cache contains no entry for the key.
+     * @throws IOException If the cache entry could not be read or the entities could not be written.
+     */
+    public Optional<Map<String, Integer>> replay(String key, DxfWriter dxfWriter) throws IOException {
+        Path countsFile = directory.resolve(key + COUNTS_EXTENSION);
+        Path fragmentFile = directory.resolve(key + FRAGMENT_EXTENSION);
+        if (!Files.isRegularFile(countsFile) || !Files.isRegularFile(fragmentFile)) {
+            return Optional.empty();
+        }
+
+        Map<String, Integer> layerCounts = new HashMap<>();
+        for (String line : Files.readAllLines(countsFile, StandardCharsets.UTF_8)) {
+            int separator = line.lastIndexOf('\t');
+            layerCounts.put(line.substring(0, separator), Integer.parseInt(line.substring(separator + 1)));
+        }
+
+        try (var reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(fragmentFile)), StandardCharsets.UTF_8))) {
+            dxfWriter.writeFragment(reader);
+        }
+        return Optional.of(layerCounts);
+    }
+
+    /**
+     * Starts a new cache entry. The entry is only stored if {@link Entry#commit(Map)} is called before the entry is closed.
+     * @param key The key of the cache entry.
+     * @return The new entry.
+     * @throws IOException If the entry could not be created.
+     */
+    public Entry createEntry(String key) throws IOException {
+        Files.createDirectories(directory);
+        return new Entry(key, Files.createTempFile(directory, key, ".tmp"));
+    }
+
+    /**
+     * A cache entry that is being recorded.
+     */
+    public final class Entry implements AutoCloseable {
+        private final String key;
+        private final Path tempFile;
+        private final Writer writer;
+        private boolean committed;
+
+        private Entry(String key, Path tempFile) throws IOException {
+            this.key = key;
+            this.tempFile = tempFile;
+            this.writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(tempFile)), StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Get the writer to record the entities to.
+         */
+        public Writer writer() {
+            return writer;
+        }
+
+        /**
+         * Stores the recorded entities in the cache.
+         * @param layerCounts The number of recorded objects per layer.
+         * @throws IOException If the entry could not be stored.
+         */
+        public void commit(Map<String, Integer> layerCounts) throws IOException {
+            writer.close();
+
+            List<String> lines = new ArrayList<>(layerCounts.size());
+            layerCounts.forEach((layer, count) -> lines.add(layer + "\t" + count));
+            Path countsTempFile = Files.createTempFile(directory, key, ".tmp");
+            Files.write(countsTempFile, lines, StandardCharsets.UTF_8);
+
+            Files.move(tempFile, directory.resolve(key + FRAGMENT_EXTENSION), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(countsTempFile, directory.resolve(key + COUNTS_EXTENSION), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                writer.close();
+                Files.deleteIfExists(tempFile);
+                LOGGER.debug("Discarded incomplete cache entry {}", key);
+            }
+        }
+    }
+
+    /**
+     * Computes the SHA-256 hash of the application code, i.e. of the jar file or of all files in the class directory.
+     * Any change of the code invalidates the cache entries, also for development builds without an application version.
+     */
+    static byte[] computeCodeFingerprint() throws IOException {
+        Path codeSource;
+        try {
+            codeSource = Path.of(FragmentCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException("Failed to locate the application code.", e);
+        }
+
+        MessageDigest digest = createDigest();
+        if (Files.isDirectory(codeSource)) {
+            List<Path> files;
+            try (var paths = Files.walk(codeSource)) {
+                files = paths.filter(Files::isRegularFile).sorted().toList();
+            }
+            for (Path file : files) {
+                digest.update(codeSource.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                digest.update(Files.readAllBytes(file));
+            }
+        } else {
+            try (InputStream input = new DigestInputStream(Files.newInputStream(codeSource), digest)) {
+                input.transferTo(OutputStream.nullOutputStream());
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported.", e);
+        }
+    }
+
+    /**
+     * Holds the fingerprint of the application code, computed once when the first cache key is computed.
+     */
+    private static final class CodeFingerprint {
+        private static final byte[] VALUE;
+
+        static {
+            try {
+                VALUE = computeCodeFingerprint();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private CodeFingerprint() { }
+    }
+}
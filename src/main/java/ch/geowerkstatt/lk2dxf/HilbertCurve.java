@@ -0,0 +1,72 @@
+package ch.geowerkstatt.lk2dxf;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Maps coordinates of the LV95 extent to their position on a Hilbert curve, so that objects close to each other
+ * in space get close sort keys.
+ */
+final class HilbertCurve {
+    /**
+     * The number of bits per axis, the grid has 65536 cells per axis of about 5.5 by 3.5 meters.
+     */
+    static final int ORDER = 16;
+
+    private static final double MIN_EAST = 2_480_000;
+    private static final double MAX_EAST = 2_840_000;
+    private static final double MIN_NORTH = 1_070_000;
+    private static final double MAX_NORTH = 1_300_000;
+    private static final int CELLS = 1 << ORDER;
+
+    private HilbertCurve() {
+    }
+
+    /**
+     * Get the Hilbert index of the center of an envelope. Coordinates outside the LV95 extent are clamped to its border.
+     * @param envelope The envelope of an object.
+     * @return The index on the curve, or {@link Long#MAX_VALUE} for an empty envelope so it is sorted last.
+     */
+    static long indexOf(Envelope envelope) {
+        if (envelope.isNull()) {
+            return Long.MAX_VALUE;
+        }
+
+        int x = toCell((envelope.getMinX() + envelope.getMaxX()) / 2, MIN_EAST, MAX_EAST);
+        int y = toCell((envelope.getMinY() + envelope.getMaxY()) / 2, MIN_NORTH, MAX_NORTH);
+        return index(ORDER, x, y);
+    }
+
+    /**
+     * Get the position of a grid cell on the Hilbert curve of the specified order.
+     * @param order The number of bits per axis.
+     * @param x The column of the cell, between 0 and 2^order - 1.
+     * @param y The row of the cell, between 0 and 2^order - 1.
+     * @return The index on the curve, between 0 and 4^order - 1.
+     */
+    static long index(int order, int x, int y) {
+        int n = 1 << order;
+        long index = 0;
+        for (int s = n >> 1; s > 0; s >>= 1) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            index += (long) s * s * ((3 * rx) ^ ry);
+
+            // Rotate the quadrant so the sub-curve has the orientation of the curve of the next level
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return index;
+    }
+
+    private static int toCell(double value, double min, double max) {
+        int cell = (int) ((value - min) / (max - min) * CELLS);
+        return Math.max(0, Math.min(CELLS - 1, cell));
+    }
+}
@@ -3,6 +3,7 @@ package ch.geowerkstatt.lk2dxf;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.io.WKTReader;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,6 +12,9 @@ public record LK2DxfOptions(
         String dxfFile,
         Optional<String> perimeterWkt,
         Optional<String> logfile,
+        Optional<String> reportFile,
+        Optional<Duration> progressInterval,
+        OutputOptions outputOptions,
         boolean trace) {
 
     /**
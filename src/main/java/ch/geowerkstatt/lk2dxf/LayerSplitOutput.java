@@ -0,0 +1,191 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.geowerkstatt.lk2dxf.mapping.LayerMapping;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Writes the entities of each layer, or of each group of layers, to a separate DXF file in one pass.
+ * <p>
+ * The files are created in the output directory when the first entity of a layer group is written.
+ * The LAYER, STYLE and BLOCK tables of each file only contain the entries used by the layers of its group.
+ * Characters that are not safe in file names are replaced by {@code _}. If two groups end up with the same
+ * file name, ignoring case, the later group gets a numbered suffix.
+ */
+final class LayerSplitOutput implements AutoCloseable {
+    private static final Pattern UNSAFE_FILENAME_CHARACTERS = Pattern.compile("[^A-Za-z0-9._-]");
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private final Path directory;
+    private final OutputCompression compression;
+    private final int doublePrecision;
+    private final String comment;
+    private final Map<String, List<LayerMapping>> groupMappings = new LinkedHashMap<>();
+    private final Map<String, String> layerGroups = new HashMap<>();
+    private final Map<String, String> groupFileNames = new HashMap<>();
+    private final Map<String, Optional<DxfWriter>> layerWriters = new HashMap<>();
+    private final List<GroupFile> files = new ArrayList<>();
+
+    /**
+     * Creates a new split output. No file is written until {@link #getWriter(LayerMapping)} is called.
+     * @param directory The directory to write the DXF files to.
+     * @param layerMappings All layer mappings.
+     * @param layerGroups Maps layer names to group names. If empty, each layer is written to its own file.
+     *                    Otherwise, the entities of layers without group are skipped.
+     * @param compression The compression of the DXF files.
+     * @param doublePrecision The number of decimal places to write for double values.
+     * @param comment The comment at the beginning of the DXF files. May be {@code null}.
+     */
+    LayerSplitOutput(Path directory, Collection<LayerMapping> layerMappings, Map<String, String> layerGroups, OutputCompression compression, int doublePrecision, String comment) {
+        this.directory = directory;
+        this.compression = compression;
+        this.doublePrecision = doublePrecision;
+        this.comment = comment;
+
+        for (var mapping : layerMappings) {
+            String group = layerGroups.isEmpty() ? mapping.layer() : layerGroups.get(mapping.layer());
+            if (group != null) {
+                this.layerGroups.put(mapping.layer(), group);
+                groupMappings.computeIfAbsent(group, g -> new ArrayList<>()).add(mapping);
+            }
+        }
+
+        Set<String> usedFileNames = new HashSet<>();
+        for (String group : groupMappings.keySet()) {
+            String baseName = UNSAFE_FILENAME_CHARACTERS.matcher(group).replaceAll("_");
+            String fileName = baseName;
+            for (int i = 2; !usedFileNames.add(fileName.toLowerCase(Locale.ROOT)); i++) {
+                fileName = baseName + "_" + i;
+            }
+            if (!fileName.equals(baseName)) {
+                LOGGER.warn("Layer group \"{}\" has the same file name as another group, using \"{}\" instead.", group, fileName);
+            }
+            groupFileNames.put(group, fileName);
+        }
+
+        layerGroups.keySet().stream()
+                .filter(layer -> !this.layerGroups.containsKey(layer))
+                .forEach(layer -> LOGGER.warn("Layer \"{}\" of group \"{}\" is not defined by any layer mapping.", layer, layerGroups.get(layer)));
+    }
+
+    /**
+     * Reads the layer groups from a text file. Each line defines a group as {@code group=layer1,layer2},
+     * empty lines and lines starting with {@code #} are ignored.
+     * @param file The file to read.
+     * @return The group name of each listed layer.
+     * @throws IOException If the file could not be read or contains an invalid line.
+     */
+    static Map<String, String> readLayerGroups(Path file) throws IOException {
+        Map<String, String> layerGroups = new LinkedHashMap<>();
+        List<String> lines = Files.readAllLines(file);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            int separator = line.indexOf('=');
+            if (separator <= 0) {
+                throw new IOException("Invalid layer group in line " + (i + 1) + ", expected group=layer1,layer2.");
+            }
+            String group = line.substring(0, separator).trim();
+            for (String layer : line.substring(separator + 1).split(",")) {
+                String previousGroup = layerGroups.put(layer.trim(), group);
+                if (previousGroup != null && !previousGroup.equals(group)) {
+                    throw new IOException("Layer \"" + layer.trim() + "\" in line " + (i + 1) + " is already part of group \"" + previousGroup + "\".");
+                }
+            }
+        }
+        return layerGroups;
+    }
+
+    /**
+     * Get the writer for the entities of a layer. The DXF file of its group is created if necessary.
+     * @param mapping The layer mapping of the entity.
+     * @return The writer, or an empty optional if the layer does not belong to any group.
+     * @throws IOException If the DXF file could not be created.
+     */
+    Optional<DxfWriter> getWriter(LayerMapping mapping) throws IOException {
+        Optional<DxfWriter> writer = layerWriters.get(mapping.layer());
+        if (writer == null) {
+            String group = layerGroups.get(mapping.layer());
+            writer = group == null ? Optional.empty() : Optional.of(getGroupWriter(group));
+            layerWriters.put(mapping.layer(), writer);
+        }
+        return writer;
+    }
+
+    private DxfWriter getGroupWriter(String group) throws IOException {
+        for (var file : files) {
+            if (file.group().equals(group)) {
+                return file.dxfWriter();
+            }
+        }
+
+        Files.createDirectories(directory);
+        Path path = directory.resolve(groupFileNames.get(group) + getExtension());
+        LOGGER.info("Writing layer group \"{}\" to \"{}\"", group, path);
+        var countingWriter = new CountingWriter(Converter.openOutput(path.toString(), compression));
+        try {
+            var dxfWriter = new DxfWriter(countingWriter, doublePrecision, groupMappings.get(group), comment);
+            files.add(new GroupFile(group, countingWriter, dxfWriter));
+            return dxfWriter;
+        } catch (IOException | RuntimeException e) {
+            countingWriter.close();
+            throw e;
+        }
+    }
+
+    private String getExtension() {
+        return switch (compression) {
+            case NONE -> ".dxf";
+            case GZIP -> ".dxf.gz";
+            case ZIP -> ".zip";
+        };
+    }
+
+    /**
+     * Get the number of characters written to all DXF files so far.
+     */
+    long getWrittenCharacters() {
+        return files.stream().mapToLong(file -> file.countingWriter().getCount()).sum();
+    }
+
+    @Override
+    public void close() throws Exception {
+        Exception failure = null;
+        for (var file : files) {
+            try {
+                file.dxfWriter().close();
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private record GroupFile(String group, CountingWriter countingWriter, DxfWriter dxfWriter) {
+    }
+}
@@ -15,24 +15,43 @@ import org.apache.commons.cli.ParseException;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.appender.ConsoleAppender;
 import org.apache.logging.log4j.core.appender.FileAppender;
 import org.apache.logging.log4j.core.config.Configurator;
 import org.apache.logging.log4j.core.layout.PatternLayout;
 
 import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Stream;
+import java.util.concurrent.CountDownLatch;
 
 public final class Main {
+    private static final String OPTION_BATCH = "batch";
+    private static final String OPTION_CACHE = "cache";
+    private static final String OPTION_COMPRESS = "compress";
+    private static final String OPTION_DEDUPE = "dedupe";
+    private static final String OPTION_ENTITY_ORDER = "entity-order";
     private static final String OPTION_HELP = "help";
+    private static final String OPTION_IMPORT = "import";
+    private static final String OPTION_INDEX = "index";
+    private static final String OPTION_LAYER_GROUPS = "layer-groups";
     private static final String OPTION_LOGFILE = "logfile";
+    private static final String OPTION_MAX_JOBS = "max-jobs";
+    private static final String OPTION_OUTPUT_ROOT = "output-root";
     private static final String OPTION_PERIMETER = "perimeter";
+    private static final String OPTION_PROGRESS = "progress";
+    private static final String OPTION_REPORT = "report";
+    private static final String OPTION_SERVE = "serve";
+    private static final String OPTION_SPLIT_LAYERS = "split-layers";
+    private static final String OPTION_STRICT = "strict";
     private static final String OPTION_TRACE = "trace";
     private static final String OPTION_VERSION = "version";
 
@@ -61,89 +80,274 @@ public final class Main {
             printUsage(cliOptions);
         } else if (commandLine.hasOption(OPTION_VERSION)) {
             System.out.println(VERSION);
+        } else if (commandLine.hasOption(OPTION_BATCH)) {
+            configureLogging(commandLine.hasOption(OPTION_TRACE), Optional.ofNullable(commandLine.getOptionValue(OPTION_LOGFILE)), false);
+            if (!runBatch(commandLine)) {
+                System.exit(1);
+            }
+            logDuration(start);
+        } else if (commandLine.hasOption(OPTION_IMPORT)) {
+            configureLogging(commandLine.hasOption(OPTION_TRACE), Optional.ofNullable(commandLine.getOptionValue(OPTION_LOGFILE)), false);
+            if (!importFiles(commandLine)) {
+                System.exit(1);
+            }
+            logDuration(start);
+        } else if (commandLine.hasOption(OPTION_INDEX)) {
+            configureLogging(commandLine.hasOption(OPTION_TRACE), Optional.ofNullable(commandLine.getOptionValue(OPTION_LOGFILE)), false);
+            if (!createIndexes(commandLine.getArgList())) {
+                System.exit(1);
+            }
+            logDuration(start);
+        } else if (commandLine.hasOption(OPTION_SERVE)) {
+            configureLogging(commandLine.hasOption(OPTION_TRACE), Optional.ofNullable(commandLine.getOptionValue(OPTION_LOGFILE)), false);
+            if (!serve(commandLine)) {
+                System.exit(1);
+            }
         } else {
             Optional<LK2DxfOptions> options = parseLK2DxfOptions(commandLine);
             if (options.isEmpty()) {
                 printUsage(cliOptions);
                 System.exit(1);
             } else {
-                configureLogging(options.get());
-                if (!processFiles(options.get())) {
+                configureLogging(options.get().trace(), options.get().logfile(), Converter.STANDARD_STREAM.equals(options.get().dxfFile()));
+                LOGGER.info("Transfer files: {}", options.get().xtfFiles());
+                if (!processFiles(options.get(), commandLine)) {
                     System.exit(1);
                 }
 
-                Instant end = Instant.now();
-                Duration duration = Duration.between(start, end);
-                String formattedDuration = String.format("%02dh:%02dm:%02ds.%03dms", duration.toHours(), duration.toMinutesPart(), duration.toSecondsPart(), duration.toMillisPart());
-                LOGGER.info("Processing took {}", formattedDuration);
+                logDuration(start);
             }
         }
     }
 
+    private static void logDuration(Instant start) {
+        Instant end = Instant.now();
+        Duration duration = Duration.between(start, end);
+        String formattedDuration = String.format("%02dh:%02dm:%02ds.%03dms", duration.toHours(), duration.toMinutesPart(), duration.toSecondsPart(), duration.toMillisPart());
+        LOGGER.info("Processing took {}", formattedDuration);
+    }
+
     /**
      * Processes the input files and writes the generated DXF to the output file.
      *
      * @return {@code true} if the operation was successful, {@code false} otherwise.
      */
-    private static boolean processFiles(LK2DxfOptions options) {
+    private static boolean processFiles(LK2DxfOptions options, CommandLine commandLine) {
         Optional<Geometry> perimeter = options.parsePerimeter();
-        AtomicInteger objectCounter = new AtomicInteger();
-        Map<String, AtomicInteger> layerCounters = new HashMap<>();
+        Converter converter = createConverter(commandLine);
 
-        ObjectMapper objectMapper;
+        RunReport.resetPeakHeapUsage();
+        ConversionResult result;
         try {
-            objectMapper = new ObjectMapper();
+            result = converter.convert(options.xtfFiles(), options.dxfFile(), perimeter, options.progressInterval(), options.outputOptions());
         } catch (Exception e) {
-            throw new RuntimeException("Failed to read layer mappings.", e);
+            LOGGER.error("Failed to write DXF file: {}", options.dxfFile(), e);
+            return false;
         }
 
-        try (var dxfWriter = new DxfWriter(options.dxfFile(), 3, objectMapper.getLayerMappings(), "lk2dxf " + Main.VERSION)) {
-            for (String xtfFile : options.xtfFiles()) {
-                try (XtfStreamReader reader = new XtfStreamReader(new File(xtfFile))) {
-                    Stream<MappedObject> objects = objectMapper.mapObjects(reader.readObjects());
+        LOGGER.info("The output DXF file contains {} mapped objects", result.objectCount());
+        result.layerCounts().forEach((layer, count) -> LOGGER.info("Layer {}: {} objects", layer, count));
+        int duplicateObjects = result.files().stream().mapToInt(FileStatistics::duplicateObjects).sum();
+        if (duplicateObjects > 0) {
+            LOGGER.info("Skipped {} duplicate objects", duplicateObjects);
+        }
+        int skippedObjects = result.files().stream().mapToInt(FileStatistics::skippedObjects).sum();
+        if (skippedObjects > 0) {
+            LOGGER.info("Skipped {} objects ({} bytes) of classes not used by the layer mappings",
+                    skippedObjects, result.files().stream().mapToLong(FileStatistics::skippedBytes).sum());
+        }
 
-                    if (perimeter.isPresent()) {
-                        objects = objects.filter(o -> perimeter.get().intersects(o.geometry()));
-                    }
+        if (options.reportFile().isPresent()) {
+            try {
+                RunReport.create(VERSION, options.dxfFile(), result, RunReport.getPeakHeapUsage()).write(new File(options.reportFile().get()));
+                LOGGER.info("Report written to {}", options.reportFile().get());
+            } catch (IOException e) {
+                LOGGER.error("Failed to write report file: {}", options.reportFile().get(), e);
+                return false;
+            }
+        }
 
-                    objects.forEach(o -> {
-                        o.writeToDxf(dxfWriter);
+        return true;
+    }
 
-                        objectCounter.incrementAndGet();
-                        String layer = o.layerMapping().layer();
-                        layerCounters.computeIfAbsent(layer, k -> new AtomicInteger()).incrementAndGet();
-                    });
-                } catch (Exception e) {
-                    LOGGER.error("Failed to process file: {}", xtfFile, e);
-                    return false;
-                }
+    /**
+     * Runs all jobs of the batch manifest and logs a summary.
+     *
+     * @return {@code true} if all jobs were successful, {@code false} otherwise.
+     */
+    private static boolean runBatch(CommandLine commandLine) {
+        String manifest = commandLine.getOptionValue(OPTION_BATCH);
+        int parallelism;
+        List<ConversionJob> jobs;
+        try {
+            parallelism = getMaxJobs(commandLine);
+            jobs = BatchRunner.readManifest(new File(manifest));
+        } catch (NumberFormatException e) {
+            LOGGER.error("Invalid number: {}", e.getMessage());
+            return false;
+        } catch (IOException e) {
+            LOGGER.error("Failed to read batch manifest: {}", manifest, e);
+            return false;
+        }
+
+        LOGGER.info("Running {} jobs of batch manifest \"{}\" with {} workers", jobs.size(), manifest, parallelism);
+        Converter converter = createConverter(commandLine);
+        List<BatchRunner.BatchJobResult> results;
+        try {
+            results = new BatchRunner(converter, parallelism).run(jobs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Batch was interrupted.");
+            return false;
+        }
+
+        BatchRunner.logSummary(results);
+        return results.stream().allMatch(BatchRunner.BatchJobResult::isSuccessful);
+    }
+
+    /**
+     * Writes the spatial index of each transfer file next to it.
+     *
+     * @return {@code true} if all indexes were written, {@code false} otherwise.
+     */
+    private static boolean createIndexes(List<String> xtfFiles) {
+        if (xtfFiles.isEmpty()) {
+            LOGGER.error("No transfer files to index.");
+            return false;
+        }
+
+        boolean success = true;
+        for (String xtfFile : xtfFiles) {
+            try {
+                SpatialIndex.create(new File(xtfFile));
+                LOGGER.info("Spatial index written to {}", SpatialIndex.getSidecarFile(new File(xtfFile)));
+            } catch (Exception e) {
+                LOGGER.error("Failed to index file: {}", xtfFile, e);
+                success = false;
             }
+        }
+        return success;
+    }
+
+    /**
+     * Maps the objects of the transfer files and writes them to the store of the import option.
+     *
+     * @return {@code true} if the store was written, {@code false} otherwise.
+     */
+    private static boolean importFiles(CommandLine commandLine) {
+        String storeFile = commandLine.getOptionValue(OPTION_IMPORT);
+        List<String> xtfFiles = commandLine.getArgList();
+        if (xtfFiles.isEmpty()) {
+            LOGGER.error("No transfer files to import.");
+            return false;
+        }
+        if (!MappedObjectStore.isStore(new File(storeFile))) {
+            LOGGER.error("The store file must have the extension {}.", MappedObjectStore.EXTENSION);
+            return false;
+        }
+
+        LOGGER.info("Transfer files: {}", xtfFiles);
+        ConversionResult result;
+        try {
+            result = createConverter(commandLine).importFiles(xtfFiles, storeFile);
         } catch (Exception e) {
-            LOGGER.error("Failed to write DXF file: {}", options.dxfFile(), e);
+            LOGGER.error("Failed to write store: {}", storeFile, e);
             return false;
         }
 
-        LOGGER.info("The output DXF file contains {} mapped objects", objectCounter.get());
-        layerCounters.entrySet()
-                .stream()
-                .sorted(Map.Entry.comparingByKey())
-                .forEach(entry -> LOGGER.info("Layer {}: {} objects", entry.getKey(), entry.getValue().get()));
+        LOGGER.info("Stored {} mapped objects in {}", result.objectCount(), storeFile);
+        return true;
+    }
+
+    private static Converter createConverter(CommandLine commandLine) {
+        Optional<String> cacheDirectory = Optional.ofNullable(commandLine.getOptionValue(OPTION_CACHE));
+        cacheDirectory.ifPresent(directory -> LOGGER.info("Using conversion cache in \"{}\"", directory));
+        Optional<FragmentCache> fragmentCache = cacheDirectory.map(directory -> new FragmentCache(Path.of(directory)));
+        return new Converter(createObjectMapper(), "lk2dxf " + Main.VERSION, fragmentCache, commandLine.hasOption(OPTION_STRICT));
+    }
+
+    private static int getMaxJobs(CommandLine commandLine) {
+        return Integer.parseInt(commandLine.getOptionValue(OPTION_MAX_JOBS, String.valueOf(Runtime.getRuntime().availableProcessors())));
+    }
+
+    /**
+     * Runs the conversion server until the application is terminated.
+     *
+     * @return {@code true} if the server was shut down regularly, {@code false} if it could not be started.
+     */
+    private static boolean serve(CommandLine commandLine) {
+        int port;
+        int maxJobs;
+        try {
+            port = Integer.parseInt(commandLine.getOptionValue(OPTION_SERVE));
+            maxJobs = getMaxJobs(commandLine);
+        } catch (NumberFormatException e) {
+            LOGGER.error("Invalid number: {}", e.getMessage());
+            return false;
+        }
+
+        Converter converter = createConverter(commandLine);
+        CountDownLatch stopped = new CountDownLatch(1);
+        try {
+            Path outputRoot = Path.of(commandLine.getOptionValue(OPTION_OUTPUT_ROOT, "."));
+            ConversionServer server = new ConversionServer(converter, new InetSocketAddress(InetAddress.getLoopbackAddress(), port), maxJobs, outputRoot);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                stopped.countDown();
+            }));
+            server.start();
+            LOGGER.info("Accepting conversion jobs on http://{}:{}/convert with at most {} concurrent conversions, writing to \"{}\"",
+                    server.getAddress().getHostString(), server.getAddress().getPort(), maxJobs, outputRoot.toAbsolutePath().normalize());
+            stopped.await();
+        } catch (IOException e) {
+            LOGGER.error("Failed to start the conversion server on port {}", port, e);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
 
         return true;
     }
 
-    private static void configureLogging(LK2DxfOptions lk2DxfOptions) {
-        Level logLevel = lk2DxfOptions.trace() ? Level.TRACE : Level.INFO;
+    private static ObjectMapper createObjectMapper() {
+        try {
+            return new ObjectMapper();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to read layer mappings.", e);
+        }
+    }
+
+    /**
+     * Configures the log level and the log file.
+     *
+     * @param consoleToStderr {@code true} to log to the standard error instead of the standard output, which is used for the DXF output.
+     */
+    private static void configureLogging(boolean trace, Optional<String> logfile, boolean consoleToStderr) {
+        Level logLevel = trace ? Level.TRACE : Level.INFO;
         Configurator.setRootLevel(logLevel);
+        var layout = PatternLayout.newBuilder()
+                .withPattern("%d{HH:mm:ss.SSS} [%t] %-5level %logger{36} - %msg%n")
+                .build();
 
-        if (lk2DxfOptions.logfile().isPresent()) {
-            var layout = PatternLayout.newBuilder()
-                    .withPattern("%d{HH:mm:ss.SSS} [%t] %-5level %logger{36} - %msg%n")
+        if (consoleToStderr) {
+            var rootLogger = (org.apache.logging.log4j.core.Logger) LogManager.getRootLogger();
+            var rootConfig = rootLogger.get();
+            List.copyOf(rootConfig.getAppenders().keySet()).forEach(rootConfig::removeAppender);
+            var consoleAppender = ConsoleAppender.newBuilder()
+                    .setName("Stderr")
+                    .setLayout(layout)
+                    .setTarget(ConsoleAppender.Target.SYSTEM_ERR)
                     .build();
+            consoleAppender.start();
+            rootConfig.addAppender(consoleAppender, logLevel, null);
+            rootLogger.getContext().updateLoggers();
+        }
+
+        if (logfile.isPresent()) {
             var fileAppender = FileAppender.newBuilder()
                     .setName("Logfile")
                     .setLayout(layout)
-                    .withFileName(lk2DxfOptions.logfile().get())
+                    .withFileName(logfile.get())
                     .withAppend(false)
                     .build();
             var rootLogger = (org.apache.logging.log4j.core.Logger) LogManager.getRootLogger();
@@ -157,7 +361,6 @@ public final class Main {
         LOGGER.info("lk2dxf version {}", VERSION);
         LOGGER.info("ili2c version {}", TransferDescription.getVersion());
         LOGGER.info("iox-ili version {}", IoxUtility.getVersion());
-        LOGGER.info("Transfer files: {}", lk2DxfOptions.xtfFiles());
     }
 
     private static CommandLine parseCommandLine(Options options, String[] args) {
@@ -174,7 +377,12 @@ public final class Main {
     private static void printUsage(Options options) {
         HelpFormatter formatter = new HelpFormatter();
         formatter.setWidth(100);
-        formatter.printHelp("java -jar lk2dxf.jar [options] input.xtf [input2.xtf ...] output.dxf", options);
+        formatter.printHelp("java -jar lk2dxf.jar [options] input.xtf [input2.xtf ...] output.dxf\n"
+                + "       (use - as input or output to read from stdin or write to stdout)\n"
+                + "       java -jar lk2dxf.jar --batch <manifest.json> [options]\n"
+                + "       java -jar lk2dxf.jar --import <store.lkstore> input.xtf [input2.xtf ...]\n"
+                + "       java -jar lk2dxf.jar --index input.xtf [input2.xtf ...]\n"
+                + "       java -jar lk2dxf.jar --serve <port> [options]", options);
     }
 
     private static Optional<LK2DxfOptions> parseLK2DxfOptions(CommandLine commandLine) {
@@ -184,30 +392,165 @@ public final class Main {
         }
 
         String dxfFile = remainingArgs.removeLast();
+        if (remainingArgs.stream().filter(Converter.STANDARD_STREAM::equals).count() > 1) {
+            LOGGER.error("The standard input can only be read once.");
+            return Optional.empty();
+        }
         Optional<String> perimeterWkt = Optional.ofNullable(commandLine.getOptionValue(OPTION_PERIMETER));
         Optional<String> logfile = Optional.ofNullable(commandLine.getOptionValue(OPTION_LOGFILE));
+        Optional<String> reportFile = Optional.ofNullable(commandLine.getOptionValue(OPTION_REPORT));
         boolean trace = commandLine.hasOption(OPTION_TRACE);
 
-        return Optional.of(new LK2DxfOptions(remainingArgs, dxfFile, perimeterWkt, logfile, trace));
+        Optional<Duration> progressInterval;
+        try {
+            progressInterval = Optional.ofNullable(commandLine.getOptionValue(OPTION_PROGRESS)).map(Integer::parseInt).map(Duration::ofSeconds);
+        } catch (NumberFormatException e) {
+            LOGGER.error("Invalid number: {}", e.getMessage());
+            return Optional.empty();
+        }
+        if (progressInterval.isPresent() && (progressInterval.get().isNegative() || progressInterval.get().isZero())) {
+            LOGGER.error("The progress interval must be at least one second.");
+            return Optional.empty();
+        }
+
+        OutputCompression compression;
+        try {
+            compression = OutputCompression.valueOf(commandLine.getOptionValue(OPTION_COMPRESS, OutputCompression.NONE.name()).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Unsupported compression: {}", commandLine.getOptionValue(OPTION_COMPRESS));
+            return Optional.empty();
+        }
+
+        boolean splitLayers = commandLine.hasOption(OPTION_SPLIT_LAYERS) || commandLine.hasOption(OPTION_LAYER_GROUPS);
+        if (splitLayers && Converter.STANDARD_STREAM.equals(dxfFile)) {
+            LOGGER.error("Split output cannot be written to the standard output.");
+            return Optional.empty();
+        }
+        Map<String, String> layerGroups = Map.of();
+        if (commandLine.hasOption(OPTION_LAYER_GROUPS)) {
+            try {
+                layerGroups = LayerSplitOutput.readLayerGroups(Path.of(commandLine.getOptionValue(OPTION_LAYER_GROUPS)));
+            } catch (IOException e) {
+                LOGGER.error("Failed to read layer groups: {}", e.getMessage());
+                return Optional.empty();
+            }
+        }
+
+        EntityOrder entityOrder;
+        try {
+            entityOrder = EntityOrder.valueOf(commandLine.getOptionValue(OPTION_ENTITY_ORDER, EntityOrder.INPUT.name()).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Unsupported entity order: {}", commandLine.getOptionValue(OPTION_ENTITY_ORDER));
+            return Optional.empty();
+        }
+        if (splitLayers && entityOrder != EntityOrder.INPUT) {
+            LOGGER.error("The entity order cannot be changed for split output.");
+            return Optional.empty();
+        }
+
+        var outputOptions = new OutputOptions(compression, splitLayers, layerGroups, entityOrder, commandLine.hasOption(OPTION_DEDUPE));
+        return Optional.of(new LK2DxfOptions(remainingArgs, dxfFile, perimeterWkt, logfile, reportFile, progressInterval, outputOptions, trace));
     }
 
     private static Options createCliOptions() {
+        Option batch = Option.builder()
+                .longOpt(OPTION_BATCH)
+                .desc("run all conversion jobs of the JSON manifest file")
+                .argName("file")
+                .hasArg()
+                .build();
+        Option cache = Option.builder()
+                .longOpt(OPTION_CACHE)
+                .desc("directory to cache the converted entities of each input file, unchanged files are not converted again")
+                .argName("dir")
+                .hasArg()
+                .build();
+        Option compress = Option.builder()
+                .longOpt(OPTION_COMPRESS)
+                .desc("compress the DXF file with gzip or as single entry of a zip archive (none, gzip or zip)")
+                .argName("format")
+                .hasArg()
+                .build();
+        Option dedupe = Option.builder()
+                .longOpt(OPTION_DEDUPE)
+                .desc("skip objects whose OID was already written for a previous input file")
+                .build();
+        Option entityOrder = Option.builder()
+                .longOpt(OPTION_ENTITY_ORDER)
+                .desc("order of the written entities: input (default), layer or hilbert")
+                .argName("order")
+                .hasArg()
+                .build();
         Option help = Option.builder("h")
                 .longOpt(OPTION_HELP)
                 .desc("print this help message")
                 .build();
+        Option importStore = Option.builder()
+                .longOpt(OPTION_IMPORT)
+                .desc("map the objects of the input files once and write them to a store, which can then be converted like an input file without parsing the transfer files again")
+                .argName("file")
+                .hasArg()
+                .build();
+        Option index = Option.builder()
+                .longOpt(OPTION_INDEX)
+                .desc("write a spatial index next to each input file, perimeter extracts then read only the objects within the perimeter")
+                .build();
+        Option layerGroups = Option.builder()
+                .longOpt(OPTION_LAYER_GROUPS)
+                .desc("split the output into one DXF file per layer group defined in the file, implies --split-layers")
+                .argName("file")
+                .hasArg()
+                .build();
         Option logfile = Option.builder()
                 .longOpt(OPTION_LOGFILE)
                 .desc("path to the log file")
                 .argName("file")
                 .hasArg()
                 .build();
+        Option maxJobs = Option.builder()
+                .longOpt(OPTION_MAX_JOBS)
+                .desc("maximum number of conversions running at the same time in batch and server mode (default: number of processors)")
+                .argName("count")
+                .hasArg()
+                .build();
+        Option outputRoot = Option.builder()
+                .longOpt(OPTION_OUTPUT_ROOT)
+                .desc("directory the server writes the output files to, output paths outside of it are rejected (default: working directory)")
+                .argName("dir")
+                .hasArg()
+                .build();
         Option perimeter = Option.builder()
                 .longOpt(OPTION_PERIMETER)
                 .desc("exclude all objects whose geometry is fully outside the specified perimeter")
                 .argName("wkt")
                 .hasArg()
                 .build();
+        Option progress = Option.builder()
+                .longOpt(OPTION_PROGRESS)
+                .desc("log the progress with throughput and estimated remaining time at the specified interval")
+                .argName("seconds")
+                .hasArg()
+                .build();
+        Option report = Option.builder()
+                .longOpt(OPTION_REPORT)
+                .desc("write a JSON report with the timing and throughput of each input file")
+                .argName("file")
+                .hasArg()
+                .build();
+        Option serve = Option.builder()
+                .longOpt(OPTION_SERVE)
+                .desc("run as server accepting conversion jobs on the specified local port")
+                .argName("port")
+                .hasArg()
+                .build();
+        Option splitLayers = Option.builder()
+                .longOpt(OPTION_SPLIT_LAYERS)
+                .desc("write one DXF file per layer to the output directory")
+                .build();
+        Option strict = Option.builder()
+                .longOpt(OPTION_STRICT)
+                .desc("read the transfer files with the complete iox-ili reader instead of the faster streaming parser")
+                .build();
         Option trace = Option.builder()
                 .longOpt(OPTION_TRACE)
                 .desc("enable trace logging")
@@ -218,9 +561,24 @@ public final class Main {
                 .build();
 
         Options options = new Options();
+        options.addOption(batch);
+        options.addOption(cache);
+        options.addOption(compress);
+        options.addOption(dedupe);
+        options.addOption(entityOrder);
         options.addOption(help);
+        options.addOption(importStore);
+        options.addOption(index);
+        options.addOption(layerGroups);
         options.addOption(logfile);
+        options.addOption(maxJobs);
+        options.addOption(outputRoot);
         options.addOption(perimeter);
+        options.addOption(progress);
+        options.addOption(report);
+        options.addOption(serve);
+        options.addOption(splitLayers);
+        options.addOption(strict);
         options.addOption(trace);
         options.addOption(version);
         return options;
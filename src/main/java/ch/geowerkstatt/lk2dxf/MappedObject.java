@@ -7,20 +7,20 @@ import ch.interlis.iox.IoxException;
 import ch.interlis.iox_j.jts.Iox2jtsext;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
 
 public record MappedObject(
         String oid,
         Geometry geometry,
         IomObject iomGeometry,
+        PolylineBuffer vertices,
         double orientation,
         String vAlign,
         String hAlign,
         String text,
         LayerMapping layerMapping) {
     private static final GeometryFactory GEOMETRY_FACTORY = new JtsextGeometryFactory();
-    private static final Logger LOGGER = LogManager.getLogger();
 
     /**
      * Creates a new {@link MappedObject} that contains all information to process the object further.
@@ -28,7 +28,17 @@ public record MappedObject(
      * @throws RuntimeException If an error occurs while extracting the geometry.
      */
     public MappedObject(String oid, IomObject iomGeometry, Double orientation, String vAlign, String hAlign, String text, LayerMapping layerMapping) {
-        this(oid, constructGeometry(iomGeometry, layerMapping.output(), oid), iomGeometry, orientation == null ? 90 : orientation, vAlign, hAlign, text, layerMapping);
+        this(oid, constructGeometry(iomGeometry, layerMapping.output(), oid), iomGeometry, null, orientation == null ? 90 : orientation, vAlign, hAlign, text, layerMapping);
+    }
+
+    /**
+     * Creates a new {@link MappedObject} whose entities are written from already parsed vertices.
+     * The JTS geometry is only created if {@code iomGeometry} is present, otherwise {@link #geometry()} is {@code null}.
+     *
+     * @throws RuntimeException If an error occurs while extracting the geometry.
+     */
+    MappedObject(String oid, PolylineBuffer vertices, IomObject iomGeometry, double orientation, String vAlign, String hAlign, String text, LayerMapping layerMapping) {
+        this(oid, iomGeometry == null ? null : constructGeometry(iomGeometry, layerMapping.output(), oid), iomGeometry, vertices, orientation, vAlign, hAlign, text, layerMapping);
     }
 
     private static Geometry constructGeometry(IomObject iomGeometry, LayerMapping.OutputType outputType, String oid) {
@@ -45,24 +55,39 @@ public record MappedObject(
 
     /**
      * Writes the object to a DXF file using the provided {@link DxfWriter}.
+     *
+     * @throws IOException If an error occurs while writing the DXF file.
+     * @throws RuntimeException If the object could not be written, e.g. because it has no or an invalid geometry.
      */
-    public void writeToDxf(DxfWriter dxfWriter) {
-        try {
-            if (iomGeometry == null) {
-                throw new IllegalStateException("Cannot write object to dxf without geometry.");
-            }
+    public void writeToDxf(DxfWriter dxfWriter) throws IOException {
+        if (vertices != null) {
+            writeVerticesToDxf(dxfWriter);
+            return;
+        }
+        if (iomGeometry == null) {
+            throw new IllegalStateException("Cannot write object to dxf without geometry.");
+        }
+
+        switch (layerMapping().output()) {
+            case SURFACE -> dxfWriter.writeHatch(layerMapping().layer(), iomGeometry);
+            case LINE -> dxfWriter.writeLwPolyline(layerMapping().layer(), iomGeometry);
+            case POINT ->
+                    dxfWriter.writeBlockInsert(layerMapping().layer(), layerMapping().symbol(), orientation, iomGeometry);
+            case TEXT ->
+                    dxfWriter.writeText(layerMapping().layer(), layerMapping().font(), text, hAlign, vAlign, orientation, layerMapping().textsize(), iomGeometry);
+            default -> throw new AssertionError("Unknown output type: " + layerMapping().output());
+        }
+    }
 
-            switch (layerMapping().output()) {
-                case SURFACE -> dxfWriter.writeHatch(layerMapping().layer(), iomGeometry);
-                case LINE -> dxfWriter.writeLwPolyline(layerMapping().layer(), iomGeometry);
-                case POINT ->
-                        dxfWriter.writeBlockInsert(layerMapping().layer(), layerMapping().symbol(), orientation, iomGeometry);
-                case TEXT ->
-                        dxfWriter.writeText(layerMapping().layer(), layerMapping().font(), text, hAlign, vAlign, orientation, layerMapping().textsize(), iomGeometry);
-                default -> throw new AssertionError("Unknown output type: " + layerMapping().output());
-            }
-        } catch (Exception e) {
-            LOGGER.error("Failed to write object: {} to dxf.", oid(), e);
+    private void writeVerticesToDxf(DxfWriter dxfWriter) throws IOException {
+        switch (layerMapping().output()) {
+            case SURFACE -> dxfWriter.writeHatch(layerMapping().layer(), vertices);
+            case LINE -> dxfWriter.writeLwPolyline(layerMapping().layer(), vertices);
+            case POINT ->
+                    dxfWriter.writeBlockInsert(layerMapping().layer(), layerMapping().symbol(), orientation, vertices);
+            case TEXT ->
+                    dxfWriter.writeText(layerMapping().layer(), layerMapping().font(), text, hAlign, vAlign, orientation, layerMapping().textsize(), vertices);
+            default -> throw new AssertionError("Unknown output type: " + layerMapping().output());
         }
     }
 }
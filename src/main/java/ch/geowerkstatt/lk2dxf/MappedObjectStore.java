@@ -0,0 +1,569 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.geowerkstatt.lk2dxf.mapping.LayerMapping;
+import ch.geowerkstatt.lk2dxf.mapping.ObjectMapper;
+import ch.interlis.iom.IomObject;
+import ch.interlis.iom_j.Iom_jObject;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A binary file of mapped objects, which can be converted to DXF again without reading the transfer files.
+ * <p>
+ * The file starts with a header containing a fingerprint of the layer mappings, followed by one length-prefixed record per object:
+ * the index of the layer mapping, the OID, the orientation, the alignments, the text and the coordinates of the geometry.
+ * Each vertex of a polyline is stored with the arc point of the segment ending at the vertex, see {@link PolylineBuffer}.
+ * The records are read from a memory-mapped window of the file and the vertices are copied into a {@link PolylineBuffer} per object,
+ * which the {@link DxfWriter} writes without parsing any XML or attribute values.
+ * A store is only valid for the layer mappings it was created with, other mappings are rejected when the store is opened.
+ */
+public final class MappedObjectStore implements AutoCloseable {
+    /**
+     * The file extension of stores, input files with this extension are read as store instead of as transfer file.
+     */
+    public static final String EXTENSION = ".lkstore";
+
+    private static final int MAGIC = 0x4C4B5354;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 32 + 4;
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final int NO_GEOMETRY = -1;
+    private static final int SURFACE_VERTICES = 32;
+
+    private final FileChannel channel;
+    private final List<LayerMapping> layerMappings;
+    private final int objectCount;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private volatile long bytesRead;
+    private boolean reading;
+
+    private MappedObjectStore(FileChannel channel, List<LayerMapping> layerMappings, int objectCount) {
+        this.channel = channel;
+        this.layerMappings = layerMappings;
+        this.objectCount = objectCount;
+        this.bytesRead = HEADER_SIZE;
+    }
+
+    /**
+     * Checks whether an input file is a store, based on its extension.
+     */
+    public static boolean isStore(File file) {
+        return file.getName().endsWith(EXTENSION);
+    }
+
+    /**
+     * Opens a store for reading.
+     * @param storeFile The store to read.
+     * @param objectMapper The object mapper whose layer mappings are assigned to the read objects.
+     * @return The opened store.
+     * @throws IOException If the file could not be read, is not a store or was created with other layer mappings.
+     */
+    public static MappedObjectStore open(File storeFile, ObjectMapper objectMapper) throws IOException {
+        FileChannel channel = FileChannel.open(storeFile.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            int read;
+            do {
+                read = channel.read(header);
+            } while (read >= 0 && header.hasRemaining());
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+                throw new IOException("The file \"" + storeFile + "\" is not a store of mapped objects.");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("The store \"" + storeFile + "\" has the unsupported version " + version + ", import the transfer files again.");
+            }
+            byte[] fingerprint = new byte[32];
+            header.get(fingerprint);
+            if (!MessageDigest.isEqual(fingerprint, computeFingerprint(objectMapper.getLayerMappings()))) {
+                throw new IOException("The store \"" + storeFile + "\" was created with different layer mappings, import the transfer files again.");
+            }
+            return new MappedObjectStore(channel, objectMapper.getLayerMappings(), header.getInt());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a new store. The file is only replaced if {@link Writer#commit()} is called before the writer is closed.
+     * @param storeFile The store to write.
+     * @param objectMapper The object mapper whose layer mappings are referenced by the written objects.
+     * @return The writer of the new store.
+     * @throws IOException If the store could not be created.
+     */
+    public static Writer create(File storeFile, ObjectMapper objectMapper) throws IOException {
+        Path target = storeFile.getAbsoluteFile().toPath();
+        return new Writer(target, Files.createTempFile(target.getParent(), storeFile.getName(), ".tmp"), objectMapper.getLayerMappings());
+    }
+
+    /**
+     * Get the number of objects in the store.
+     */
+    public int getObjectCount() {
+        return objectCount;
+    }
+
+    /**
+     * Get the number of bytes read from the store so far. May be called from any thread.
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Reads the objects as a sequential stream.
+     * @param withGeometry Whether to create the JTS {@link MappedObject#geometry()}, which is needed to filter or sort the objects spatially.
+     *                     Creating it requires the INTERLIS geometry, so it is only done if requested.
+     * @return A stream of the objects in the order they were written.
+     * @throws IllegalStateException If this method is called more than once.
+     */
+    public Stream<MappedObject> readObjects(boolean withGeometry) {
+        if (reading) {
+            throw new IllegalStateException("readObjects() can only be called once");
+        }
+        reading = true;
+
+        return StreamSupport.stream(new StoreSpliterator(withGeometry), false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    /**
+     * Computes the SHA-256 hash of the layer mappings, which identifies the mappings a store was created with.
+     */
+    private static byte[] computeFingerprint(List<LayerMapping> layerMappings) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(VERSION).getBytes(StandardCharsets.UTF_8));
+            digest.update(layerMappings.toString().getBytes(StandardCharsets.UTF_8));
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported.", e);
+        }
+    }
+
+    /**
+     * Maps the window containing the complete record at the specified position.
+     * @return The window positioned at the record.
+     */
+    private MappedByteBuffer mapRecord(long position) throws IOException {
+        if (window == null || position < windowStart || position + Integer.BYTES > windowStart + window.limit()) {
+            mapWindow(position, Integer.BYTES);
+        }
+        window.position((int) (position - windowStart));
+        int length = window.getInt(window.position());
+        if (position + Integer.BYTES + length > windowStart + window.limit()) {
+            mapWindow(position, Integer.BYTES + length);
+        }
+        window.position((int) (position - windowStart) + Integer.BYTES);
+        return window;
+    }
+
+    private void mapWindow(long position, int minSize) throws IOException {
+        long size = Math.min(Math.max(WINDOW_SIZE, minSize), channel.size() - position);
+        if (size < minSize) {
+            throw new IOException("Unexpected end of the store.");
+        }
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        windowStart = position;
+    }
+
+    private MappedObject readObject(ByteBuffer buffer, boolean withGeometry) {
+        LayerMapping layerMapping = layerMappings.get(buffer.getInt());
+        String oid = getString(buffer);
+        double orientation = buffer.getDouble();
+        String vAlign = getString(buffer);
+        String hAlign = getString(buffer);
+        String text = getString(buffer);
+        PolylineBuffer vertices = switch (layerMapping.output()) {
+            case TEXT, POINT -> getCoord(buffer);
+            case LINE -> getPolyline(buffer);
+            case SURFACE -> getMultiSurface(buffer);
+        };
+        IomObject geometry = withGeometry && vertices != null ? toIomGeometry(vertices, layerMapping.output()) : null;
+        return new MappedObject(oid, vertices, geometry, orientation, vAlign, hAlign, text, layerMapping);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static PolylineBuffer getCoord(ByteBuffer buffer) {
+        double x = buffer.getDouble();
+        if (Double.isNaN(x)) {
+            return null;
+        }
+
+        var vertices = new PolylineBuffer(1, 1);
+        vertices.addVertex(x, buffer.getDouble(), Double.NaN, Double.NaN);
+        vertices.endPart(false);
+        return vertices;
+    }
+
+    private static PolylineBuffer getPolyline(ByteBuffer buffer) {
+        int vertexCount = buffer.getInt();
+        if (vertexCount == NO_GEOMETRY) {
+            return null;
+        }
+
+        var vertices = new PolylineBuffer(vertexCount, 1);
+        addVertices(buffer, vertexCount, vertices);
+        vertices.endPart(false);
+        return vertices;
+    }
+
+    private static PolylineBuffer getMultiSurface(ByteBuffer buffer) {
+        int surfaceCount = buffer.getInt();
+        if (surfaceCount == NO_GEOMETRY) {
+            return null;
+        }
+
+        var vertices = new PolylineBuffer(SURFACE_VERTICES, surfaceCount);
+        for (int i = 0; i < surfaceCount; i++) {
+            int boundaryCount = buffer.getInt();
+            for (int j = 0; j < boundaryCount; j++) {
+                addVertices(buffer, buffer.getInt(), vertices);
+                vertices.endPart(j == 0);
+            }
+        }
+        return vertices;
+    }
+
+    private static void addVertices(ByteBuffer buffer, int vertexCount, PolylineBuffer vertices) {
+        for (int i = 0; i < vertexCount; i++) {
+            vertices.addVertex(buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+        }
+    }
+
+    /**
+     * Recreates the INTERLIS geometry of stored vertices, which is only needed to create the JTS geometry.
+     */
+    private static IomObject toIomGeometry(PolylineBuffer vertices, LayerMapping.OutputType outputType) {
+        return switch (outputType) {
+            case TEXT, POINT -> {
+                IomObject coord = new Iom_jObject("COORD", null);
+                coord.setattrvalue("C1", Double.toString(vertices.getX(0)));
+                coord.setattrvalue("C2", Double.toString(vertices.getY(0)));
+                yield coord;
+            }
+            case LINE -> toIomPolyline(vertices, 0);
+            case SURFACE -> {
+                IomObject multiSurface = new Iom_jObject("MULTISURFACE", null);
+                IomObject surface = null;
+                for (int part = 0; part < vertices.getPartCount(); part++) {
+                    if (surface == null || vertices.isExterior(part)) {
+                        surface = new Iom_jObject("SURFACE", null);
+                        multiSurface.addattrobj("surface", surface);
+                    }
+                    IomObject boundary = new Iom_jObject("BOUNDARY", null);
+                    boundary.addattrobj("polyline", toIomPolyline(vertices, part));
+                    surface.addattrobj("boundary", boundary);
+                }
+                yield multiSurface;
+            }
+        };
+    }
+
+    private static IomObject toIomPolyline(PolylineBuffer vertices, int part) {
+        IomObject sequence = new Iom_jObject("SEGMENTS", null);
+        for (int i = vertices.getPartStart(part); i < vertices.getPartEnd(part); i++) {
+            boolean isArc = !Double.isNaN(vertices.getArcX(i));
+            IomObject segment = new Iom_jObject(isArc ? "ARC" : "COORD", null);
+            segment.setattrvalue("C1", Double.toString(vertices.getX(i)));
+            segment.setattrvalue("C2", Double.toString(vertices.getY(i)));
+            if (isArc) {
+                segment.setattrvalue("A1", Double.toString(vertices.getArcX(i)));
+                segment.setattrvalue("A2", Double.toString(vertices.getArcY(i)));
+            }
+            sequence.addattrobj("segment", segment);
+        }
+
+        IomObject polyline = new Iom_jObject("POLYLINE", null);
+        polyline.addattrobj("sequence", sequence);
+        return polyline;
+    }
+
+    /**
+     * Writes the objects of a new store to a temporary file, which replaces the store when it is committed.
+     */
+    public static final class Writer implements AutoCloseable {
+        private final Path target;
+        private final Path tempFile;
+        private final FileChannel channel;
+        private final DataOutputStream output;
+        private final DataOutputStream record;
+        private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(1 << 12);
+        private final Map<LayerMapping, Integer> layerIndexes = new HashMap<>();
+        private int objectCount;
+        private long writtenBytes = HEADER_SIZE;
+        private boolean committed;
+
+        private Writer(Path target, Path tempFile, List<LayerMapping> layerMappings) throws IOException {
+            this.target = target;
+            this.tempFile = tempFile;
+            this.channel = FileChannel.open(tempFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            this.record = new DataOutputStream(recordBuffer);
+            for (int i = 0; i < layerMappings.size(); i++) {
+                layerIndexes.putIfAbsent(layerMappings.get(i), i);
+            }
+
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.write(computeFingerprint(layerMappings));
+            output.writeInt(0); // the object count is written on commit
+        }
+
+        /**
+         * Get the number of bytes written so far.
+         */
+        public long getWrittenBytes() {
+            return writtenBytes;
+        }
+
+        /**
+         * Appends an object to the store.
+         * @param object The mapped object.
+         * @throws IOException If the object could not be written.
+         * @throws IllegalArgumentException If the layer mapping of the object is not one of the mappings of the store.
+         */
+        public void add(MappedObject object) throws IOException {
+            Integer layerIndex = layerIndexes.get(object.layerMapping());
+            if (layerIndex == null) {
+                throw new IllegalArgumentException("Unknown layer mapping of object with id \"" + object.oid() + "\".");
+            }
+
+            recordBuffer.reset();
+            record.writeInt(layerIndex);
+            writeString(object.oid());
+            record.writeDouble(object.orientation());
+            writeString(object.vAlign());
+            writeString(object.hAlign());
+            writeString(object.text());
+            if (object.vertices() != null) {
+                writeVertices(object.vertices(), object.layerMapping().output());
+            } else {
+                IomObject geometry = object.iomGeometry();
+                switch (object.layerMapping().output()) {
+                    case TEXT, POINT -> writeCoord(geometry);
+                    case LINE -> writePolyline(geometry);
+                    case SURFACE -> writeMultiSurface(geometry);
+                    default -> throw new AssertionError("Unknown output type: " + object.layerMapping().output());
+                }
+            }
+            record.flush();
+
+            output.writeInt(recordBuffer.size());
+            recordBuffer.writeTo(output);
+            writtenBytes += Integer.BYTES + recordBuffer.size();
+            objectCount++;
+        }
+
+        /**
+         * Completes the store and replaces the target file.
+         * @throws IOException If the store could not be written.
+         */
+        public void commit() throws IOException {
+            output.flush();
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, objectCount), HEADER_SIZE - Integer.BYTES);
+            output.close();
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                output.close();
+                Files.deleteIfExists(tempFile);
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                record.writeInt(-1);
+                return;
+            }
+
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            record.writeInt(bytes.length);
+            record.write(bytes);
+        }
+
+        private void writeCoord(IomObject coord) throws IOException {
+            if (coord == null) {
+                record.writeDouble(Double.NaN);
+                return;
+            }
+
+            record.writeDouble(Double.parseDouble(coord.getattrvalue("C1")));
+            record.writeDouble(Double.parseDouble(coord.getattrvalue("C2")));
+        }
+
+        private void writePolyline(IomObject polyline) throws IOException {
+            if (polyline == null) {
+                record.writeInt(NO_GEOMETRY);
+                return;
+            }
+
+            var segments = polyline.getattrobj("sequence", 0);
+            int segmentCount = segments.getattrvaluecount("segment");
+            record.writeInt(segmentCount);
+            for (int i = 0; i < segmentCount; i++) {
+                var segment = segments.getattrobj("segment", i);
+                record.writeDouble(Double.parseDouble(segment.getattrvalue("C1")));
+                record.writeDouble(Double.parseDouble(segment.getattrvalue("C2")));
+                if (i > 0 && segment.getobjecttag().equals("ARC")) {
+                    record.writeDouble(Double.parseDouble(segment.getattrvalue("A1")));
+                    record.writeDouble(Double.parseDouble(segment.getattrvalue("A2")));
+                } else {
+                    record.writeDouble(Double.NaN);
+                    record.writeDouble(Double.NaN);
+                }
+            }
+        }
+
+        /**
+         * Writes the vertices of an object read from another store, in the same layout as the INTERLIS geometry.
+         */
+        private void writeVertices(PolylineBuffer vertices, LayerMapping.OutputType outputType) throws IOException {
+            switch (outputType) {
+                case TEXT, POINT -> {
+                    record.writeDouble(vertices.getX(0));
+                    record.writeDouble(vertices.getY(0));
+                }
+                case LINE -> writePolylineVertices(vertices, 0);
+                case SURFACE -> {
+                    int surfaceStart = 0;
+                    List<Integer> boundaryCounts = new ArrayList<>();
+                    for (int part = 1; part <= vertices.getPartCount(); part++) {
+                        if (part == vertices.getPartCount() || vertices.isExterior(part)) {
+                            boundaryCounts.add(part - surfaceStart);
+                            surfaceStart = part;
+                        }
+                    }
+                    record.writeInt(boundaryCounts.size());
+                    int part = 0;
+                    for (int boundaryCount : boundaryCounts) {
+                        record.writeInt(boundaryCount);
+                        for (int j = 0; j < boundaryCount; j++) {
+                            writePolylineVertices(vertices, part++);
+                        }
+                    }
+                }
+                default -> throw new AssertionError("Unknown output type: " + outputType);
+            }
+        }
+
+        private void writePolylineVertices(PolylineBuffer vertices, int part) throws IOException {
+            record.writeInt(vertices.getPartEnd(part) - vertices.getPartStart(part));
+            for (int i = vertices.getPartStart(part); i < vertices.getPartEnd(part); i++) {
+                record.writeDouble(vertices.getX(i));
+                record.writeDouble(vertices.getY(i));
+                record.writeDouble(vertices.getArcX(i));
+                record.writeDouble(vertices.getArcY(i));
+            }
+        }
+
+        private void writeMultiSurface(IomObject multiSurface) throws IOException {
+            if (multiSurface == null) {
+                record.writeInt(NO_GEOMETRY);
+                return;
+            }
+
+            int surfaceCount = multiSurface.getattrvaluecount("surface");
+            record.writeInt(surfaceCount);
+            for (int i = 0; i < surfaceCount; i++) {
+                var surface = multiSurface.getattrobj("surface", i);
+                int boundaryCount = surface.getattrvaluecount("boundary");
+                record.writeInt(boundaryCount);
+                for (int j = 0; j < boundaryCount; j++) {
+                    writePolyline(surface.getattrobj("boundary", j).getattrobj("polyline", 0));
+                }
+            }
+        }
+    }
+
+    /**
+     * A sequential spliterator over the records of the surrounding store.
+     */
+    private final class StoreSpliterator implements Spliterator<MappedObject> {
+        private final boolean withGeometry;
+        private int readObjects;
+
+        StoreSpliterator(boolean withGeometry) {
+            this.withGeometry = withGeometry;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super MappedObject> action) {
+            if (readObjects == objectCount) {
+                return false;
+            }
+
+            MappedObject object;
+            try {
+                ByteBuffer buffer = mapRecord(bytesRead);
+                object = readObject(buffer, withGeometry);
+                bytesRead = windowStart + buffer.position();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            readObjects++;
+            action.accept(object);
+            return true;
+        }
+
+        @Override
+        public Spliterator<MappedObject> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return objectCount - readObjects;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | IMMUTABLE | NONNULL;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package ch.geowerkstatt.lk2dxf;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A set of object identifiers for tens of millions of entries.
+ * <p>
+ * OIDs in the UUID format are stored as two {@code long} values in an open addressing hash table, other OIDs in a regular set.
+ * A Bloom filter of fixed size in front of the tables answers most lookups of OIDs that were not added yet,
+ * which are the vast majority when only some input files overlap, without probing the large tables.
+ */
+final class OidSet {
+    private static final int BLOOM_BITS_LOG2 = 27;
+    private static final long BLOOM_MASK = (1L << BLOOM_BITS_LOG2) - 1;
+    private static final int BLOOM_HASHES = 4;
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static final int UUID_LENGTH = 36;
+
+    private final long[] bloomFilter = new long[1 << (BLOOM_BITS_LOG2 - 6)];
+    private final Set<String> otherOids = new HashSet<>();
+    private long[] uuids = new long[INITIAL_CAPACITY * 2];
+    private boolean[] occupied = new boolean[INITIAL_CAPACITY];
+    private int uuidCount;
+
+    /**
+     * Checks whether the OID was added to the set.
+     * @param oid The object identifier.
+     * @return {@code true} if the OID was added before.
+     */
+    boolean contains(String oid) {
+        if (isUuid(oid)) {
+            long high = parseHex(oid, 0, 8) << 32 | parseHex(oid, 9, 13) << 16 | parseHex(oid, 14, 18);
+            long low = parseHex(oid, 19, 23) << 48 | parseHex(oid, 24, UUID_LENGTH);
+            return mightContain(mix(high ^ mix(low))) && containsUuid(high, low);
+        }
+        return mightContain(mix(oid.hashCode())) && otherOids.contains(oid);
+    }
+
+    /**
+     * Adds an OID to the set.
+     * @param oid The object identifier.
+     */
+    void add(String oid) {
+        if (isUuid(oid)) {
+            long high = parseHex(oid, 0, 8) << 32 | parseHex(oid, 9, 13) << 16 | parseHex(oid, 14, 18);
+            long low = parseHex(oid, 19, 23) << 48 | parseHex(oid, 24, UUID_LENGTH);
+            addToBloomFilter(mix(high ^ mix(low)));
+            addUuid(high, low);
+        } else {
+            addToBloomFilter(mix(oid.hashCode()));
+            otherOids.add(oid);
+        }
+    }
+
+    /**
+     * Get the number of OIDs in the set.
+     */
+    int size() {
+        return uuidCount + otherOids.size();
+    }
+
+    private boolean mightContain(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            long bit = (h1 + (long) i * h2) & BLOOM_MASK;
+            if ((bloomFilter[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addToBloomFilter(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            long bit = (h1 + (long) i * h2) & BLOOM_MASK;
+            bloomFilter[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private boolean containsUuid(long high, long low) {
+        int mask = occupied.length - 1;
+        for (int slot = (int) mix(high ^ low) & mask; occupied[slot]; slot = (slot + 1) & mask) {
+            if (uuids[slot * 2] == high && uuids[slot * 2 + 1] == low) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addUuid(long high, long low) {
+        if (insert(uuids, occupied, high, low)) {
+            uuidCount++;
+            if (uuidCount * 4L >= occupied.length * 3L) {
+                grow();
+            }
+        }
+    }
+
+    private void grow() {
+        long[] newUuids = new long[uuids.length * 2];
+        boolean[] newOccupied = new boolean[occupied.length * 2];
+        for (int slot = 0; slot < occupied.length; slot++) {
+            if (occupied[slot]) {
+                insert(newUuids, newOccupied, uuids[slot * 2], uuids[slot * 2 + 1]);
+            }
+        }
+        uuids = newUuids;
+        occupied = newOccupied;
+    }
+
+    private static boolean insert(long[] table, boolean[] used, long high, long low) {
+        int mask = used.length - 1;
+        int slot = (int) mix(high ^ low) & mask;
+        while (used[slot]) {
+            if (table[slot * 2] == high && table[slot * 2 + 1] == low) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        table[slot * 2] = high;
+        table[slot * 2 + 1] = low;
+        return true;
+    }
+
+    /**
+     * Checks whether the OID has the UUID format {@code xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx} with ASCII hex digits of any case.
+     */
+    private static boolean isUuid(String oid) {
+        if (oid.length() != UUID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            char c = oid.charAt(i);
+            boolean valid = i == 8 || i == 13 || i == 18 || i == 23 ? c == '-' : hexDigit(c) >= 0;
+            if (!valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseHex(String value, int start, int end) {
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            result = result << 4 | hexDigit(value.charAt(i));
+        }
+        return result;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    /**
+     * The finalizer of MurmurHash3, spreads the bits of the value over the whole hash.
+     */
+    private static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb33fe63ad87bL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,21 @@
+package ch.geowerkstatt.lk2dxf;
+
+/**
+ * The compression applied to the written DXF file.
+ */
+public enum OutputCompression {
+    /**
+     * The DXF file is written uncompressed.
+     */
+    NONE,
+
+    /**
+     * The DXF file is written as gzip stream.
+     */
+    GZIP,
+
+    /**
+     * The DXF file is written as single entry of a ZIP archive.
+     */
+    ZIP,
+}
@@ -0,0 +1,28 @@
+package ch.geowerkstatt.lk2dxf;
+
+import java.util.Map;
+
+/**
+ * Controls how the DXF output of a conversion is written.
+ *
+ * @param compression The compression of the DXF files.
+ * @param splitLayers If {@code true}, the output path is a directory and each layer or layer group is written to its own DXF file.
+ * @param layerGroups Maps layer names to the group written to the same file when splitting the layers.
+ *                    If empty, each layer gets its own file. Otherwise, layers without group are not written.
+ * @param entityOrder The order of the entities, only supported for a single DXF file.
+ * @param dedupe If {@code true}, objects whose OID was already written for a previous input file are skipped.
+ */
+public record OutputOptions(OutputCompression compression, boolean splitLayers, Map<String, String> layerGroups, EntityOrder entityOrder, boolean dedupe) {
+    /**
+     * Writes a single uncompressed DXF file.
+     */
+    public static final OutputOptions DEFAULT = new OutputOptions(OutputCompression.NONE);
+
+    /**
+     * Writes a single DXF file.
+     * @param compression The compression of the DXF file.
+     */
+    public OutputOptions(OutputCompression compression) {
+        this(compression, false, Map.of(), EntityOrder.INPUT, false);
+    }
+}
@@ -0,0 +1,217 @@
+package ch.geowerkstatt.lk2dxf;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A static R-tree of item envelopes that is packed bottom-up after sorting the items along a Hilbert curve.
+ * <p>
+ * All nodes are stored level by level in two flat arrays, starting with the leaves: four coordinates
+ * (minX, minY, maxX, maxY) per node and the index of the item or of the first child node.
+ * Because the layout needs no pointers, the tree can be queried directly from a memory-mapped file.
+ */
+final class PackedRTree {
+    /**
+     * The maximum number of children of a node.
+     */
+    static final int NODE_SIZE = 16;
+
+    private static final int BOX_SIZE = 4;
+
+    private final DoubleBuffer boxes;
+    private final IntBuffer indices;
+    private final int[] levelEnds;
+
+    /**
+     * Creates a tree from its serialized nodes, see {@link #write(DataOutputStream)}.
+     * @param boxes The envelopes of all nodes.
+     * @param indices The item or first child index of all nodes.
+     * @param levelEnds The index after the last node of each level, starting with the leaves.
+     */
+    PackedRTree(DoubleBuffer boxes, IntBuffer indices, int[] levelEnds) {
+        this.boxes = boxes;
+        this.indices = indices;
+        this.levelEnds = levelEnds;
+    }
+
+    /**
+     * Builds a tree of the specified items.
+     * @param items The indices of the items.
+     * @param envelopes The envelopes of the items with four coordinates per item, in the order of {@code items}.
+     * @param count The number of items.
+     * @return The packed tree.
+     */
+    static PackedRTree build(int[] items, double[] envelopes, int count) {
+        int[] levelEnds = computeLevelEnds(count);
+        int nodeCount = levelEnds.length == 0 ? 0 : levelEnds[levelEnds.length - 1];
+        double[] nodeBoxes = new double[nodeCount * BOX_SIZE];
+        int[] nodeIndices = new int[nodeCount];
+
+        int[] order = sortByHilbertIndex(envelopes, count);
+        for (int i = 0; i < count; i++) {
+            int item = order[i];
+            System.arraycopy(envelopes, item * BOX_SIZE, nodeBoxes, i * BOX_SIZE, BOX_SIZE);
+            nodeIndices[i] = items[item];
+        }
+
+        int levelStart = 0;
+        int node = count;
+        for (int level = 0; level < levelEnds.length - 1; level++) {
+            for (int child = levelStart; child < levelEnds[level]; child += NODE_SIZE) {
+                int childEnd = Math.min(child + NODE_SIZE, levelEnds[level]);
+                double minX = Double.POSITIVE_INFINITY;
+                double minY = Double.POSITIVE_INFINITY;
+                double maxX = Double.NEGATIVE_INFINITY;
+                double maxY = Double.NEGATIVE_INFINITY;
+                for (int i = child; i < childEnd; i++) {
+                    minX = Math.min(minX, nodeBoxes[i * BOX_SIZE]);
+                    minY = Math.min(minY, nodeBoxes[i * BOX_SIZE + 1]);
+                    maxX = Math.max(maxX, nodeBoxes[i * BOX_SIZE + 2]);
+                    maxY = Math.max(maxY, nodeBoxes[i * BOX_SIZE + 3]);
+                }
+                nodeBoxes[node * BOX_SIZE] = minX;
+                nodeBoxes[node * BOX_SIZE + 1] = minY;
+                nodeBoxes[node * BOX_SIZE + 2] = maxX;
+                nodeBoxes[node * BOX_SIZE + 3] = maxY;
+                nodeIndices[node] = child;
+                node++;
+            }
+            levelStart = levelEnds[level];
+        }
+
+        return new PackedRTree(DoubleBuffer.wrap(nodeBoxes), IntBuffer.wrap(nodeIndices), levelEnds);
+    }
+
+    /**
+     * Get the number of nodes including the leaves.
+     */
+    int getNodeCount() {
+        return levelEnds.length == 0 ? 0 : levelEnds[levelEnds.length - 1];
+    }
+
+    /**
+     * Get the index after the last node of each level, starting with the leaves.
+     */
+    int[] getLevelEnds() {
+        return levelEnds.clone();
+    }
+
+    /**
+     * Reports the indices of all items whose envelope intersects the specified envelope, in no particular order.
+     * @param envelope The search envelope.
+     * @param action Receives the item indices.
+     */
+    void query(Envelope envelope, IntConsumer action) {
+        if (levelEnds.length == 0 || envelope.isNull()) {
+            return;
+        }
+
+        int[] nodes = new int[NODE_SIZE * levelEnds.length];
+        int[] levels = new int[nodes.length];
+        int size = 0;
+        nodes[size] = getNodeCount() - 1;
+        levels[size++] = levelEnds.length - 1;
+        while (size > 0) {
+            size--;
+            int node = nodes[size];
+            int level = levels[size];
+            if (!intersects(node, envelope)) {
+                continue;
+            }
+            if (level == 0) {
+                action.accept(indices.get(node));
+                continue;
+            }
+
+            int firstChild = indices.get(node);
+            int childEnd = Math.min(firstChild + NODE_SIZE, levelEnds[level - 1]);
+            for (int child = firstChild; child < childEnd; child++) {
+                if (size == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, size * 2);
+                    levels = Arrays.copyOf(levels, size * 2);
+                }
+                nodes[size] = child;
+                levels[size++] = level - 1;
+            }
+        }
+    }
+
+    /**
+     * Writes the envelopes of all nodes followed by their indices. The level ends are not written.
+     */
+    void write(DataOutputStream output) throws IOException {
+        for (int i = 0; i < getNodeCount() * BOX_SIZE; i++) {
+            output.writeDouble(boxes.get(i));
+        }
+        for (int i = 0; i < getNodeCount(); i++) {
+            output.writeInt(indices.get(i));
+        }
+    }
+
+    /**
+     * Computes the index after the last node of each level for the specified number of items.
+     */
+    static int[] computeLevelEnds(int count) {
+        if (count == 0) {
+            return new int[0];
+        }
+
+        int[] levelEnds = new int[1];
+        int levelSize = count;
+        int nodeCount = count;
+        levelEnds[0] = nodeCount;
+        do {
+            levelSize = (levelSize + NODE_SIZE - 1) / NODE_SIZE;
+            nodeCount += levelSize;
+            levelEnds = Arrays.copyOf(levelEnds, levelEnds.length + 1);
+            levelEnds[levelEnds.length - 1] = nodeCount;
+        } while (levelSize > 1);
+        return levelEnds;
+    }
+
+    private boolean intersects(int node, Envelope envelope) {
+        int offset = node * BOX_SIZE;
+        return boxes.get(offset) <= envelope.getMaxX()
+                && boxes.get(offset + 1) <= envelope.getMaxY()
+                && boxes.get(offset + 2) >= envelope.getMinX()
+                && boxes.get(offset + 3) >= envelope.getMinY();
+    }
+
+    /**
+     * Sorts the items by the Hilbert index of their center within the extent of all items.
+     * The index of the order 16 curve fits into 32 bits, so it is sorted together with the item in a single {@code long}.
+     * The index is shifted into the signed range to keep its order.
+     */
+    private static int[] sortByHilbertIndex(double[] envelopes, int count) {
+        var extent = new Envelope();
+        for (int i = 0; i < count; i++) {
+            extent.expandToInclude(envelopes[i * BOX_SIZE], envelopes[i * BOX_SIZE + 1]);
+            extent.expandToInclude(envelopes[i * BOX_SIZE + 2], envelopes[i * BOX_SIZE + 3]);
+        }
+
+        int cells = (1 << HilbertCurve.ORDER) - 1;
+        double scaleX = extent.getWidth() > 0 ? cells / extent.getWidth() : 0;
+        double scaleY = extent.getHeight() > 0 ? cells / extent.getHeight() : 0;
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            double centerX = (envelopes[i * BOX_SIZE] + envelopes[i * BOX_SIZE + 2]) / 2;
+            double centerY = (envelopes[i * BOX_SIZE + 1] + envelopes[i * BOX_SIZE + 3]) / 2;
+            int x = (int) ((centerX - extent.getMinX()) * scaleX);
+            int y = (int) ((centerY - extent.getMinY()) * scaleY);
+            keys[i] = (HilbertCurve.index(HilbertCurve.ORDER, x, y) + Integer.MIN_VALUE) << 32 | i;
+        }
+        Arrays.sort(keys);
+
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = (int) keys[i];
+        }
+        return order;
+    }
+}
@@ -0,0 +1,208 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.interlis.iom.IomObject;
+
+import java.util.Arrays;
+
+/**
+ * A reusable buffer of the parsed vertices of one or more INTERLIS polylines.
+ * <p>
+ * Each vertex is stored as four {@code double} values: the coordinates of the vertex and of the arc point of the segment
+ * ending at the vertex, or {@link Double#NaN} for straight segments. The polylines are parsed once when they are added,
+ * so writing them needs no further attribute lookups and no allocations per vertex.
+ * A {@link MappedObjectStore} adds the stored vertices directly with {@link #addVertex(double, double, double, double)},
+ * a point is stored as a part with a single vertex.
+ */
+final class PolylineBuffer {
+    private static final int STRIDE = 4;
+    private static final int INITIAL_VERTICES = 256;
+    private static final int INITIAL_PARTS = 8;
+
+    private double[] vertices;
+    private int[] partEnds;
+    private boolean[] exteriorParts;
+    private int vertexCount;
+    private int partCount;
+
+    /**
+     * Creates a buffer for reuse, with room for a few hundred vertices.
+     */
+    PolylineBuffer() {
+        this(INITIAL_VERTICES, INITIAL_PARTS);
+    }
+
+    /**
+     * Creates a buffer with the specified initial capacity, it grows if more vertices or parts are added.
+     * @param vertexCapacity The expected number of vertices.
+     * @param partCapacity The expected number of polylines.
+     */
+    PolylineBuffer(int vertexCapacity, int partCapacity) {
+        vertices = new double[Math.max(1, vertexCapacity) * STRIDE];
+        partEnds = new int[Math.max(1, partCapacity)];
+        exteriorParts = new boolean[Math.max(1, partCapacity)];
+    }
+
+    /**
+     * Removes all polylines, the allocated memory is kept for the next polylines.
+     */
+    void clear() {
+        vertexCount = 0;
+        partCount = 0;
+    }
+
+    /**
+     * Parses a polyline and adds it as new part.
+     * @param polyline The INTERLIS polyline with a sequence of COORD and ARC segments.
+     * @param exterior Whether the polyline is the exterior boundary of a surface, see {@link #isExterior(int)}.
+     */
+    void add(IomObject polyline, boolean exterior) {
+        var segments = polyline.getattrobj("sequence", 0);
+        int segmentCount = segments.getattrvaluecount("segment");
+        ensureVertexCapacity(vertexCount + segmentCount);
+
+        for (int i = 0; i < segmentCount; i++) {
+            var segment = segments.getattrobj("segment", i);
+            int offset = vertexCount * STRIDE;
+            vertices[offset] = Double.parseDouble(segment.getattrvalue("C1"));
+            vertices[offset + 1] = Double.parseDouble(segment.getattrvalue("C2"));
+            if (i > 0 && segment.getobjecttag().equals("ARC")) {
+                vertices[offset + 2] = Double.parseDouble(segment.getattrvalue("A1"));
+                vertices[offset + 3] = Double.parseDouble(segment.getattrvalue("A2"));
+            } else {
+                vertices[offset + 2] = Double.NaN;
+                vertices[offset + 3] = Double.NaN;
+            }
+            vertexCount++;
+        }
+
+        endPart(exterior);
+    }
+
+    /**
+     * Parses a coordinate and adds it as new part with a single vertex.
+     * @param coord The INTERLIS COORD.
+     */
+    void addCoord(IomObject coord) {
+        addVertex(Double.parseDouble(coord.getattrvalue("C1")), Double.parseDouble(coord.getattrvalue("C2")), Double.NaN, Double.NaN);
+        endPart(false);
+    }
+
+    /**
+     * Adds a vertex to the current part, the part is completed by {@link #endPart(boolean)}.
+     * @param arcX The x coordinate of the arc point of the segment ending at the vertex, {@link Double#NaN} for straight segments.
+     * @param arcY The y coordinate of the arc point, {@link Double#NaN} for straight segments.
+     */
+    void addVertex(double x, double y, double arcX, double arcY) {
+        ensureVertexCapacity(vertexCount + 1);
+        int offset = vertexCount * STRIDE;
+        vertices[offset] = x;
+        vertices[offset + 1] = y;
+        vertices[offset + 2] = arcX;
+        vertices[offset + 3] = arcY;
+        vertexCount++;
+    }
+
+    /**
+     * Completes the part with the vertices added since the previous part.
+     * @param exterior Whether the polyline is the exterior boundary of a surface, see {@link #isExterior(int)}.
+     */
+    void endPart(boolean exterior) {
+        ensurePartCapacity(partCount + 1);
+        partEnds[partCount] = vertexCount;
+        exteriorParts[partCount] = exterior;
+        partCount++;
+    }
+
+    /**
+     * Get the number of added polylines.
+     */
+    int getPartCount() {
+        return partCount;
+    }
+
+    /**
+     * Get the index of the first vertex of a polyline.
+     */
+    int getPartStart(int part) {
+        return part == 0 ? 0 : partEnds[part - 1];
+    }
+
+    /**
+     * Get the index after the last vertex of a polyline.
+     */
+    int getPartEnd(int part) {
+        return partEnds[part];
+    }
+
+    /**
+     * Checks whether a polyline is the exterior boundary of a surface, as opposed to a hole or a line.
+     */
+    boolean isExterior(int part) {
+        return exteriorParts[part];
+    }
+
+    /**
+     * Checks whether the first and the last vertex of a polyline have the same coordinates.
+     */
+    boolean isClosed(int part) {
+        int start = getPartStart(part);
+        int last = getPartEnd(part) - 1;
+        return last > start && getX(start) == getX(last) && getY(start) == getY(last);
+    }
+
+    double getX(int vertex) {
+        return vertices[vertex * STRIDE];
+    }
+
+    double getY(int vertex) {
+        return vertices[vertex * STRIDE + 1];
+    }
+
+    /**
+     * Get the x coordinate of the arc point of the segment ending at the vertex, {@link Double#NaN} for straight segments.
+     */
+    double getArcX(int vertex) {
+        return vertices[vertex * STRIDE + 2];
+    }
+
+    /**
+     * Get the y coordinate of the arc point of the segment ending at the vertex, {@link Double#NaN} for straight segments.
+     */
+    double getArcY(int vertex) {
+        return vertices[vertex * STRIDE + 3];
+    }
+
+    /**
+     * Get the bulge of the segment from the previous vertex to the specified vertex, {@code 0} for straight segments.
+     * The bulge is the tangent of a quarter of the included angle of the arc, negative if the arc runs clockwise.
+     */
+    double getBulge(int vertex) {
+        int offset = vertex * STRIDE;
+        double ax = vertices[offset + 2];
+        if (Double.isNaN(ax)) {
+            return 0.0;
+        }
+
+        double ay = vertices[offset + 3];
+        double x = vertices[offset];
+        double y = vertices[offset + 1];
+        double prevX = vertices[offset - STRIDE];
+        double prevY = vertices[offset - STRIDE + 1];
+        var bulge = Math.tan((Math.PI + Math.atan2(y - ay, x - ax) - Math.atan2(prevY - ay, prevX - ax)) / 2.0);
+        return Double.isFinite(bulge) ? bulge : 0.0;
+    }
+
+    private void ensureVertexCapacity(int count) {
+        if (count * STRIDE > vertices.length) {
+            vertices = Arrays.copyOf(vertices, Math.max(count, vertices.length / STRIDE * 2) * STRIDE);
+        }
+    }
+
+    private void ensurePartCapacity(int count) {
+        if (count > partEnds.length) {
+            int capacity = Math.max(count, partEnds.length * 2);
+            partEnds = Arrays.copyOf(partEnds, capacity);
+            exteriorParts = Arrays.copyOf(exteriorParts, capacity);
+        }
+    }
+}
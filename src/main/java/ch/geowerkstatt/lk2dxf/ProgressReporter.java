@@ -0,0 +1,116 @@
+package ch.geowerkstatt.lk2dxf;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Periodically logs the progress of a conversion based on the input bytes consumed so far.
+ * <p>
+ * The conversion thread only publishes its state, the progress is computed and logged by a daemon thread.
+ * The bytes of the current file are read from its {@link XtfStreamReader}, the number of written objects is published
+ * every {@link #OBJECT_BATCH_SIZE} objects, so the per-object overhead is a counter increment.
+ */
+final class ProgressReporter implements AutoCloseable {
+    /**
+     * The number of written objects after which the object count is published.
+     */
+    static final int OBJECT_BATCH_SIZE = 1024;
+
+    private static final double MIB = 1024 * 1024;
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private final long totalBytes;
+    private final long startNanos = System.nanoTime();
+    private final ScheduledExecutorService executor;
+    private volatile long completedBytes;
+    private volatile long completedObjects;
+    private volatile long fileObjects;
+    private volatile LongSupplier fileBytes;
+
+    /**
+     * Starts logging the progress.
+     * @param totalBytes The total size of all input files, or {@code -1} if the size is unknown.
+     * @param interval The interval between two progress lines.
+     */
+    ProgressReporter(long totalBytes, Duration interval) {
+        this.totalBytes = totalBytes;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lk2dxf-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = Math.max(1, interval.toMillis());
+        executor.scheduleAtFixedRate(this::logProgress, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts reading an input file.
+     * @param bytesRead Supplies the number of bytes read from the current file, called from the logging thread.
+     */
+    void startFile(LongSupplier bytesRead) {
+        fileBytes = bytesRead;
+    }
+
+    /**
+     * Publishes the number of objects written for the current file.
+     */
+    void updateObjects(long objectCount) {
+        fileObjects = objectCount;
+    }
+
+    /**
+     * Completes the current input file.
+     * @param inputBytes The size of the file.
+     * @param objectCount The number of objects written for the file.
+     */
+    void completeFile(long inputBytes, long objectCount) {
+        fileBytes = null;
+        fileObjects = 0;
+        completedObjects += objectCount;
+        completedBytes += inputBytes;
+    }
+
+    private void logProgress() {
+        LongSupplier currentFileBytes = fileBytes;
+        long consumedBytes = completedBytes + (currentFileBytes != null ? currentFileBytes.getAsLong() : 0);
+        long objects = completedObjects + fileObjects;
+        double seconds = Math.max(1, System.nanoTime() - startNanos) / 1_000_000_000.0;
+        double bytesPerSecond = consumedBytes / seconds;
+
+        if (totalBytes < 0) {
+            LOGGER.info(String.format(Locale.ROOT, "Progress: %.1f MiB, %d objects, %.0f objects/s, %.1f MiB/s",
+                    consumedBytes / MIB,
+                    objects,
+                    objects / seconds,
+                    bytesPerSecond / MIB));
+            return;
+        }
+
+        consumedBytes = Math.min(totalBytes, consumedBytes);
+        String eta = bytesPerSecond > 0 ? formatDuration(Duration.ofSeconds(Math.round((totalBytes - consumedBytes) / bytesPerSecond))) : "unknown";
+        LOGGER.info(String.format(Locale.ROOT, "Progress: %.1f%% (%.1f of %.1f MiB), %d objects, %.0f objects/s, %.1f MiB/s, ETA %s",
+                totalBytes > 0 ? consumedBytes * 100.0 / totalBytes : 100.0,
+                consumedBytes / MIB,
+                totalBytes / MIB,
+                objects,
+                objects / seconds,
+                bytesPerSecond / MIB,
+                eta));
+    }
+
+    private static String formatDuration(Duration duration) {
+        return String.format("%02d:%02d:%02d", duration.toHours(), duration.toMinutesPart(), duration.toSecondsPart());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
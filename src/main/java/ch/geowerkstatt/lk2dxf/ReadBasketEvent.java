@@ -0,0 +1,48 @@
+package ch.geowerkstatt.lk2dxf;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event covering the reading of a single basket of a transfer file.
+ */
+@Name("ch.geowerkstatt.lk2dxf.ReadBasket")
+@Label("Read Basket")
+@Category({"lk2dxf", "Reading"})
+@Description("Reading and parsing of a basket, including the downstream processing of its objects")
+final class ReadBasketEvent extends jdk.jfr.Event {
+    @Label("File")
+    private String file;
+
+    @Label("Basket")
+    private String basket;
+
+    @Label("Objects")
+    private int objectCount;
+
+    @Label("Bytes Read")
+    @DataAmount
+    private long bytesRead;
+
+    ReadBasketEvent(String file, String basket) {
+        this.file = file;
+        this.basket = basket;
+    }
+
+    /**
+     * Counts an object read from the basket.
+     */
+    void countObject() {
+        objectCount++;
+    }
+
+    /**
+     * Sets the number of bytes read from the transfer file for this basket.
+     */
+    void setBytesRead(long bytesRead) {
+        this.bytesRead = bytesRead;
+    }
+}
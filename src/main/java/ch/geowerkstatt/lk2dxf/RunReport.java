@@ -0,0 +1,240 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.geowerkstatt.lk2dxf.mapping.MappingStatistics;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * A machine-readable report of a conversion that is written as JSON with the {@code --report} option.
+ * Durations are reported in milliseconds and throughput in objects per second.
+ *
+ * @param version The version of lk2dxf.
+ * @param output The path of the DXF file.
+ * @param durationMillis The wall time of the conversion.
+ * @param objectCount The number of objects written to the DXF file.
+ * @param objectsPerSecond The number of written objects per second of wall time.
+ * @param inputBytes The total size of the input files.
+ * @param outputBytes The size of the DXF file, or the number of written characters if the DXF was written to the standard output or split into several files.
+ * @param peakHeapBytes The sum of the peak usages of all heap memory pools during the conversion.
+ * @param deferredObjects The number of objects whose mapping was deferred because of forward references.
+ * @param duplicateObjects The number of objects skipped because their OID was already written for a previous input file.
+ * @param skippedObjects The number of objects skipped while reading because their class is not used by the layer mappings.
+ * @param skippedBytes The approximate size of the skipped objects in the input files.
+ * @param cachedObjects The largest number of objects kept in memory to resolve references of a single file.
+ * @param cachedFiles The number of files written from the conversion cache.
+ * @param layerCounts The number of objects written per layer.
+ * @param filters The evaluations of the filters of the layer mappings over all input files, only filters that were evaluated.
+ * @param files The statistics of the input files in the order of processing.
+ */
+public record RunReport(
+        String version,
+        String output,
+        double durationMillis,
+        int objectCount,
+        double objectsPerSecond,
+        long inputBytes,
+        long outputBytes,
+        long peakHeapBytes,
+        int deferredObjects,
+        int duplicateObjects,
+        int skippedObjects,
+        long skippedBytes,
+        int cachedObjects,
+        int cachedFiles,
+        SortedMap<String, Integer> layerCounts,
+        List<FilterReport> filters,
+        List<FileReport> files) {
+    private static final JsonMapper JSON_MAPPER = JsonMapper.builder().enable(SerializationFeature.INDENT_OUTPUT).build();
+
+    /**
+     * Creates the report of a completed conversion.
+     *
+     * @param version The version of lk2dxf.
+     * @param output The path of the DXF file or directory, or {@link Converter#STANDARD_STREAM} for the standard output.
+     * @param result The result of the conversion.
+     * @param peakHeapBytes The peak heap usage, see {@link #getPeakHeapUsage()}.
+     * @return The report.
+     */
+    public static RunReport create(String version, String output, ConversionResult result, long peakHeapBytes) {
+        return new RunReport(
+                version,
+                output,
+                toMillis(result.duration()),
+                result.objectCount(),
+                perSecond(result.objectCount(), result.duration()),
+                result.files().stream().mapToLong(FileStatistics::inputBytes).sum(),
+                new File(output).isFile() ? new File(output).length() : result.files().stream().mapToLong(FileStatistics::writtenCharacters).sum(),
+                peakHeapBytes,
+                result.files().stream().mapToInt(FileStatistics::deferredObjects).sum(),
+                result.files().stream().mapToInt(FileStatistics::duplicateObjects).sum(),
+                result.files().stream().mapToInt(FileStatistics::skippedObjects).sum(),
+                result.files().stream().mapToLong(FileStatistics::skippedBytes).sum(),
+                result.files().stream().mapToInt(FileStatistics::cachedObjects).max().orElse(0),
+                (int) result.files().stream().filter(FileStatistics::cached).count(),
+                result.layerCounts(),
+                FilterReport.summarize(result.files()),
+                result.files().stream().map(FileReport::new).toList());
+    }
+
+    /**
+     * Writes the report as JSON.
+     *
+     * @param file The file to write.
+     * @throws IOException If the file could not be written.
+     */
+    public void write(File file) throws IOException {
+        JSON_MAPPER.writeValue(file, this);
+    }
+
+    /**
+     * Resets the peak usage of the heap memory pools, so {@link #getPeakHeapUsage()} covers only the following work.
+     */
+    public static void resetPeakHeapUsage() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Get the sum of the peak usages of all heap memory pools since the JVM start or the last reset.
+     * The pools may peak at different times, so this is an upper bound of the actual peak.
+     */
+    public static long getPeakHeapUsage() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+    }
+
+    private static double toMillis(Duration duration) {
+        return duration.toNanos() / 1_000_000.0;
+    }
+
+    private static double perSecond(long count, Duration duration) {
+        return duration.isZero() ? 0 : count * 1_000_000_000.0 / duration.toNanos();
+    }
+
+    /**
+     * The evaluations of a single filter of a layer mapping, see {@link MappingStatistics.FilterStatistics}.
+     * The filters of a mapping are evaluated in the order of ascending {@code averageNanos / rejectRate}, which helps to tune the mappings.
+     *
+     * @param layer The layer of the mapping.
+     * @param objectClass The qualified name of the object class the filter applies to.
+     * @param filter The object class or the attribute path with the accepted values.
+     * @param evaluations The number of objects the filter was evaluated for.
+     * @param rejectRate The share of the evaluated objects that did not match the filter.
+     * @param unresolved The number of evaluations that found an unresolved reference.
+     * @param averageNanos The average duration of an evaluation.
+     */
+    public record FilterReport(
+            String layer,
+            String objectClass,
+            String filter,
+            long evaluations,
+            double rejectRate,
+            long unresolved,
+            double averageNanos) {
+        /**
+         * Sums the filter statistics of all files, weighting the average duration by the number of evaluations.
+         */
+        private static List<FilterReport> summarize(List<FileStatistics> files) {
+            Map<List<String>, long[]> counts = new LinkedHashMap<>();
+            Map<List<String>, Double> totalNanos = new LinkedHashMap<>();
+            for (var file : files) {
+                for (var filter : file.filters()) {
+                    if (filter.evaluations() == 0) {
+                        continue;
+                    }
+                    var key = List.of(filter.layer(), filter.objectClass(), filter.filter());
+                    long[] count = counts.computeIfAbsent(key, k -> new long[3]);
+                    count[0] += filter.evaluations();
+                    count[1] += filter.rejections();
+                    count[2] += filter.unresolved();
+                    totalNanos.merge(key, filter.averageNanos() * filter.evaluations(), Double::sum);
+                }
+            }
+
+            return counts.entrySet().stream()
+                    .map(entry -> {
+                        long[] count = entry.getValue();
+                        return new FilterReport(entry.getKey().get(0), entry.getKey().get(1), entry.getKey().get(2),
+                                count[0], (double) count[1] / count[0], count[2], totalNanos.get(entry.getKey()) / count[0]);
+                    })
+                    .toList();
+        }
+    }
+
+    /**
+     * The report of a single input file, see {@link FileStatistics}.
+     *
+     * @param file The path of the input file.
+     * @param cached Whether the entities were written from the conversion cache.
+     * @param inputBytes The size of the input file.
+     * @param writtenCharacters The number of characters written to the DXF file for this input file.
+     * @param objectCount The number of objects written to the DXF file.
+     * @param objectsPerSecond The number of written objects per second of the total time.
+     * @param readMillis The time spent reading and parsing the input file.
+     * @param mappingMillis The time spent assigning the objects to layers and constructing their geometries.
+     * @param perimeterMillis The time spent filtering the objects by the perimeter.
+     * @param writeMillis The time spent writing the entities.
+     * @param totalMillis The wall time spent for the file.
+     * @param deferredObjects The number of objects whose mapping was deferred because of forward references.
+     * @param unmappedObjects The number of objects that could not be assigned to a layer.
+     * @param duplicateObjects The number of objects skipped because their OID was already written for a previous input file.
+     * @param skippedObjects The number of objects skipped while reading because their class is not used by the layer mappings.
+     * @param skippedBytes The approximate size of the skipped objects in the input file.
+     * @param cachedObjects The number of objects kept in memory to resolve references.
+     */
+    public record FileReport(
+            String file,
+            boolean cached,
+            long inputBytes,
+            long writtenCharacters,
+            int objectCount,
+            double objectsPerSecond,
+            double readMillis,
+            double mappingMillis,
+            double perimeterMillis,
+            double writeMillis,
+            double totalMillis,
+            int deferredObjects,
+            int unmappedObjects,
+            int duplicateObjects,
+            int skippedObjects,
+            long skippedBytes,
+            int cachedObjects) {
+        private FileReport(FileStatistics statistics) {
+            this(
+                    statistics.file(),
+                    statistics.cached(),
+                    statistics.inputBytes(),
+                    statistics.writtenCharacters(),
+                    statistics.objectCount(),
+                    perSecond(statistics.objectCount(), statistics.totalTime()),
+                    toMillis(statistics.readTime()),
+                    toMillis(statistics.mappingTime()),
+                    toMillis(statistics.perimeterTime()),
+                    toMillis(statistics.writeTime()),
+                    toMillis(statistics.totalTime()),
+                    statistics.deferredObjects(),
+                    statistics.unmappedObjects(),
+                    statistics.duplicateObjects(),
+                    statistics.skippedObjects(),
+                    statistics.skippedBytes(),
+                    statistics.cachedObjects());
+        }
+    }
+}
@@ -0,0 +1,468 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.interlis.iom.IomObject;
+import com.vividsolutions.jts.geom.Envelope;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A sidecar file next to a transfer file with a packed R-tree of the object envelopes and the byte ranges of the objects.
+ * <p>
+ * Perimeter extracts use the index to read only the objects whose envelope intersects the perimeter and the objects they
+ * reference, instead of parsing the whole transfer file. The selected objects are copied from the transfer file together
+ * with its prologue and the start tags of their baskets, so the extract is a valid transfer itself and is read like the
+ * complete file. The envelope of an object covers all its coordinates, so it contains every geometry the mapping may use.
+ * <p>
+ * The sidecar stores the size, the modification time and the SHA-256 hash of the transfer file.
+ * It is used if the size and the modification time match, or if only the modification time changed and the hash still matches.
+ * The R-tree and the object ranges are memory-mapped, so a query reads only the pages of the visited nodes.
+ */
+public final class SpatialIndex {
+    /**
+     * The extension appended to the name of the transfer file to get the name of the sidecar file.
+     */
+    public static final String EXTENSION = ".lkidx";
+
+    private static final int MAGIC = 0x4C4B4958;
+    private static final int VERSION = 1;
+    private static final int HASH_LENGTH = 32;
+    private static final int OBJECT_BYTES = 2 * Long.BYTES + Integer.BYTES;
+    private static final int NODE_BYTES = 4 * Double.BYTES + Integer.BYTES;
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private final long prologueEnd;
+    private final String epilogue;
+    private final long[] basketRanges;
+    private final String[] basketNames;
+    private final int objectCount;
+    private final ByteBuffer objects;
+    private final IntBuffer referenceOffsets;
+    private final IntBuffer references;
+    private final PackedRTree tree;
+
+    /**
+     * Reads the index after the validated start of the header and maps the object ranges, the references and the R-tree.
+     */
+    private SpatialIndex(DataInputStream input, FileChannel channel) throws IOException {
+        prologueEnd = input.readLong();
+        epilogue = input.readUTF();
+        int basketCount = input.readInt();
+        basketRanges = new long[basketCount * 2];
+        basketNames = new String[basketCount];
+        for (int i = 0; i < basketCount; i++) {
+            basketRanges[i * 2] = input.readLong();
+            basketRanges[i * 2 + 1] = input.readLong();
+            basketNames[i] = input.readUTF();
+        }
+        objectCount = input.readInt();
+        int referenceCount = input.readInt();
+        int[] levelEnds = new int[input.readInt()];
+        for (int i = 0; i < levelEnds.length; i++) {
+            levelEnds[i] = input.readInt();
+        }
+        int nodeCount = levelEnds.length == 0 ? 0 : levelEnds[levelEnds.length - 1];
+
+        long offset = channel.position();
+        long expectedSize = offset + (long) objectCount * OBJECT_BYTES + (objectCount + 1L + referenceCount) * Integer.BYTES + (long) nodeCount * NODE_BYTES;
+        if (expectedSize != channel.size()) {
+            throw new IOException("The spatial index is corrupt, expected " + expectedSize + " bytes but found " + channel.size() + ".");
+        }
+
+        objects = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) objectCount * OBJECT_BYTES);
+        offset += (long) objectCount * OBJECT_BYTES;
+        referenceOffsets = channel.map(FileChannel.MapMode.READ_ONLY, offset, (objectCount + 1L) * Integer.BYTES).asIntBuffer();
+        offset += (objectCount + 1L) * Integer.BYTES;
+        references = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) referenceCount * Integer.BYTES).asIntBuffer();
+        offset += (long) referenceCount * Integer.BYTES;
+        var boxes = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) nodeCount * 4 * Double.BYTES).asDoubleBuffer();
+        offset += (long) nodeCount * 4 * Double.BYTES;
+        var indices = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) nodeCount * Integer.BYTES).asIntBuffer();
+        tree = new PackedRTree(boxes, indices, levelEnds);
+    }
+
+    /**
+     * Get the sidecar file of a transfer file.
+     * @param xtfFile The transfer file.
+     * @return The sidecar file in the same directory.
+     */
+    public static File getSidecarFile(File xtfFile) {
+        return new File(xtfFile.getPath() + EXTENSION);
+    }
+
+    /**
+     * Creates the sidecar file of a transfer file, an existing sidecar file is replaced.
+     * @param xtfFile The INTERLIS 2.3 transfer file to index.
+     * @return The number of indexed objects.
+     * @throws Exception If the transfer file could not be read or the sidecar file could not be written.
+     */
+    public static int create(File xtfFile) throws Exception {
+        long size = xtfFile.length();
+        long lastModified = xtfFile.lastModified();
+        MessageDigest digest = createDigest();
+        XtfObjectScanner scanner;
+        try (InputStream input = new DigestInputStream(Files.newInputStream(xtfFile.toPath()), digest)) {
+            scanner = XtfObjectScanner.scan(input);
+        }
+        byte[] hash = digest.digest();
+
+        int count = scanner.getObjectCount();
+        int[] items = new int[count];
+        double[] envelopes = new double[count * 4];
+        int itemCount = 0;
+        int[] offsets = new int[count + 1];
+        List<String> referenceOids = new ArrayList<>();
+        Map<String, Integer> objectIndices = new HashMap<>();
+        int readObjects = 0;
+        try (XtfStreamReader reader = new XtfStreamReader(xtfFile)) {
+            var envelope = new Envelope();
+            for (var iterator = reader.readObjects().iterator(); iterator.hasNext(); readObjects++) {
+                IomObject object = iterator.next();
+                if (readObjects >= count) {
+                    throw new IOException("Found " + count + " objects in \"" + xtfFile + "\" but read more.");
+                }
+                objectIndices.put(object.getobjectoid(), readObjects);
+                envelope.setToNull();
+                collect(object, envelope, referenceOids);
+                offsets[readObjects + 1] = referenceOids.size();
+                if (!envelope.isNull()) {
+                    items[itemCount] = readObjects;
+                    envelopes[itemCount * 4] = envelope.getMinX();
+                    envelopes[itemCount * 4 + 1] = envelope.getMinY();
+                    envelopes[itemCount * 4 + 2] = envelope.getMaxX();
+                    envelopes[itemCount * 4 + 3] = envelope.getMaxY();
+                    itemCount++;
+                }
+            }
+        }
+        if (readObjects != count) {
+            throw new IOException("Found " + count + " objects in \"" + xtfFile + "\" but read " + readObjects + ".");
+        }
+
+        int[] targets = referenceOids.stream().mapToInt(oid -> objectIndices.getOrDefault(oid, -1)).toArray();
+        var tree = PackedRTree.build(items, envelopes, itemCount);
+
+        Path sidecar = getSidecarFile(xtfFile).toPath().toAbsolutePath();
+        Path tempFile = Files.createTempFile(sidecar.getParent(), sidecar.getFileName().toString(), ".tmp");
+        try {
+            try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeLong(size);
+                output.writeLong(lastModified);
+                output.write(hash);
+                output.writeLong(scanner.getPrologueEnd());
+                output.writeUTF(scanner.getEpilogue());
+                output.writeInt(scanner.getBasketCount());
+                for (int i = 0; i < scanner.getBasketCount(); i++) {
+                    output.writeLong(scanner.getBasketStart(i));
+                    output.writeLong(scanner.getBasketTagEnd(i));
+                    output.writeUTF(scanner.getBasketName(i));
+                }
+                output.writeInt(count);
+                output.writeInt(targets.length);
+                int[] levelEnds = tree.getLevelEnds();
+                output.writeInt(levelEnds.length);
+                for (int levelEnd : levelEnds) {
+                    output.writeInt(levelEnd);
+                }
+
+                for (int i = 0; i < count; i++) {
+                    output.writeLong(scanner.getObjectStart(i));
+                    output.writeLong(scanner.getObjectEnd(i));
+                    output.writeInt(scanner.getObjectBasket(i));
+                }
+                for (int offset : offsets) {
+                    output.writeInt(offset);
+                }
+                for (int target : targets) {
+                    output.writeInt(target);
+                }
+                tree.write(output);
+            }
+            Files.move(tempFile, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+
+        LOGGER.info("Indexed {} objects of \"{}\", {} of them with coordinates", count, xtfFile, itemCount);
+        return count;
+    }
+
+    /**
+     * Opens the sidecar file of a transfer file.
+     * @param xtfFile The transfer file.
+     * @return The index, or an empty optional if there is no sidecar file or it is outdated.
+     * @throws IOException If the sidecar file could not be read.
+     */
+    static Optional<SpatialIndex> open(File xtfFile) throws IOException {
+        File sidecar = getSidecarFile(xtfFile);
+        if (!sidecar.isFile()) {
+            return Optional.empty();
+        }
+
+        try (FileChannel channel = FileChannel.open(sidecar.toPath(), StandardOpenOption.READ)) {
+            // unbuffered, so the position of the channel is at the end of the header afterward
+            var input = new DataInputStream(Channels.newInputStream(channel));
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                LOGGER.warn("Ignoring the spatial index \"{}\" with an unsupported format, run --index again.", sidecar);
+                return Optional.empty();
+            }
+            long size = input.readLong();
+            long lastModified = input.readLong();
+            byte[] hash = new byte[HASH_LENGTH];
+            input.readFully(hash);
+            if (size != xtfFile.length() || (lastModified != xtfFile.lastModified() && !Arrays.equals(hash, computeHash(xtfFile)))) {
+                LOGGER.warn("Ignoring the outdated spatial index \"{}\", run --index again.", sidecar);
+                return Optional.empty();
+            }
+            return Optional.of(new SpatialIndex(input, channel));
+        }
+    }
+
+    /**
+     * Get the number of objects in the transfer file.
+     */
+    int getObjectCount() {
+        return objectCount;
+    }
+
+    /**
+     * Selects the objects whose envelope intersects the specified envelope and all objects referenced by them, directly or indirectly.
+     * @param envelope The envelope of the perimeter.
+     * @return The indices of the selected objects in ascending order, which is the order of the transfer file.
+     */
+    int[] select(Envelope envelope) {
+        var selected = new BitSet(objectCount);
+        tree.query(envelope, selected::set);
+
+        int[] pending = selected.stream().toArray();
+        int size = pending.length;
+        while (size > 0) {
+            int object = pending[--size];
+            for (int i = referenceOffsets.get(object); i < referenceOffsets.get(object + 1); i++) {
+                int target = references.get(i);
+                if (target >= 0 && !selected.get(target)) {
+                    selected.set(target);
+                    if (size == pending.length) {
+                        pending = Arrays.copyOf(pending, Math.max(16, size * 2));
+                    }
+                    pending[size++] = target;
+                }
+            }
+        }
+        return selected.stream().toArray();
+    }
+
+    /**
+     * Opens the extract of the transfer file with the selected objects.
+     * @param xtfFile The transfer file of this index.
+     * @param selectedObjects The indices of the objects in ascending order, see {@link #select(Envelope)}.
+     * @return The transfer data of the extract. Closing the stream closes the transfer file.
+     * @throws IOException If the transfer file could not be opened.
+     */
+    InputStream openExtract(File xtfFile, int[] selectedObjects) throws IOException {
+        FileChannel channel = FileChannel.open(xtfFile.toPath(), StandardOpenOption.READ);
+        List<InputStream> parts = new ArrayList<>();
+        parts.add(new RangeInputStream(channel, 0, prologueEnd));
+        int i = 0;
+        while (i < selectedObjects.length) {
+            int basket = getObjectBasket(selectedObjects[i]);
+            parts.add(new RangeInputStream(channel, basketRanges[basket * 2], basketRanges[basket * 2 + 1]));
+            while (i < selectedObjects.length && getObjectBasket(selectedObjects[i]) == basket) {
+                // consecutive objects are read as a single range including the whitespace between them
+                int first = selectedObjects[i];
+                int last = first;
+                while (i + 1 < selectedObjects.length && selectedObjects[i + 1] == last + 1 && getObjectBasket(last + 1) == basket) {
+                    last++;
+                    i++;
+                }
+                parts.add(new RangeInputStream(channel, getObjectStart(first), getObjectEnd(last)));
+                i++;
+            }
+            parts.add(new ByteArrayInputStream(("</" + basketNames[basket] + ">").getBytes(StandardCharsets.UTF_8)));
+        }
+        parts.add(new ByteArrayInputStream(epilogue.getBytes(StandardCharsets.UTF_8)));
+
+        return new SequenceInputStream(Collections.enumeration(parts)) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    channel.close();
+                }
+            }
+        };
+    }
+
+    private long getObjectStart(int object) {
+        return objects.getLong(object * OBJECT_BYTES);
+    }
+
+    private long getObjectEnd(int object) {
+        return objects.getLong(object * OBJECT_BYTES + Long.BYTES);
+    }
+
+    private int getObjectBasket(int object) {
+        return objects.getInt(object * OBJECT_BYTES + 2 * Long.BYTES);
+    }
+
+    /**
+     * Expands the envelope by all coordinates of the object and its structures and collects the OIDs of all references.
+     */
+    private static void collect(IomObject object, Envelope envelope, List<String> references) {
+        if (object.getobjectrefoid() != null) {
+            references.add(object.getobjectrefoid());
+        }
+        switch (object.getobjecttag()) {
+            case "COORD" -> {
+                envelope.expandToInclude(Double.parseDouble(object.getattrvalue("C1")), Double.parseDouble(object.getattrvalue("C2")));
+                return;
+            }
+            case "SEGMENTS" -> {
+                expandBySegments(object, envelope);
+                return;
+            }
+            default -> { } // collect the attributes
+        }
+
+        for (int i = 0; i < object.getattrcount(); i++) {
+            String name = object.getattrname(i);
+            for (int j = 0; j < object.getattrvaluecount(name); j++) {
+                if (object.getattrprim(name, j) == null) {
+                    IomObject child = object.getattrobj(name, j);
+                    if (child != null) {
+                        collect(child, envelope, references);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void expandBySegments(IomObject segments, Envelope envelope) {
+        double previousX = Double.NaN;
+        double previousY = Double.NaN;
+        for (int i = 0; i < segments.getattrvaluecount("segment"); i++) {
+            IomObject segment = segments.getattrobj("segment", i);
+            double x = Double.parseDouble(segment.getattrvalue("C1"));
+            double y = Double.parseDouble(segment.getattrvalue("C2"));
+            envelope.expandToInclude(x, y);
+            if (i > 0 && "ARC".equals(segment.getobjecttag())) {
+                expandByArc(envelope, previousX, previousY,
+                        Double.parseDouble(segment.getattrvalue("A1")), Double.parseDouble(segment.getattrvalue("A2")), x, y);
+            }
+            previousX = x;
+            previousY = y;
+        }
+    }
+
+    /**
+     * Expands the envelope by an arc, including the extreme points of its circle that lie on the arc.
+     * The arc runs through the part of the circle on the side of the chord where the arc point is.
+     */
+    private static void expandByArc(Envelope envelope, double startX, double startY, double arcX, double arcY, double endX, double endY) {
+        envelope.expandToInclude(arcX, arcY);
+
+        // coordinates relative to the start point for numerical stability
+        double bx = arcX - startX;
+        double by = arcY - startY;
+        double cx = endX - startX;
+        double cy = endY - startY;
+        double d = 2 * (bx * cy - by * cx);
+        if (d == 0) {
+            return;
+        }
+        double b2 = bx * bx + by * by;
+        double c2 = cx * cx + cy * cy;
+        double centerX = (cy * b2 - by * c2) / d;
+        double centerY = (bx * c2 - cx * b2) / d;
+        double radius = Math.hypot(centerX, centerY);
+        double side = cx * by - cy * bx;
+        double[] extremes = {centerX + radius, centerY, centerX - radius, centerY, centerX, centerY + radius, centerX, centerY - radius};
+        for (int i = 0; i < extremes.length; i += 2) {
+            if ((cx * extremes[i + 1] - cy * extremes[i]) * side > 0) {
+                envelope.expandToInclude(startX + extremes[i], startY + extremes[i + 1]);
+            }
+        }
+    }
+
+    private static byte[] computeHash(File xtfFile) throws IOException {
+        MessageDigest digest = createDigest();
+        try (InputStream input = new DigestInputStream(Files.newInputStream(xtfFile.toPath()), digest)) {
+            input.transferTo(OutputStream.nullOutputStream());
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported.", e);
+        }
+    }
+
+    /**
+     * Reads a range of a file with positional reads, so several ranges can share the channel.
+     */
+    private static final class RangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        RangeInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int count = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+            if (count < 0) {
+                throw new IOException("Unexpected end of the transfer file, the spatial index is outdated.");
+            }
+            position += count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.geowerkstatt.lk2dxf.mapping.AttributeProjection;
+import ch.interlis.iom.IomObject;
+import ch.interlis.iom_j.Iom_jObject;
+import ch.interlis.iox.IoxEvent;
+import ch.interlis.iox.IoxException;
+import ch.interlis.iox_j.EndBasketEvent;
+import ch.interlis.iox_j.EndTransferEvent;
+import ch.interlis.iox_j.ObjectEvent;
+import ch.interlis.iox_j.StartBasketEvent;
+import ch.interlis.iox_j.StartTransferEvent;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A streaming parser for INTERLIS 2.3 transfer files that builds the objects directly from the StAX events.
+ * <p>
+ * The parser creates the same object structure as the iox-ili {@code XtfReader} for the parts used by the mapping:
+ * the tag and OID of an object, attribute values, structures, references and COORD, POLYLINE and SURFACE geometries.
+ * It does not check the data against the XTF schema and skips the header section, which makes it considerably faster.
+ * Elements it does not know, like line attributes of polylines, are skipped.
+ * With an {@link AttributeProjection}, objects of classes that are not included in the projection are skipped entirely and
+ * the attributes of the other objects that are not part of the projection are skipped without creating any strings or objects for them.
+ */
+final class StreamingXtfParser {
+    private static final String INTERLIS_23_NAMESPACE = "http://www.interlis.ch/INTERLIS2.3";
+
+    private final XMLStreamReader xml;
+    private final AttributeProjection projection;
+    private final StringBuilder text = new StringBuilder();
+    private State state = State.START;
+    private final Map<String, Integer> skippedTags = new HashMap<>();
+    private int skippedObjects;
+    private long skippedBytes;
+
+    /**
+     * Creates a new parser. The input stream is not closed by the parser.
+     * @param input The transfer data.
+     * @param projection The attributes to read per class, or empty to read all attributes.
+     * @throws IoxException If the XML reader could not be created.
+     */
+    StreamingXtfParser(InputStream input, Optional<AttributeProjection> projection) throws IoxException {
+        this.projection = projection.orElse(null);
+        var factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try {
+            xml = factory.createXMLStreamReader(input);
+        } catch (XMLStreamException e) {
+            throw new IoxException("Failed to open transfer data: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the next event of the transfer.
+     * @return The next event, or {@code null} after the end of the transfer.
+     * @throws IoxException If the transfer data is not well-formed or not an INTERLIS 2.3 transfer.
+     */
+    IoxEvent read() throws IoxException {
+        try {
+            return switch (state) {
+                case START -> startTransfer();
+                case TRANSFER -> readBasketEvent();
+                case BASKET -> readObjectEvent();
+                case COMPLETED -> null;
+            };
+        } catch (XMLStreamException e) {
+            throw new IoxException("Failed to parse transfer data: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Closes the XML reader.
+     * @throws IoxException If the reader could not be closed.
+     */
+    void close() throws IoxException {
+        try {
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new IoxException("Failed to close transfer data: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the number of objects skipped because their class is not included in the projection.
+     */
+    int getSkippedObjects() {
+        return skippedObjects;
+    }
+
+    /**
+     * Get the number of skipped objects per class, see {@link #getSkippedObjects()}.
+     */
+    Map<String, Integer> getSkippedTags() {
+        return Collections.unmodifiableMap(skippedTags);
+    }
+
+    /**
+     * Get the size of the skipped objects, measured as the characters read by the XML reader,
+     * which equals the number of bytes for transfer data in ASCII.
+     */
+    long getSkippedBytes() {
+        return skippedBytes;
+    }
+
+    private IoxEvent startTransfer() throws XMLStreamException, IoxException {
+        xml.nextTag();
+        if (!"TRANSFER".equals(xml.getLocalName()) || !INTERLIS_23_NAMESPACE.equals(xml.getNamespaceURI())) {
+            throw new IoxException("Unsupported transfer format, expected an INTERLIS 2.3 TRANSFER element but found " + xml.getName() + ".");
+        }
+
+        while (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if ("DATASECTION".equals(xml.getLocalName())) {
+                state = State.TRANSFER;
+                return new StartTransferEvent();
+            }
+            skipElement();
+        }
+        throw new IoxException("The transfer contains no DATASECTION element.");
+    }
+
+    private IoxEvent readBasketEvent() throws XMLStreamException {
+        if (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            state = State.BASKET;
+            return new StartBasketEvent(xml.getLocalName(), xml.getAttributeValue(null, "BID"));
+        }
+
+        // the end of the DATASECTION, read the remaining data so the whole input is consumed
+        state = State.COMPLETED;
+        while (xml.hasNext()) {
+            xml.next();
+        }
+        return new EndTransferEvent();
+    }
+
+    private IoxEvent readObjectEvent() throws XMLStreamException {
+        long objectStart = xml.getLocation().getCharacterOffset();
+        while (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String tag = xml.getLocalName();
+            if (projection != null && !projection.includes(tag)) {
+                skipElement();
+                long objectEnd = xml.getLocation().getCharacterOffset();
+                skippedObjects++;
+                skippedTags.merge(tag, 1, Integer::sum);
+                if (objectStart >= 0 && objectEnd >= objectStart) {
+                    skippedBytes += objectEnd - objectStart;
+                }
+                objectStart = objectEnd;
+                continue;
+            }
+
+            IomObject object = new Iom_jObject(tag, xml.getAttributeValue(null, "TID"));
+            readAttributes(object, projection != null ? projection.getAttributes(tag) : null);
+            return new ObjectEvent(object);
+        }
+
+        state = State.TRANSFER;
+        return new EndBasketEvent();
+    }
+
+    /**
+     * Reads the attribute elements of an object or structure until the end element of the owner.
+     * @param attributes The names of the attributes to read, or {@code null} to read all attributes.
+     */
+    private void readAttributes(IomObject owner, Set<String> attributes) throws XMLStreamException {
+        while (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String name = xml.getLocalName();
+            if (attributes == null || attributes.contains(name)) {
+                readAttribute(owner, name);
+            } else {
+                skipElement();
+            }
+        }
+    }
+
+    private void readAttribute(IomObject owner, String name) throws XMLStreamException {
+        String ref = xml.getAttributeValue(null, "REF");
+        if (ref != null) {
+            IomObject reference = new Iom_jObject("REF", null);
+            reference.setobjectrefoid(ref);
+            owner.addattrobj(name, reference);
+            skipElement();
+            return;
+        }
+
+        text.setLength(0);
+        boolean hasElements = false;
+        IomObject multiSurface = null;
+        while (true) {
+            switch (xml.next()) {
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+                    if (!hasElements) {
+                        text.append(xml.getTextCharacters(), xml.getTextStart(), xml.getTextLength());
+                    }
+                }
+                case XMLStreamConstants.START_ELEMENT -> {
+                    hasElements = true;
+                    String tag = xml.getLocalName();
+                    if ("SURFACE".equals(tag)) {
+                        // iox-ili represents the SURFACE of an INTERLIS 2.3 transfer as MULTISURFACE with a single surface
+                        if (multiSurface == null) {
+                            multiSurface = new Iom_jObject("MULTISURFACE", null);
+                            owner.addattrobj(name, multiSurface);
+                        }
+                        multiSurface.addattrobj("surface", readSurface());
+                    } else {
+                        owner.addattrobj(name, readValueObject(tag));
+                    }
+                }
+                case XMLStreamConstants.END_ELEMENT -> {
+                    if (!hasElements) {
+                        owner.setattrvalue(name, text.toString());
+                    }
+                    return;
+                }
+                default -> { } // comments and processing instructions
+            }
+        }
+    }
+
+    private IomObject readValueObject(String tag) throws XMLStreamException {
+        return switch (tag) {
+            case "COORD", "ARC" -> readSegment(tag);
+            case "POLYLINE" -> readPolyline();
+            default -> {
+                IomObject structure = new Iom_jObject(tag, null);
+                readAttributes(structure, null);
+                yield structure;
+            }
+        };
+    }
+
+    private IomObject readSegment(String tag) throws XMLStreamException {
+        IomObject segment = new Iom_jObject(tag, null);
+        while (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String name = xml.getLocalName();
+            segment.setattrvalue(name, xml.getElementText());
+        }
+        return segment;
+    }
+
+    private IomObject readPolyline() throws XMLStreamException {
+        IomObject polyline = new Iom_jObject("POLYLINE", null);
+        IomObject sequence = new Iom_jObject("SEGMENTS", null);
+        polyline.addattrobj("sequence", sequence);
+        while (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String tag = xml.getLocalName();
+            if ("COORD".equals(tag) || "ARC".equals(tag)) {
+                sequence.addattrobj("segment", readSegment(tag));
+            } else {
+                skipElement();
+            }
+        }
+        return polyline;
+    }
+
+    private IomObject readSurface() throws XMLStreamException {
+        IomObject surface = new Iom_jObject("SURFACE", null);
+        while (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (!"BOUNDARY".equals(xml.getLocalName())) {
+                skipElement();
+                continue;
+            }
+
+            IomObject boundary = new Iom_jObject("BOUNDARY", null);
+            while (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                if ("POLYLINE".equals(xml.getLocalName())) {
+                    boundary.addattrobj("polyline", readPolyline());
+                } else {
+                    skipElement();
+                }
+            }
+            surface.addattrobj("boundary", boundary);
+        }
+        return surface;
+    }
+
+    /**
+     * Skips the current element including all its content, the reader is positioned on its end element afterward.
+     */
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private enum State {
+        START,
+        TRANSFER,
+        BASKET,
+        COMPLETED,
+    }
+}
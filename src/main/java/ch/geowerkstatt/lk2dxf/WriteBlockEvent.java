@@ -0,0 +1,36 @@
+package ch.geowerkstatt.lk2dxf;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event covering a block of output written by the {@link DxfWriter}, the output is not flushed at the end of a block.
+ */
+@Name("ch.geowerkstatt.lk2dxf.WriteBlock")
+@Label("Write Block")
+@Category({"lk2dxf", "Writing"})
+@Description("A block of the DXF output, the duration includes the reading and mapping of the written objects")
+final class WriteBlockEvent extends jdk.jfr.Event {
+    @Label("Records")
+    @Description("The number of records with group code 0, i.e. the entities and section markers")
+    private int recordCount;
+
+    @Label("Characters")
+    private long characters;
+
+    /**
+     * Ends the block and commits the event.
+     * @param recordCount The number of records written in this block.
+     * @param characters The number of characters written in this block.
+     */
+    void complete(int recordCount, long characters) {
+        end();
+        if (shouldCommit()) {
+            this.recordCount = recordCount;
+            this.characters = characters;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package ch.geowerkstatt.lk2dxf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the byte ranges of the baskets and objects of an INTERLIS 2.3 transfer file without parsing their content.
+ * <p>
+ * The scanner only tokenizes the markup: tags, comments, CDATA sections and processing instructions.
+ * The markup characters are ASCII and never part of a multibyte UTF-8 sequence, so the bytes can be scanned directly.
+ * The objects are reported in the order of the file, which is the order in which a reader returns them.
+ */
+final class XtfObjectScanner {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int TRANSFER_DEPTH = 1;
+    private static final int DATASECTION_DEPTH = 2;
+    private static final int BASKET_DEPTH = 3;
+    private static final int OBJECT_DEPTH = 4;
+
+    private final InputStream input;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final ByteArrayOutputStream name = new ByteArrayOutputStream();
+    private int bufferPosition;
+    private int bufferLength;
+    private long position;
+
+    private String transferName;
+    private String dataSectionName;
+    private long prologueEnd = -1;
+    private final List<String> basketNames = new ArrayList<>();
+    private long[] basketRanges = new long[16];
+    private long[] objectRanges = new long[1024];
+    private int[] objectBaskets = new int[512];
+    private int objectCount;
+
+    private XtfObjectScanner(InputStream input) {
+        this.input = input;
+    }
+
+    /**
+     * Scans the transfer data until its end.
+     * @param input The transfer data, it is not closed by the scanner.
+     * @return The scanner with the found ranges.
+     * @throws IOException If the data could not be read or contains no DATASECTION.
+     */
+    static XtfObjectScanner scan(InputStream input) throws IOException {
+        var scanner = new XtfObjectScanner(input);
+        scanner.scan();
+        if (scanner.prologueEnd < 0) {
+            throw new IOException("The transfer contains no DATASECTION element.");
+        }
+        return scanner;
+    }
+
+    /**
+     * Get the end of the prologue, which includes the XML declaration, the header section and the start tag of the DATASECTION.
+     */
+    long getPrologueEnd() {
+        return prologueEnd;
+    }
+
+    /**
+     * Get the end tags of the DATASECTION and the TRANSFER element, which complete the prologue to a valid transfer.
+     */
+    String getEpilogue() {
+        return "</" + dataSectionName + "></" + transferName + ">";
+    }
+
+    int getBasketCount() {
+        return basketNames.size();
+    }
+
+    /**
+     * Get the qualified tag of a basket as it appears in the file, including a namespace prefix.
+     */
+    String getBasketName(int basket) {
+        return basketNames.get(basket);
+    }
+
+    /**
+     * Get the offset of the start tag of a basket.
+     */
+    long getBasketStart(int basket) {
+        return basketRanges[basket * 2];
+    }
+
+    /**
+     * Get the offset after the start tag of a basket.
+     */
+    long getBasketTagEnd(int basket) {
+        return basketRanges[basket * 2 + 1];
+    }
+
+    int getObjectCount() {
+        return objectCount;
+    }
+
+    /**
+     * Get the offset of the start tag of an object.
+     */
+    long getObjectStart(int object) {
+        return objectRanges[object * 2];
+    }
+
+    /**
+     * Get the offset after the end tag of an object.
+     */
+    long getObjectEnd(int object) {
+        return objectRanges[object * 2 + 1];
+    }
+
+    /**
+     * Get the index of the basket containing an object.
+     */
+    int getObjectBasket(int object) {
+        return objectBaskets[object];
+    }
+
+    private void scan() throws IOException {
+        int depth = 0;
+        boolean inDataSection = false;
+        int c;
+        while ((c = read()) >= 0) {
+            if (c != '<') {
+                continue;
+            }
+
+            long tagStart = position - 1;
+            c = read();
+            if (c == '?') {
+                skipPast("?>");
+            } else if (c == '!') {
+                skipDeclaration();
+            } else if (c == '/') {
+                skipPast(">");
+                if (inDataSection && depth == OBJECT_DEPTH) {
+                    objectRanges[(objectCount - 1) * 2 + 1] = position;
+                } else if (depth == DATASECTION_DEPTH) {
+                    inDataSection = false;
+                }
+                depth--;
+            } else {
+                unread();
+                String tag = readName();
+                boolean empty = skipAttributes();
+                depth++;
+                if (depth == TRANSFER_DEPTH) {
+                    transferName = tag;
+                } else if (depth == DATASECTION_DEPTH && "DATASECTION".equals(localName(tag))) {
+                    dataSectionName = tag;
+                    prologueEnd = position;
+                    inDataSection = !empty;
+                } else if (inDataSection && depth == BASKET_DEPTH) {
+                    addBasket(tag, tagStart);
+                } else if (inDataSection && depth == OBJECT_DEPTH) {
+                    addObject(tagStart);
+                    if (empty) {
+                        objectRanges[(objectCount - 1) * 2 + 1] = position;
+                    }
+                }
+                if (empty) {
+                    depth--;
+                }
+            }
+        }
+    }
+
+    private void addBasket(String tag, long tagStart) {
+        int basket = basketNames.size();
+        if (basketRanges.length < (basket + 1) * 2) {
+            basketRanges = Arrays.copyOf(basketRanges, basketRanges.length * 2);
+        }
+        basketNames.add(tag);
+        basketRanges[basket * 2] = tagStart;
+        basketRanges[basket * 2 + 1] = position;
+    }
+
+    private void addObject(long tagStart) {
+        if (objectBaskets.length == objectCount) {
+            objectBaskets = Arrays.copyOf(objectBaskets, objectCount * 2);
+            objectRanges = Arrays.copyOf(objectRanges, objectCount * 4);
+        }
+        objectRanges[objectCount * 2] = tagStart;
+        objectBaskets[objectCount] = basketNames.size() - 1;
+        objectCount++;
+    }
+
+    /**
+     * Skips a comment, a CDATA section or a document type declaration after {@code <!}.
+     */
+    private void skipDeclaration() throws IOException {
+        int c = read();
+        if (c == '-') {
+            skipPast("-->");
+        } else if (c == '[') {
+            skipPast("]]>");
+        } else {
+            skipPast(">");
+        }
+    }
+
+    private String readName() throws IOException {
+        name.reset();
+        int c;
+        while ((c = read()) >= 0 && c != '>' && c != '/' && !isWhitespace(c)) {
+            name.write(c);
+        }
+        unread();
+        return name.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Skips the attributes of a start tag until its end.
+     * @return {@code true} if the element is empty, like {@code <tag/>}.
+     */
+    private boolean skipAttributes() throws IOException {
+        int previous = 0;
+        int c;
+        while ((c = read()) >= 0) {
+            if (c == '"' || c == '\'') {
+                // skip the attribute value, it may contain '>'
+                int quote = c;
+                do {
+                    c = read();
+                } while (c >= 0 && c != quote);
+            } else if (c == '>') {
+                return previous == '/';
+            }
+            previous = c;
+        }
+        throw new IOException("Unexpected end of the transfer data in a start tag.");
+    }
+
+    private void skipPast(String terminator) throws IOException {
+        int length = terminator.length();
+        int[] window = new int[length];
+        int count = 0;
+        int c;
+        while ((c = read()) >= 0) {
+            System.arraycopy(window, 1, window, 0, length - 1);
+            window[length - 1] = c;
+            count++;
+            if (count >= length && matches(window, terminator)) {
+                return;
+            }
+        }
+        throw new IOException("Unexpected end of the transfer data, expected \"" + terminator + "\".");
+    }
+
+    private static boolean matches(int[] window, String terminator) {
+        for (int i = 0; i < window.length; i++) {
+            if (window[i] != terminator.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String localName(String tag) {
+        return tag.substring(tag.indexOf(':') + 1);
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    private int read() throws IOException {
+        if (bufferPosition == bufferLength) {
+            bufferLength = input.read(buffer);
+            bufferPosition = 0;
+            if (bufferLength <= 0) {
+                bufferLength = 0;
+                return -1;
+            }
+        }
+        position++;
+        return buffer[bufferPosition++] & 0xff;
+    }
+
+    /**
+     * Steps back one byte, only valid directly after a successful {@link #read()}.
+     */
+    private void unread() {
+        if (bufferLength > 0) {
+            bufferPosition--;
+            position--;
+        }
+    }
+}
@@ -1,7 +1,8 @@
 package ch.geowerkstatt.lk2dxf;
 
-import ch.ehi.basics.settings.Settings;
+import ch.geowerkstatt.lk2dxf.mapping.AttributeProjection;
 import ch.interlis.iom.IomObject;
+import ch.interlis.iom_j.xtf.XtfReader;
 import ch.interlis.iox.EndBasketEvent;
 import ch.interlis.iox.EndTransferEvent;
 import ch.interlis.iox.IoxEvent;
@@ -10,12 +11,16 @@ import ch.interlis.iox.IoxReader;
 import ch.interlis.iox.ObjectEvent;
 import ch.interlis.iox.StartBasketEvent;
 import ch.interlis.iox.StartTransferEvent;
-import ch.interlis.iox_j.logging.LogEventFactory;
-import ch.interlis.iox_j.utility.ReaderFactory;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Spliterator;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
@@ -23,25 +28,188 @@ import java.util.stream.StreamSupport;
 
 /**
  * A reader for INTERLIS transfer files.
+ * <p>
+ * By default, the objects are read with the {@link StreamingXtfParser}. The strict mode uses the {@link XtfReader} of
+ * iox-ili, which is slower but reports malformed transfer data more precisely.
  */
 public final class XtfStreamReader implements AutoCloseable {
-    private static final ReaderFactory READER_FACTORY = new ReaderFactory();
     private static final Logger LOGGER = LogManager.getLogger();
 
-    private final IoxReader reader;
+    private final CountingInputStream input;
+    private final EventSource reader;
     private final String filename;
     private LKMapXtfReaderState state = null;
+    private ReadBasketEvent basketEvent;
+    private long basketStartBytes;
+    private int completedBaskets;
+    private int readObjects;
+
+    /**
+     * Creates a new reader for LKMap INTERLIS transfer files using the streaming parser.
+     * @param xtfFile The file to read from.
+     * @throws IOException If the file could not be opened.
+     * @throws IoxException If an error occurs while creating the transfer file reader.
+     */
+    public XtfStreamReader(File xtfFile) throws IOException, IoxException {
+        this(xtfFile, false);
+    }
 
     /**
      * Creates a new reader for LKMap INTERLIS transfer files.
      * @param xtfFile The file to read from.
+     * @param strict If {@code true}, the file is read with the iox-ili reader instead of the streaming parser.
+     * @throws IOException If the file could not be opened.
+     * @throws IoxException If an error occurs while creating the transfer file reader.
+     */
+    public XtfStreamReader(File xtfFile, boolean strict) throws IOException, IoxException {
+        this(xtfFile, strict, Optional.empty());
+    }
+
+    /**
+     * Creates a new reader for LKMap INTERLIS transfer files.
+     * @param xtfFile The file to read from.
+     * @param strict If {@code true}, the file is read with the iox-ili reader instead of the streaming parser.
+     * @param projection The classes and attributes to read. Only applied by the streaming parser, the strict reader reads all objects.
+     * @throws IOException If the file could not be opened.
+     * @throws IoxException If an error occurs while creating the transfer file reader.
+     */
+    public XtfStreamReader(File xtfFile, boolean strict, Optional<AttributeProjection> projection) throws IOException, IoxException {
+        this(Files.newInputStream(xtfFile.toPath()), xtfFile.getName(), strict, projection);
+    }
+
+    /**
+     * Creates a new reader for LKMap INTERLIS transfer data using the streaming parser, e.g. from the standard input.
+     * The stream is closed when this reader is closed.
+     * @param inputStream The stream to read from.
+     * @param name The name of the data used in log messages.
+     * @throws IoxException If an error occurs while creating the transfer file reader.
+     */
+    public XtfStreamReader(InputStream inputStream, String name) throws IoxException {
+        this(inputStream, name, false);
+    }
+
+    /**
+     * Creates a new reader for LKMap INTERLIS transfer data, e.g. from the standard input.
+     * The stream is closed when this reader is closed.
+     * @param inputStream The stream to read from.
+     * @param name The name of the data used in log messages.
+     * @param strict If {@code true}, the data is read with the iox-ili reader instead of the streaming parser.
      * @throws IoxException If an error occurs while creating the transfer file reader.
      */
-    public XtfStreamReader(File xtfFile) throws IoxException {
-        LogEventFactory logEventFactory = new LogEventFactory();
-        Settings settings = new Settings();
-        this.reader = READER_FACTORY.createReader(xtfFile, logEventFactory, settings);
-        this.filename = xtfFile.getName();
+    public XtfStreamReader(InputStream inputStream, String name, boolean strict) throws IoxException {
+        this(inputStream, name, strict, Optional.empty());
+    }
+
+    /**
+     * Creates a new reader for LKMap INTERLIS transfer data, e.g. from the standard input.
+     * The stream is closed when this reader is closed.
+     * @param inputStream The stream to read from.
+     * @param name The name of the data used in log messages.
+     * @param strict If {@code true}, the data is read with the iox-ili reader instead of the streaming parser.
+     * @param projection The classes and attributes to read. Only applied by the streaming parser, the strict reader reads all objects.
+     * @throws IoxException If an error occurs while creating the transfer file reader.
+     */
+    public XtfStreamReader(InputStream inputStream, String name, boolean strict, Optional<AttributeProjection> projection) throws IoxException {
+        this.input = new CountingInputStream(new BufferedInputStream(inputStream));
+        try {
+            this.reader = strict ? createStrictReader(input) : createStreamingReader(input, projection);
+        } catch (IoxException e) {
+            try {
+                input.close();
+            } catch (IOException closeException) {
+                e.addSuppressed(closeException);
+            }
+            throw e;
+        }
+        this.filename = name;
+    }
+
+    private static EventSource createStrictReader(InputStream input) throws IoxException {
+        IoxReader xtfReader = new XtfReader(input);
+        return new EventSource() {
+            @Override
+            public IoxEvent read() throws IoxException {
+                return xtfReader.read();
+            }
+
+            @Override
+            public void close() throws IoxException {
+                xtfReader.close();
+            }
+        };
+    }
+
+    private static EventSource createStreamingReader(InputStream input, Optional<AttributeProjection> projection) throws IoxException {
+        var parser = new StreamingXtfParser(input, projection);
+        return new EventSource() {
+            @Override
+            public IoxEvent read() throws IoxException {
+                return parser.read();
+            }
+
+            @Override
+            public void close() throws IoxException {
+                parser.close();
+            }
+
+            @Override
+            public int getSkippedObjects() {
+                return parser.getSkippedObjects();
+            }
+
+            @Override
+            public long getSkippedBytes() {
+                return parser.getSkippedBytes();
+            }
+
+            @Override
+            public Map<String, Integer> getSkippedTags() {
+                return parser.getSkippedTags();
+            }
+        };
+    }
+
+    /**
+     * Get the number of bytes read from the transfer file so far. May be called from any thread.
+     */
+    public long getBytesRead() {
+        return input.getCount();
+    }
+
+    /**
+     * Get the number of objects skipped so far because their class is not included in the projection.
+     */
+    public int getSkippedObjects() {
+        return reader.getSkippedObjects();
+    }
+
+    /**
+     * Get the approximate number of bytes of the skipped objects, see {@link #getSkippedObjects()}.
+     */
+    public long getSkippedBytes() {
+        return reader.getSkippedBytes();
+    }
+
+    /**
+     * Get the number of skipped objects per class, see {@link #getSkippedObjects()}.
+     */
+    public Map<String, Integer> getSkippedTags() {
+        return reader.getSkippedTags();
+    }
+
+    /**
+     * Get the number of objects passed to the stream returned by {@link #readObjects()} so far.
+     */
+    public int getReadObjects() {
+        return readObjects;
+    }
+
+    /**
+     * Get the number of baskets whose objects have all been passed to the stream returned by {@link #readObjects()}.
+     * The number is increased before the first object of the next basket is passed to the stream.
+     */
+    public int getCompletedBaskets() {
+        return completedBaskets;
     }
 
     /**
@@ -61,7 +229,32 @@ public final class XtfStreamReader implements AutoCloseable {
 
     @Override
     public void close() throws Exception {
-        reader.close();
+        try {
+            reader.close();
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * The events of the transfer, read either by iox-ili or by the streaming parser.
+     */
+    private interface EventSource {
+        IoxEvent read() throws IoxException;
+
+        void close() throws IoxException;
+
+        default int getSkippedObjects() {
+            return 0;
+        }
+
+        default long getSkippedBytes() {
+            return 0;
+        }
+
+        default Map<String, Integer> getSkippedTags() {
+            return Map.of();
+        }
     }
 
     private enum LKMapXtfReaderState {
@@ -95,11 +288,16 @@ public final class XtfStreamReader implements AutoCloseable {
                             }
                             state = LKMapXtfReaderState.BASKET;
                             LOGGER.info("Start basket \"{}\"", startBasketEvent.getBid());
+                            basketEvent = new ReadBasketEvent(filename, startBasketEvent.getBid());
+                            basketStartBytes = input.getCount();
+                            basketEvent.begin();
                         }
                         case ObjectEvent objectEvent -> {
                             if (state != LKMapXtfReaderState.BASKET) {
                                 throw new IllegalStateException("Unexpected object event in state: " + state);
                             }
+                            basketEvent.countObject();
+                            readObjects++;
                             action.accept(objectEvent.getIomObject());
                             return true;
                         }
@@ -109,6 +307,10 @@ public final class XtfStreamReader implements AutoCloseable {
                             }
                             state = LKMapXtfReaderState.TRANSFER;
                             LOGGER.info("End basket");
+                            basketEvent.setBytesRead(input.getCount() - basketStartBytes);
+                            basketEvent.commit();
+                            basketEvent = null;
+                            completedBaskets++;
                         }
                         case EndTransferEvent ignored -> {
                             if (state != LKMapXtfReaderState.TRANSFER) {
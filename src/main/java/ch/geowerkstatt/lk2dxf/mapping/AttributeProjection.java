@@ -0,0 +1,43 @@
+package ch.geowerkstatt.lk2dxf.mapping;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The attributes and roles the {@link ObjectMapper} reads from the objects of each class.
+ * A reader may leave out all other attributes without changing the result of the mapping.
+ *
+ * @param attributes The names of the attributes and roles per object tag.
+ */
+public record AttributeProjection(Map<String, Set<String>> attributes) {
+    /**
+     * Creates a new projection with an immutable copy of the attributes.
+     */
+    public AttributeProjection {
+        attributes = attributes.entrySet().stream().collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, e -> Set.copyOf(e.getValue())));
+    }
+
+    /**
+     * Checks whether objects with the given tag are used by the mapping, either because their class is mapped to a layer
+     * or because they are the target of a reference that is resolved while mapping other objects.
+     * All other objects can be skipped without changing the result of the mapping.
+     *
+     * @param tag The qualified class name of the object.
+     * @return {@code true} if the objects of the class are required.
+     */
+    public boolean includes(String tag) {
+        return attributes.containsKey(tag);
+    }
+
+    /**
+     * Get the names of the attributes and roles required for objects with the given tag.
+     * Objects of classes that are not mapped need no attributes at all.
+     *
+     * @param tag The qualified class name of the object.
+     * @return The required attribute and role names.
+     */
+    public Set<String> getAttributes(String tag) {
+        return attributes.getOrDefault(tag, Set.of());
+    }
+}
@@ -0,0 +1,72 @@
+package ch.geowerkstatt.lk2dxf.mapping;
+
+/**
+ * Counts the evaluations of a single filter of a layer mapping and estimates its cost per rejected object.
+ * The duration is only measured for every {@link #SAMPLE_INTERVAL}th evaluation, which keeps the overhead of the
+ * measurement small compared to cheap filters like the object class check.
+ */
+final class FilterCounter {
+    /**
+     * The number of evaluations per measured evaluation.
+     */
+    static final int SAMPLE_INTERVAL = 32;
+
+    private final String layer;
+    private final String objectClass;
+    private final String filter;
+    private long evaluations;
+    private long rejections;
+    private long unresolved;
+    private long sampledNanos;
+    private long samples;
+
+    FilterCounter(String layer, String objectClass, String filter) {
+        this.layer = layer;
+        this.objectClass = objectClass;
+        this.filter = filter;
+    }
+
+    /**
+     * Checks whether the duration of the next evaluation should be measured.
+     */
+    boolean isSampled() {
+        return evaluations % SAMPLE_INTERVAL == 0;
+    }
+
+    /**
+     * Counts an evaluation of the filter.
+     * @param rejected Whether the filter did not match the object.
+     * @param unresolvedReference Whether the filter could not be evaluated because of an unresolved reference.
+     */
+    void count(boolean rejected, boolean unresolvedReference) {
+        evaluations++;
+        if (rejected) {
+            rejections++;
+        } else if (unresolvedReference) {
+            unresolved++;
+        }
+    }
+
+    /**
+     * Adds the measured duration of an evaluation.
+     */
+    void addSample(long nanos) {
+        sampledNanos += nanos;
+        samples++;
+    }
+
+    /**
+     * Get the average time spent per rejected object, the expected cost to reject an object with this filter.
+     * Filters that never rejected an object or were never measured have infinite cost.
+     */
+    double getCostPerRejection() {
+        if (rejections == 0 || samples == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return (double) sampledNanos / samples * evaluations / rejections;
+    }
+
+    MappingStatistics.FilterStatistics toStatistics() {
+        return new MappingStatistics.FilterStatistics(layer, objectClass, filter, evaluations, rejections, unresolved, samples == 0 ? 0 : (double) sampledNanos / samples);
+    }
+}
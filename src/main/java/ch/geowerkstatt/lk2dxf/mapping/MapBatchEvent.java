@@ -0,0 +1,75 @@
+package ch.geowerkstatt.lk2dxf.mapping;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A flight recorder event covering a batch of objects passed through {@link ObjectMapper#mapObjects(java.util.stream.Stream, MappingStatistics)}
+ * in the order they were read.
+ */
+@Name("ch.geowerkstatt.lk2dxf.MapBatch")
+@Label("Map Batch")
+@Category({"lk2dxf", "Mapping"})
+@Description("A batch of objects assigned to layers, the duration includes the lazily pipelined reading and writing")
+final class MapBatchEvent extends jdk.jfr.Event {
+    @Label("Objects")
+    private int objectCount;
+
+    @Label("Mapping Time")
+    @Description("The time spent assigning the objects to layers")
+    @Timespan
+    private long mappingTime;
+
+    @Label("Mapped Objects")
+    private int mappedObjects;
+
+    @Label("Unmapped Objects")
+    private int unmappedObjects;
+
+    @Label("Deferred Objects")
+    private int deferredObjects;
+
+    @Label("Cached Objects")
+    private int cachedObjects;
+
+    private final transient MappingStatistics statistics;
+    private final transient int mappedBefore;
+    private final transient int unmappedBefore;
+    private final transient int deferredBefore;
+    private final transient int cachedBefore;
+
+    MapBatchEvent(MappingStatistics statistics) {
+        this.statistics = statistics;
+        this.mappedBefore = statistics.getMappedObjects();
+        this.unmappedBefore = statistics.getUnmappedObjects();
+        this.deferredBefore = statistics.getDeferredObjects();
+        this.cachedBefore = statistics.getCachedObjects();
+    }
+
+    /**
+     * Counts an object of the batch.
+     * @param nanos The time spent mapping the object.
+     * @return The number of objects in the batch.
+     */
+    int countObject(long nanos) {
+        mappingTime += nanos;
+        return ++objectCount;
+    }
+
+    /**
+     * Ends the batch and commits the event with the changes of the statistics since the batch was started.
+     */
+    void complete() {
+        end();
+        if (shouldCommit()) {
+            mappedObjects = statistics.getMappedObjects() - mappedBefore;
+            unmappedObjects = statistics.getUnmappedObjects() - unmappedBefore;
+            deferredObjects = statistics.getDeferredObjects() - deferredBefore;
+            cachedObjects = statistics.getCachedObjects() - cachedBefore;
+            commit();
+        }
+    }
+}
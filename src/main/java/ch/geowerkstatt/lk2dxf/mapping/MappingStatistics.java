@@ -0,0 +1,224 @@
+package ch.geowerkstatt.lk2dxf.mapping;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Counts the objects processed by {@link ObjectMapper#mapObjects(Stream, MappingStatistics)}.
+ * The statistics of a stream are complete once the stream has been consumed.
+ * <p>
+ * Objects that are not written are counted per object class and {@link Reason} together with a sample of their OIDs,
+ * so they can be summarized at the end instead of being logged one by one.
+ */
+public final class MappingStatistics {
+    /**
+     * The maximum number of OIDs kept per object class and reason.
+     */
+    public static final int SAMPLE_SIZE = 5;
+
+    private final Map<IssueKey, IssueSample> issues = new HashMap<>();
+    private final List<FilterCounter> filterCounters = new ArrayList<>();
+    private int mappedObjects;
+    private int unmappedObjects;
+    private int deferredObjects;
+    private int cachedObjects;
+    private int releasedObjects;
+    private int foreignReferences;
+
+    /**
+     * Get the number of objects that were assigned to a layer.
+     */
+    public int getMappedObjects() {
+        return mappedObjects;
+    }
+
+    /**
+     * Get the number of objects that did not match any layer mapping or could not be mapped.
+     */
+    public int getUnmappedObjects() {
+        return unmappedObjects;
+    }
+
+    /**
+     * Get the number of objects whose mapping was deferred until the end of their basket or until all objects were read,
+     * because they reference objects that were not read yet.
+     */
+    public int getDeferredObjects() {
+        return deferredObjects;
+    }
+
+    /**
+     * Get the number of objects kept in the cache used to resolve references.
+     */
+    public int getCachedObjects() {
+        return cachedObjects;
+    }
+
+    /**
+     * Get the number of cached objects that were released at the end of their basket, because they can only be referenced from within the basket.
+     */
+    public int getReleasedObjects() {
+        return releasedObjects;
+    }
+
+    /**
+     * Get the number of references that were resolved through an object of another stream sharing the reference index,
+     * e.g. an object of another input file.
+     */
+    public int getForeignReferences() {
+        return foreignReferences;
+    }
+
+    /**
+     * Get the objects that were not written, grouped by object class and reason and ordered by descending count.
+     */
+    public List<Issue> getIssues() {
+        return issues.entrySet().stream()
+                .map(entry -> new Issue(entry.getKey().objectTag(), entry.getKey().reason(), entry.getValue().count, List.copyOf(entry.getValue().sampleOids), entry.getValue().message))
+                .sorted(Comparator.comparingInt(Issue::count).reversed().thenComparing(Issue::objectTag).thenComparing(Issue::reason))
+                .toList();
+    }
+
+    /**
+     * Get the evaluation counts of the filters of all layer mappings, in the order of the layer mappings.
+     */
+    public List<FilterStatistics> getFilterStatistics() {
+        return filterCounters.stream().map(FilterCounter::toStatistics).toList();
+    }
+
+    /**
+     * Counts an object that was mapped to a layer but could not be written to the DXF file.
+     * @param layer The layer of the object.
+     * @param oid The OID of the object.
+     * @param message The error message.
+     */
+    public void countWriteFailure(String layer, String oid, String message) {
+        countIssue(layer, Reason.WRITE_FAILED, oid, message);
+    }
+
+    void countMapped() {
+        mappedObjects++;
+    }
+
+    void countUnmapped(String objectTag, Reason reason, String oid) {
+        unmappedObjects++;
+        countIssue(objectTag, reason, oid, null);
+    }
+
+    private void countIssue(String objectTag, Reason reason, String oid, String message) {
+        var sample = issues.computeIfAbsent(new IssueKey(objectTag, reason), key -> new IssueSample(message));
+        sample.count++;
+        if (sample.sampleOids.size() < SAMPLE_SIZE) {
+            sample.sampleOids.add(oid);
+        }
+    }
+
+    void countDeferred() {
+        deferredObjects++;
+    }
+
+    void countCached() {
+        cachedObjects++;
+    }
+
+    void countReleased(int count) {
+        releasedObjects += count;
+    }
+
+    void countForeignReference() {
+        foreignReferences++;
+    }
+
+    FilterCounter addFilter(String layer, String objectClass, String filter) {
+        var counter = new FilterCounter(layer, objectClass, filter);
+        filterCounters.add(counter);
+        return counter;
+    }
+
+    /**
+     * The reason why an object was not written to the DXF file.
+     */
+    public enum Reason {
+        /**
+         * The object class does not exist in the model.
+         */
+        UNKNOWN_CLASS("class not found in the model"),
+
+        /**
+         * The object tag refers to a model element that is not a class.
+         */
+        NOT_A_CLASS("element is not a class"),
+
+        /**
+         * No layer mapping matches the object.
+         */
+        NO_MATCH("no matching layer mapping"),
+
+        /**
+         * The object was mapped to a layer, but could not be written.
+         */
+        WRITE_FAILED("failed to write to the DXF file");
+
+        private final String description;
+
+        Reason(String description) {
+            this.description = description;
+        }
+
+        /**
+         * Get a human-readable description of the reason.
+         */
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    /**
+     * The objects of a class that were not written for the same reason.
+     *
+     * @param objectTag The qualified name of the object class, or the layer for {@link Reason#WRITE_FAILED}.
+     * @param reason The reason why the objects were not written.
+     * @param count The number of objects.
+     * @param sampleOids The OIDs of the first objects, at most {@link #SAMPLE_SIZE}.
+     * @param message The error message of the first object, or {@code null} if the reason has no message.
+     */
+    public record Issue(String objectTag, Reason reason, int count, List<String> sampleOids, String message) {
+    }
+
+    /**
+     * The evaluations of a single filter of a layer mapping.
+     *
+     * @param layer The layer of the mapping.
+     * @param objectClass The qualified name of the object class the filter applies to.
+     * @param filter A description of the filter, either the object class or an attribute path with the accepted values.
+     * @param evaluations The number of objects the filter was evaluated for.
+     * @param rejections The number of objects that did not match the filter.
+     * @param unresolved The number of objects whose reference could not be resolved yet.
+     * @param averageNanos The average duration of a sample of the evaluations.
+     */
+    public record FilterStatistics(String layer, String objectClass, String filter, long evaluations, long rejections, long unresolved, double averageNanos) {
+        /**
+         * Get the share of the evaluated objects that did not match the filter.
+         */
+        public double rejectRate() {
+            return evaluations == 0 ? 0 : (double) rejections / evaluations;
+        }
+    }
+
+    private record IssueKey(String objectTag, Reason reason) {
+    }
+
+    private static final class IssueSample {
+        private final List<String> sampleOids = new ArrayList<>(SAMPLE_SIZE);
+        private final String message;
+        private int count;
+
+        IssueSample(String message) {
+            this.message = message;
+        }
+    }
+}
@@ -29,19 +29,29 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public final class ObjectMapper {
     private static final String MODELS_RESOURCE = "/models";
+    private static final int EVENT_BATCH_SIZE = 1024;
+    private static final int REORDER_INTERVAL = 1024;
     private static final Logger LOGGER = LogManager.getLogger();
 
     private final List<LayerMapping> layerMappings;
     private final TransferDescription transferDescription;
 
     private final Map<AbstractClassDef<?>, Set<PathElement>> cacheRequirements = new HashMap<>();
+    private final Map<AbstractClassDef<?>, List<AttributePath>> cachePaths = new HashMap<>();
+    private final Set<AbstractClassDef<?>> crossBasketTargets = new HashSet<>();
+    private final Map<List<PathElement>, Integer> prefixIds = new HashMap<>();
+    private final ThreadLocal<ResolveScratch> resolveScratch = ThreadLocal.withInitial(() -> new ResolveScratch(prefixIds.size()));
     private final List<Mapper> filters = new ArrayList<>();
+    private final Map<String, Set<String>> projectedAttributes = new HashMap<>();
+    private final AttributeProjection attributeProjection;
 
     /**
      * Create a new {@link ObjectMapper} with the default mappings.
@@ -59,10 +69,11 @@ public final class ObjectMapper {
         this.layerMappings = layerMappings;
         transferDescription = getTransferDescription(layerMappings);
         analyzeLayerMappings();
+        attributeProjection = new AttributeProjection(projectedAttributes);
     }
 
     /**
-     * Analyze the layer mappings and populate the {@link #filters} and {@link #cacheRequirements}.
+     * Analyze the layer mappings and populate the {@link #filters}, {@link #cacheRequirements} and {@link #projectedAttributes}.
      */
     private void analyzeLayerMappings() {
         for (LayerMapping layerMapping : layerMappings) {
@@ -81,33 +92,36 @@ public final class ObjectMapper {
                 for (var baseAttributeName : layerMapping.mapping().keySet()) {
                     var values = layerMapping.mapping().get(baseAttributeName);
                     var pathElements = getTranslatedPath(classDef, Arrays.asList(baseAttributeName.split("->")));
-                    analyzeCacheRequirements(pathElements, cacheRequirements);
+                    analyzeCacheRequirements(pathElements);
                     var type = ((AttributeDef) pathElements.getLast().element).getDomainResolvingAliases();
                     if (!(type instanceof EnumerationType enumerationType)) {
                         throw new IllegalArgumentException("Only enumeration types supported: " + baseAttributeName);
                     }
 
-                    var attrFilter = new PathMatcher(pathElements, values.stream().map(v -> getTranslatedEnumValue(enumerationType, v)).toList());
+                    var attrFilter = new PathMatcher(createPath(pathElements), values.stream().map(v -> getTranslatedEnumValue(enumerationType, v)).toList());
                     filter.add(attrFilter);
                 }
 
                 // translate attributes
                 var mapper = switch (layerMapping.output()) {
-                    case SURFACE, LINE -> new Mapper(filter,
+                    case SURFACE, LINE -> new Mapper(classDef.getScopedName(),
+                            filter,
                             layerMapping,
                             getAndAnalyzeTranslatedPath(classDef, layerMapping.geometry()),
                             null,
                             null,
                             null,
                             null);
-                    case TEXT -> new Mapper(filter,
+                    case TEXT -> new Mapper(classDef.getScopedName(),
+                            filter,
                             layerMapping,
                             getAndAnalyzeTranslatedPath(classDef, layerMapping.geometry()),
                             getAndAnalyzeTranslatedPath(classDef, layerMapping.orientation()),
                             getAndAnalyzeTranslatedPath(classDef, layerMapping.vAlign()),
                             getAndAnalyzeTranslatedPath(classDef, layerMapping.hAlign()),
                             getAndAnalyzeTranslatedPath(classDef, layerMapping.text()));
-                    case POINT -> new Mapper(filter,
+                    case POINT -> new Mapper(classDef.getScopedName(),
+                            filter,
                             layerMapping,
                             getAndAnalyzeTranslatedPath(classDef, layerMapping.geometry()),
                             getAndAnalyzeTranslatedPath(classDef, layerMapping.orientation()),
@@ -116,6 +130,45 @@ public final class ObjectMapper {
                             null);
                 };
                 filters.add(mapper);
+                addProjectedAttributes(classDef, mapper);
+            }
+        }
+
+        for (var entry : cacheRequirements.entrySet()) {
+            var attributes = projectedAttributes.computeIfAbsent(entry.getKey().getScopedName(), k -> new HashSet<>());
+            entry.getValue().forEach(pathElement -> attributes.add(pathElement.name()));
+            cachePaths.put(entry.getKey(), entry.getValue().stream().map(pathElement -> createPath(List.of(pathElement))).toList());
+        }
+    }
+
+    /**
+     * Create an {@link AttributePath} and assign an id to each of its prefixes. Equal prefixes of different paths get the same id,
+     * so the part of a path that was already resolved for an object can be reused by all other paths starting with it.
+     */
+    private AttributePath createPath(List<PathElement> elements) {
+        var ids = new int[elements.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = prefixIds.computeIfAbsent(List.copyOf(elements.subList(0, i + 1)), k -> prefixIds.size());
+        }
+        return new AttributePath(List.copyOf(elements), ids);
+    }
+
+    /**
+     * Add the first elements of all paths the mapper resolves on objects of the class to the {@link #projectedAttributes}.
+     * Structures are always read completely, so the first element of a path is sufficient.
+     */
+    private void addProjectedAttributes(AbstractClassDef<?> classDef, Mapper mapper) {
+        var attributes = projectedAttributes.computeIfAbsent(classDef.getScopedName(), k -> new HashSet<>());
+        var paths = new ArrayList<AttributePath>();
+        for (var filter : mapper.filter()) {
+            if (filter instanceof PathMatcher pathMatcher) {
+                paths.add(pathMatcher.path());
+            }
+        }
+        paths.addAll(Arrays.asList(mapper.geometry(), mapper.orientation(), mapper.vAlign(), mapper.hAlign(), mapper.text()));
+        for (var path : paths) {
+            if (path != null) {
+                attributes.add(path.elements().getFirst().name());
             }
         }
     }
@@ -134,79 +187,101 @@ public final class ObjectMapper {
         return transferDescription;
     }
 
+    /**
+     * Get the attributes and roles that are read from the objects while mapping them.
+     * Objects read with this projection are mapped to the same result as the complete objects.
+     */
+    public AttributeProjection getAttributeProjection() {
+        return attributeProjection;
+    }
+
     private static boolean matchesEnumSubValue(List<String> allowedValues, String attrValue) {
         return allowedValues.stream().anyMatch(value -> attrValue.startsWith(value + "."));
     }
 
     /**
      * Resolve the value of the given path in the given {@link IomObject}.
+     * The outcome of each prefix of the path is kept in the scratch, so prefixes shared with other paths are resolved only once per object.
      *
      * @param iomObject   The {@link IomObject} to resolve the path in.
      * @param path        The path to resolve.
-     * @param objectCache The cache of objects to resolve references.
+     * @param references  The cached objects to resolve references.
+     * @param scratch     The outcomes of the prefixes already resolved for the object.
      * @return The resolved value. If the path could not be resolved, {@link Value#createUndefined()} is returned. If the
      * path fails to resolve because a reference was not found in the cache, {@link Value#createSkipEvaluation()} is returned.
      */
-    private static Value resolve(IomObject iomObject, List<PathElement> path, Map<String, IomObject> objectCache) {
+    private static Value resolve(IomObject iomObject, AttributePath path, ReferenceState references, ResolveScratch scratch) {
         if (path == null) {
             return Value.createUndefined();
         }
 
         var current = iomObject;
-        for (var element : path) {
-            if (current == null) {
-                break;
-            }
-            switch (element.resolution) {
-                case ATTRIBUTE -> {
-                    var value = current.getattrvalue(element.name());
-                    if (value != null) {
-                        return new Value(null, value);
-                    } else {
-                        var complexValue = current.getattrobj(element.name(), 0);
-                        if (complexValue != null) {
-                            return new Value(List.of(complexValue));
-                        } else {
-                            return Value.createUndefined();
-                        }
-                    }
-                }
-                case REFERENCE -> {
-                    var refOid = Optional.ofNullable(current.getattrobj(element.name(), 0)).map(IomObject::getobjectrefoid);
-                    if (refOid.isEmpty()) {
-                        current = null;
-                    } else {
-                        current = objectCache.get(refOid.get());
-                        if (current == null) {
-                            return Value.createSkipEvaluation();
-                        }
-                    }
-                }
-                case STRUCTURE -> {
-                    current = current.getattrobj(element.name(), 0);
-                }
-                default -> throw new AssertionError("Unexpected value: " + element.resolution);
+        var elements = path.elements();
+        for (int i = 0; i < elements.size(); i++) {
+            int prefixId = path.prefixIds()[i];
+            var outcome = scratch.get(prefixId);
+            if (outcome == null) {
+                outcome = resolveElement(current, elements.get(i), references);
+                scratch.put(prefixId, outcome);
+            }
+            if (outcome instanceof Value value) {
+                return value;
             }
+            current = (IomObject) outcome;
         }
 
-        if (current != null) {
-            return new Value(List.of(current));
-        } else {
-            return Value.createUndefined();
+        return new Value(List.of(current));
+    }
+
+    /**
+     * Resolve a single element of a path.
+     *
+     * @return The resolved {@link Value} if the path ends at this element or cannot be resolved any further,
+     * otherwise the {@link IomObject} to resolve the next element in.
+     */
+    private static Object resolveElement(IomObject current, PathElement element, ReferenceState references) {
+        switch (element.resolution) {
+            case ATTRIBUTE -> {
+                var value = current.getattrvalue(element.name());
+                if (value != null) {
+                    return new Value(null, value);
+                }
+                var complexValue = current.getattrobj(element.name(), 0);
+                return complexValue != null ? new Value(List.of(complexValue)) : Value.createUndefined();
+            }
+            case REFERENCE -> {
+                var ref = current.getattrobj(element.name(), 0);
+                var refOid = ref != null ? ref.getobjectrefoid() : null;
+                if (refOid == null) {
+                    return Value.createUndefined();
+                }
+                var referenced = references.get(refOid);
+                return referenced != null ? referenced : Value.createSkipEvaluation();
+            }
+            case STRUCTURE -> {
+                var structure = current.getattrobj(element.name(), 0);
+                return structure != null ? structure : Value.createUndefined();
+            }
+            default -> throw new AssertionError("Unexpected value: " + element.resolution);
         }
     }
 
     /**
      * Analyze a path for references that need a referenced object in the cache. Update the {@link #cacheRequirements} accordingly.
+     * Classes referenced by an {@code EXTERNAL} role are added to the {@link #crossBasketTargets}, other references must stay within the basket.
      */
-    private static void analyzeCacheRequirements(List<PathElement> path, Map<AbstractClassDef<?>, Set<PathElement>> cacheRequirements) {
+    private void analyzeCacheRequirements(List<PathElement> path) {
         for (int i = 0; i < path.size(); i++) {
             var pathElement = path.get(i);
             if (pathElement.resolution == PathElement.Resolution.REFERENCE) {
-                var it = ((RoleDef) pathElement.element).iteratorDestination();
+                var roleDef = (RoleDef) pathElement.element;
+                var it = roleDef.iteratorDestination();
                 while (it.hasNext()) {
                     for (var extension : it.next().getExtensions()) {
                         cacheRequirements.computeIfAbsent((AbstractClassDef<?>) extension, k -> new HashSet<>()).add(path.get(i + 1));
+                        if (roleDef.isExternal()) {
+                            crossBasketTargets.add((AbstractClassDef<?>) extension);
+                        }
                     }
                 }
             }
@@ -217,10 +292,10 @@ public final class ObjectMapper {
      * Get the translated path elements for the given attribute path. Analyzes the path for cache requirements.
      * @see #getTranslatedPath(AbstractClassDef, List)
      */
-    private List<PathElement> getAndAnalyzeTranslatedPath(AbstractClassDef<?> viewable, String basePathElements) {
+    private AttributePath getAndAnalyzeTranslatedPath(AbstractClassDef<?> viewable, String basePathElements) {
         var path = getTranslatedPath(viewable, Arrays.asList(basePathElements.split("->")));
-        analyzeCacheRequirements(path, cacheRequirements);
-        return path;
+        analyzeCacheRequirements(path);
+        return createPath(path);
     }
 
     /**
@@ -362,14 +437,128 @@ public final class ObjectMapper {
      * @return A stream of mapped objects.
      */
     public Stream<MappedObject> mapObjects(Stream<IomObject> iomObjects) {
-        final Map<String, IomObject> objectCache = new HashMap<>();
-        final Set<IomObject> objectsWithUnresolvedRef = new HashSet<>();
+        return mapObjects(iomObjects, new MappingStatistics());
+    }
+
+    /**
+     * Maps the given {@link IomObject} stream to a stream containing their layer information.
+     * Objects referencing objects that were not read yet are mapped after all objects were read.
+     *
+     * @param iomObjects The {@link IomObject} stream to map.
+     * @param statistics Counts the processed objects while the returned stream is consumed.
+     * @return A stream of mapped objects.
+     */
+    public Stream<MappedObject> mapObjects(Stream<IomObject> iomObjects, MappingStatistics statistics) {
+        return mapObjects(iomObjects, statistics, () -> 0);
+    }
+
+    /**
+     * Maps the given {@link IomObject} stream to a stream containing their layer information.
+     * <p>
+     * Objects referencing objects that were not read yet are deferred until the end of their basket. There, they are mapped.
+     * Objects that still cannot be resolved reference an object of another basket, they are retried at the end of every further
+     * basket and mapped after all objects were read. All cached objects are kept until all objects were read.
+     *
+     * @param iomObjects       The {@link IomObject} stream to map.
+     * @param statistics       Counts the processed objects while the returned stream is consumed.
+     * @param completedBaskets Supplies the number of baskets whose objects have all been passed to the stream, e.g. {@link ch.geowerkstatt.lk2dxf.XtfStreamReader#getCompletedBaskets()}.
+     * @return A stream of mapped objects.
+     */
+    public Stream<MappedObject> mapObjects(Stream<IomObject> iomObjects, MappingStatistics statistics, IntSupplier completedBaskets) {
+        return mapObjects(iomObjects, statistics, completedBaskets, new ReferenceState(new HashMap<>(), false), null);
+    }
+
+    /**
+     * Maps the given {@link IomObject} stream to a stream containing their layer information, releasing the cached objects
+     * at the end of their basket.
+     * <p>
+     * Objects referencing objects that were not read yet are deferred until the end of their basket. There, they are mapped
+     * and the cached objects that can only be referenced through roles that are not {@code EXTERNAL} are released.
+     * Objects that still cannot be resolved are retried at the end of every further basket. If they reference a released object
+     * of an earlier basket, they are passed to {@code unresolved} after all objects were read. These objects can be mapped by
+     * reading the objects again with {@link #indexObjects(Stream, Map)} and passing the index to
+     * {@link #mapObjects(Stream, MappingStatistics, IntSupplier, Map, Consumer)}.
+     *
+     * @param iomObjects       The {@link IomObject} stream to map.
+     * @param statistics       Counts the processed objects while the returned stream is consumed.
+     * @param completedBaskets Supplies the number of baskets whose objects have all been passed to the stream, e.g. {@link ch.geowerkstatt.lk2dxf.XtfStreamReader#getCompletedBaskets()}.
+     * @param unresolved       Receives the objects with unresolved references.
+     * @return A stream of mapped objects.
+     */
+    public Stream<MappedObject> mapObjects(Stream<IomObject> iomObjects, MappingStatistics statistics, IntSupplier completedBaskets, Consumer<IomObject> unresolved) {
+        return mapObjects(iomObjects, statistics, completedBaskets, new ReferenceState(new HashMap<>(), true), Objects.requireNonNull(unresolved));
+    }
+
+    /**
+     * Maps the given {@link IomObject} stream to a stream containing their layer information, resolving references through an index
+     * shared with other streams, e.g. with the other input files of a run.
+     * <p>
+     * The referenced objects of the stream are added to the index and are not released at the end of their basket,
+     * because they may be referenced by the objects of another stream. Objects whose references cannot be resolved
+     * after all objects of the stream were read are passed to {@code unresolved}. Once all streams fed the index,
+     * these objects can be mapped by another call with the same index. References resolved through an object of another stream
+     * are counted by {@link MappingStatistics#getForeignReferences()}.
+     *
+     * @param iomObjects       The {@link IomObject} stream to map.
+     * @param statistics       Counts the processed objects while the returned stream is consumed.
+     * @param completedBaskets Supplies the number of baskets whose objects have all been passed to the stream.
+     * @param referenceIndex   The referenced objects of all streams by OID. The streams have to be mapped one after the other.
+     * @param unresolved       Receives the objects with unresolved references, or {@code null} to fail on such objects.
+     * @return A stream of mapped objects.
+     */
+    public Stream<MappedObject> mapObjects(Stream<IomObject> iomObjects, MappingStatistics statistics, IntSupplier completedBaskets, Map<String, IomObject> referenceIndex, Consumer<IomObject> unresolved) {
+        return mapObjects(iomObjects, statistics, completedBaskets, new ReferenceState(Objects.requireNonNull(referenceIndex), statistics), unresolved);
+    }
 
-        // Combine streams using flatMap instead of concat to process objectsWithRef
+    /**
+     * Adds the objects of the given stream that may be referenced by mapped objects to the index, without mapping any object.
+     *
+     * @param iomObjects     The {@link IomObject} stream to index.
+     * @param referenceIndex Receives the referenced objects by OID.
+     */
+    public void indexObjects(Stream<IomObject> iomObjects, Map<String, IomObject> referenceIndex) {
+        var references = new ReferenceState(referenceIndex, false);
+        iomObjects.forEach(iomObject -> {
+            if (transferDescription.getElement(iomObject.getobjecttag()) instanceof AbstractClassDef<?> classDef) {
+                var scratch = resolveScratch.get();
+                scratch.startObject();
+                cacheObject(iomObject, classDef, references, scratch);
+            }
+        });
+    }
+
+    private Stream<MappedObject> mapObjects(Stream<IomObject> iomObjects, MappingStatistics statistics, IntSupplier completedBaskets, ReferenceState references, Consumer<IomObject> unresolved) {
+        final FilterPlan filterPlan = new FilterPlan(statistics);
+        final Consumer<IomObject> deferToBasketEnd = iomObject -> {
+            references.basketDeferred.add(iomObject);
+            statistics.countDeferred();
+        };
+
+        // Combine streams using flatMap instead of concat to process the deferred objects
         // after all objects have been processed by the first stream.
+        // flatMap closes the inner streams, which completes the flight recorder events of each phase.
         var combinedStream = Stream.<Supplier<Stream<Optional<MappedObject>>>>of(
-                () -> iomObjects.map(b -> mapObject(b, objectCache, objectsWithUnresolvedRef, true)),
-                () -> objectsWithUnresolvedRef.stream().map(b -> mapObject(b, objectCache, objectsWithUnresolvedRef, false))
+                () -> {
+                    var batchRecorder = new BatchRecorder(statistics);
+                    return iomObjects
+                            .<Optional<MappedObject>>mapMulti((b, downstream) -> {
+                                int baskets = completedBaskets.getAsInt();
+                                if (baskets != references.resolvedBaskets) {
+                                    references.resolvedBaskets = baskets;
+                                    resolveBasket(references, filterPlan, statistics).forEach(downstream);
+                                }
+                                downstream.accept(batchRecorder.record(() -> mapObject(b, references, filterPlan, deferToBasketEnd, statistics)));
+                            })
+                            .onClose(batchRecorder::complete);
+                },
+                () -> {
+                    var deferred = references.takeDeferred();
+                    var event = new ResolveDeferredEvent(statistics, deferred.size());
+                    event.begin();
+                    return deferred.stream()
+                            .map(b -> mapObject(b, references, filterPlan, unresolved, statistics))
+                            .onClose(event::complete);
+                }
         ).flatMap(Supplier::get);
 
         return combinedStream
@@ -377,72 +566,381 @@ public final class ObjectMapper {
                 .map(Optional::get);
     }
 
-    private Optional<MappedObject> mapObject(IomObject iomObject, Map<String, IomObject> objectCache, Set<IomObject> objectsWithUnresolvedRef, boolean unresolvedReferencesAllowed) {
+    /**
+     * Maps the deferred objects at the end of a basket and releases the cached objects that can only be referenced from within the basket.
+     * Objects that are still unresolved are kept for the next basket end.
+     */
+    private List<Optional<MappedObject>> resolveBasket(ReferenceState references, FilterPlan filterPlan, MappingStatistics statistics) {
+        var deferred = references.takeDeferred();
+        var event = new ResolveDeferredEvent(statistics, deferred.size());
+        event.begin();
+        Consumer<IomObject> deferToNextBasket = references.crossBasketDeferred::add;
+        var result = new ArrayList<Optional<MappedObject>>(deferred.size());
+        for (var iomObject : deferred) {
+            result.add(mapObject(iomObject, references, filterPlan, deferToNextBasket, statistics));
+        }
+        statistics.countReleased(references.releaseBasket());
+        event.complete();
+        return result;
+    }
+
+    /**
+     * Maps a single object to the first matching layer mapping.
+     *
+     * @param deferral Receives the object if it references an object that is not cached yet, or {@code null} if all references must be resolved.
+     */
+    private Optional<MappedObject> mapObject(IomObject iomObject, ReferenceState references, FilterPlan filterPlan, Consumer<IomObject> deferral, MappingStatistics statistics) {
         var element = transferDescription.getElement(iomObject.getobjecttag());
         if (element == null) {
-            LOGGER.error("No element \"{}\" found for object with id \"{}\".", iomObject.getobjecttag(), iomObject.getobjectoid());
+            LOGGER.debug("No element \"{}\" found for object with id \"{}\".", iomObject.getobjecttag(), iomObject.getobjectoid());
+            statistics.countUnmapped(iomObject.getobjecttag(), MappingStatistics.Reason.UNKNOWN_CLASS, iomObject.getobjectoid());
             return Optional.empty();
         }
         if (!(element instanceof AbstractClassDef<?> classDef)) {
-            LOGGER.error("Element \"{}\" is not an AbstractClassDef for object with id \"{}\".", iomObject.getobjecttag(), iomObject.getobjectoid());
+            LOGGER.debug("Element \"{}\" is not an AbstractClassDef for object with id \"{}\".", iomObject.getobjecttag(), iomObject.getobjectoid());
+            statistics.countUnmapped(iomObject.getobjecttag(), MappingStatistics.Reason.NOT_A_CLASS, iomObject.getobjectoid());
             return Optional.empty();
         }
 
-        // cache part of the object if necessary
-        var pathElements = cacheRequirements.get(classDef);
-        if (pathElements != null) {
-            IomObject cacheObject = new Iom_jObject(iomObject.getobjecttag(), iomObject.getobjectoid());
-            for (var pathElement : pathElements) {
-                var value = resolve(iomObject, List.of(pathElement), objectCache);
-                if (value.skipEvaluation() || value.isUndefined()) {
-                    continue;
-                }
-                if (value.getValue() != null) {
-                    cacheObject.setattrvalue(pathElement.name, value.getValue());
-                } else if (value.getComplexObjects() != null) {
-                    cacheObject.addattrobj(pathElement.name, value.getComplexObjects().iterator().next());
-                }
-            }
-            objectCache.put(iomObject.getobjectoid(), cacheObject);
+        var scratch = resolveScratch.get();
+        scratch.startObject();
+
+        if (cacheObject(iomObject, classDef, references, scratch)) {
+            statistics.countCached();
         }
 
-        mapperLoop:
-        for (var mapper : filters) {
-            for (var filter : mapper.filter) {
-                switch (filter.matches(iomObject, objectCache)) {
-                    case UNRESOLVED_REF -> {
-                        if (unresolvedReferencesAllowed) {
-                            objectsWithUnresolvedRef.add(iomObject);
-                            return Optional.empty();
-                        } else {
-                            throw new IllegalStateException("Unresolved reference in object with id \"" + iomObject.getobjectoid() + "\".");
-                        }
-                    }
-                    case NO_MATCH -> {
-                        continue mapperLoop;
+        for (int i = 0; i < filters.size(); i++) {
+            var mapper = filters.get(i);
+            switch (filterPlan.matches(i, iomObject, references, scratch)) {
+                case UNRESOLVED_REF -> {
+                    if (deferral != null) {
+                        deferral.accept(iomObject);
+                        return Optional.empty();
+                    } else {
+                        throw new IllegalStateException("Unresolved reference in object with id \"" + iomObject.getobjectoid() + "\".");
                     }
-                    default -> { } // MATCH, continue with next filter
                 }
+                case NO_MATCH -> {
+                    continue;
+                }
+                default -> { } // MATCH, map the object
             }
 
             LOGGER.trace("Mapped object of type \"{}\" with id \"{}\" to layer \"{}\".", iomObject.getobjecttag(), iomObject.getobjectoid(), mapper.mapping().layer());
+            statistics.countMapped();
+            var geometry = resolve(iomObject, mapper.geometry(), references, scratch).getComplexObjects();
+            var orientation = resolve(iomObject, mapper.orientation(), references, scratch).getValue();
             return Optional.of(new MappedObject(
                     iomObject.getobjectoid(),
-                    Optional.ofNullable(resolve(iomObject, mapper.geometry(), objectCache).getComplexObjects()).map(Collection::iterator).map(Iterator::next).orElse(null),
-                    Optional.ofNullable(resolve(iomObject, mapper.orientation(), objectCache).getValue()).map(Double::parseDouble).orElse(null),
-                    resolve(iomObject, mapper.vAlign(), objectCache).getValue(),
-                    resolve(iomObject, mapper.hAlign(), objectCache).getValue(),
-                    resolve(iomObject, mapper.text(), objectCache).getValue(),
+                    geometry != null ? geometry.iterator().next() : null,
+                    orientation != null ? Double.valueOf(orientation) : null,
+                    resolve(iomObject, mapper.vAlign(), references, scratch).getValue(),
+                    resolve(iomObject, mapper.hAlign(), references, scratch).getValue(),
+                    resolve(iomObject, mapper.text(), references, scratch).getValue(),
                     mapper.mapping()));
         }
 
         // no match found
-        LOGGER.warn("No match found for object of type \"{}\" with id \"{}\".", iomObject.getobjecttag(), iomObject.getobjectoid());
+        LOGGER.debug("No match found for object of type \"{}\" with id \"{}\".", iomObject.getobjecttag(), iomObject.getobjectoid());
+        statistics.countUnmapped(iomObject.getobjecttag(), MappingStatistics.Reason.NO_MATCH, iomObject.getobjectoid());
         return Optional.empty();
     }
 
+    /**
+     * Caches the part of the object that is referenced by the layer mappings, if any.
+     * @return {@code true} if the object was not cached before.
+     */
+    private boolean cacheObject(IomObject iomObject, AbstractClassDef<?> classDef, ReferenceState references, ResolveScratch scratch) {
+        var paths = cachePaths.get(classDef);
+        if (paths == null) {
+            return false;
+        }
+
+        IomObject cacheObject = new Iom_jObject(iomObject.getobjecttag(), iomObject.getobjectoid());
+        for (var path : paths) {
+            var value = resolve(iomObject, path, references, scratch);
+            if (value.skipEvaluation() || value.isUndefined()) {
+                continue;
+            }
+            var name = path.elements().getFirst().name();
+            if (value.getValue() != null) {
+                cacheObject.setattrvalue(name, value.getValue());
+            } else if (value.getComplexObjects() != null) {
+                cacheObject.addattrobj(name, value.getComplexObjects().iterator().next());
+            }
+        }
+        return references.cache(iomObject.getobjectoid(), cacheObject, !crossBasketTargets.contains(classDef));
+    }
+
+    /**
+     * The objects kept to resolve references and the objects deferred because of unresolved references, for a single stream of objects.
+     * The objects are either cached for this stream only, or in an index shared with other streams.
+     * <p>
+     * With a shared index, the cached objects are not released at the end of their basket, because objects of other streams
+     * may still reference them. The memory used to resolve references then grows with the objects of all streams.
+     * References resolved through an object of another stream are counted, as the mapping then depends on the other stream.
+     */
+    private static final class ReferenceState {
+        private final Map<String, IomObject> objectCache;
+        private final boolean releaseBaskets;
+        private final Set<String> streamOids;
+        private final MappingStatistics statistics;
+        private final List<String> basketLocalOids = new ArrayList<>();
+        private List<IomObject> basketDeferred = new ArrayList<>();
+        private List<IomObject> crossBasketDeferred = new ArrayList<>();
+        private int resolvedBaskets;
+
+        /**
+         * Creates the state of a stream.
+         * @param objectCache The cached objects, either of this stream only or shared with other streams.
+         * @param releaseBaskets Whether the objects that can only be referenced from within their basket are released at the end of the basket.
+         */
+        ReferenceState(Map<String, IomObject> objectCache, boolean releaseBaskets) {
+            this.objectCache = objectCache;
+            this.releaseBaskets = releaseBaskets;
+            this.streamOids = null;
+            this.statistics = null;
+        }
+
+        /**
+         * Creates the state of a stream sharing the cached objects with other streams.
+         * @param sharedIndex The cached objects of all streams.
+         * @param statistics Counts the references resolved through an object of another stream.
+         */
+        ReferenceState(Map<String, IomObject> sharedIndex, MappingStatistics statistics) {
+            this.objectCache = sharedIndex;
+            this.releaseBaskets = false;
+            this.streamOids = new HashSet<>();
+            this.statistics = statistics;
+        }
+
+        /**
+         * Get the cached object with the specified OID, or {@code null} if it was not read yet or already released.
+         */
+        IomObject get(String oid) {
+            var object = objectCache.get(oid);
+            if (object != null && streamOids != null && !streamOids.contains(oid)) {
+                statistics.countForeignReference();
+            }
+            return object;
+        }
+
+        /**
+         * Adds an object to the cache.
+         * @param basketLocal Whether the object can only be referenced from within its basket and may be released at the end of the basket.
+         * @return {@code true} if the object was not cached before.
+         */
+        boolean cache(String oid, IomObject cacheObject, boolean basketLocal) {
+            if (releaseBaskets && basketLocal) {
+                basketLocalOids.add(oid);
+            }
+            if (streamOids != null) {
+                streamOids.add(oid);
+            }
+            return objectCache.put(oid, cacheObject) == null;
+        }
+
+        /**
+         * Removes the deferred objects of the current basket and the ones waiting for another basket, in the order they were read.
+         */
+        List<IomObject> takeDeferred() {
+            var deferred = crossBasketDeferred;
+            deferred.addAll(basketDeferred);
+            basketDeferred = new ArrayList<>();
+            crossBasketDeferred = new ArrayList<>();
+            return deferred;
+        }
+
+        /**
+         * Removes the objects of the current basket that can only be referenced from within the basket from the cache.
+         * @return The number of released objects.
+         */
+        int releaseBasket() {
+            int released = 0;
+            for (var oid : basketLocalOids) {
+                if (objectCache.remove(oid) != null) {
+                    released++;
+                }
+            }
+            basketLocalOids.clear();
+            return released;
+        }
+    }
+
+    /**
+     * Splits the mapped objects into batches of {@link #EVENT_BATCH_SIZE} objects and records a {@link MapBatchEvent} for each batch.
+     * Whether the event is enabled is checked once per batch, so a disabled event costs no more than a counter.
+     */
+    private static final class BatchRecorder {
+        private final MappingStatistics statistics;
+        private MapBatchEvent event;
+        private int skippedObjects;
+
+        BatchRecorder(MappingStatistics statistics) {
+            this.statistics = statistics;
+        }
+
+        <T> T record(Supplier<T> mapping) {
+            if (event == null) {
+                if (skippedObjects > 0) {
+                    skippedObjects--;
+                    return mapping.get();
+                }
+                event = new MapBatchEvent(statistics);
+                if (!event.isEnabled()) {
+                    event = null;
+                    skippedObjects = EVENT_BATCH_SIZE - 1;
+                    return mapping.get();
+                }
+                event.begin();
+            }
+
+            long start = System.nanoTime();
+            T result = mapping.get();
+            if (event.countObject(System.nanoTime() - start) >= EVENT_BATCH_SIZE) {
+                complete();
+            }
+            return result;
+        }
+
+        void complete() {
+            if (event != null) {
+                event.complete();
+                event = null;
+            }
+        }
+    }
+
+    /**
+     * The evaluation order of the filters of each mapper for a single stream of objects.
+     * <p>
+     * All filters of a mapper have to match, so they can be evaluated in any order: a mapper is rejected as soon as one
+     * filter does not match, and an unresolved reference only defers the object if no other filter of the mapper rejects it.
+     * The filters of each mapper are sorted by their measured cost per rejected object every {@link #REORDER_INTERVAL}
+     * evaluations, so a cheap filter that rejects most objects runs before an expensive one that follows references.
+     * The mappers are always tried in the order of the layer mappings and the first matching mapper is used.
+     */
+    private final class FilterPlan {
+        private final int[][] orders;
+        private final FilterCounter[][] counters;
+        private final int[] evaluationsSinceReorder;
+
+        FilterPlan(MappingStatistics statistics) {
+            orders = new int[filters.size()][];
+            counters = new FilterCounter[filters.size()][];
+            evaluationsSinceReorder = new int[filters.size()];
+            for (int i = 0; i < filters.size(); i++) {
+                var mapper = filters.get(i);
+                orders[i] = new int[mapper.filter().size()];
+                counters[i] = new FilterCounter[mapper.filter().size()];
+                for (int j = 0; j < orders[i].length; j++) {
+                    orders[i][j] = j;
+                    counters[i][j] = statistics.addFilter(mapper.mapping().layer(), mapper.objectClass(), mapper.filter().get(j).describe());
+                }
+            }
+        }
+
+        /**
+         * Evaluates the filters of a mapper.
+         * @param mapper The index of the mapper in {@link #filters}.
+         */
+        Filter.MatchResult matches(int mapper, IomObject iomObject, ReferenceState references, ResolveScratch scratch) {
+            var mapperFilters = filters.get(mapper).filter();
+            var result = Filter.MatchResult.MATCH;
+            for (int index : orders[mapper]) {
+                var counter = counters[mapper][index];
+                var filterResult = counter.isSampled()
+                        ? measure(mapperFilters.get(index), counter, iomObject, references, scratch)
+                        : mapperFilters.get(index).matches(iomObject, references, scratch);
+                counter.count(filterResult == Filter.MatchResult.NO_MATCH, filterResult == Filter.MatchResult.UNRESOLVED_REF);
+                if (filterResult == Filter.MatchResult.NO_MATCH) {
+                    result = filterResult;
+                    break;
+                } else if (filterResult == Filter.MatchResult.UNRESOLVED_REF) {
+                    result = filterResult;
+                }
+            }
+
+            if (++evaluationsSinceReorder[mapper] == REORDER_INTERVAL) {
+                evaluationsSinceReorder[mapper] = 0;
+                reorder(mapper);
+            }
+            return result;
+        }
+
+        private static Filter.MatchResult measure(Filter filter, FilterCounter counter, IomObject iomObject, ReferenceState references, ResolveScratch scratch) {
+            long start = System.nanoTime();
+            var result = filter.matches(iomObject, references, scratch);
+            counter.addSample(System.nanoTime() - start);
+            return result;
+        }
+
+        /**
+         * Sorts the filters of a mapper by ascending cost per rejection. Filters with the same cost keep their order.
+         */
+        private void reorder(int mapper) {
+            int[] order = orders[mapper];
+            double[] costs = new double[order.length];
+            for (int i = 0; i < order.length; i++) {
+                costs[i] = counters[mapper][order[i]].getCostPerRejection();
+            }
+
+            // insertion sort, a mapper only has a few filters
+            for (int i = 1; i < order.length; i++) {
+                int index = order[i];
+                double cost = costs[i];
+                int j = i - 1;
+                while (j >= 0 && costs[j] > cost) {
+                    order[j + 1] = order[j];
+                    costs[j + 1] = costs[j];
+                    j--;
+                }
+                order[j + 1] = index;
+                costs[j + 1] = cost;
+            }
+        }
+    }
+
+    /**
+     * The outcomes of the path prefixes resolved for the current object, indexed by the prefix id of {@link AttributePath}.
+     * An entry is only valid if its stamp equals the stamp of the current object, so starting a new object does not need to clear the arrays.
+     * The scratch is reused for all objects mapped on the same thread.
+     */
+    private static final class ResolveScratch {
+        private final Object[] outcomes;
+        private final int[] stamps;
+        private int stamp;
+
+        ResolveScratch(int size) {
+            outcomes = new Object[size];
+            stamps = new int[size];
+        }
+
+        void startObject() {
+            if (++stamp == 0) {
+                Arrays.fill(stamps, 0);
+                Arrays.fill(outcomes, null);
+                stamp = 1;
+            }
+        }
+
+        Object get(int prefixId) {
+            return stamps[prefixId] == stamp ? outcomes[prefixId] : null;
+        }
+
+        void put(int prefixId, Object outcome) {
+            outcomes[prefixId] = outcome;
+            stamps[prefixId] = stamp;
+        }
+    }
+
     private interface Filter {
-        MatchResult matches(IomObject iomObject, Map<String, IomObject> objectCache);
+        MatchResult matches(IomObject iomObject, ReferenceState references, ResolveScratch scratch);
+
+        /**
+         * Get a description of the filter for the statistics.
+         */
+        String describe();
 
         enum MatchResult {
             UNRESOLVED_REF,
@@ -452,27 +950,33 @@ public final class ObjectMapper {
     }
 
     private record Mapper(
+            String objectClass,
             List<Filter> filter,
             LayerMapping mapping,
-            List<PathElement> geometry,
-            List<PathElement> orientation,
-            List<PathElement> vAlign,
-            List<PathElement> hAlign,
-            List<PathElement> text
+            AttributePath geometry,
+            AttributePath orientation,
+            AttributePath vAlign,
+            AttributePath hAlign,
+            AttributePath text
     ) {
     }
 
     private record TagFilter(String tag) implements Filter {
         @Override
-        public MatchResult matches(IomObject iomObject, Map<String, IomObject> objectCache) {
+        public MatchResult matches(IomObject iomObject, ReferenceState references, ResolveScratch scratch) {
             return iomObject.getobjecttag().equals(tag) ? MatchResult.MATCH : MatchResult.NO_MATCH;
         }
+
+        @Override
+        public String describe() {
+            return "class " + tag;
+        }
     }
 
-    private record PathMatcher(List<PathElement> pathElements, List<String> values) implements Filter {
+    private record PathMatcher(AttributePath path, List<String> values) implements Filter {
         @Override
-        public MatchResult matches(IomObject iomObject, Map<String, IomObject> objectCache) {
-            var value = resolve(iomObject, pathElements, objectCache);
+        public MatchResult matches(IomObject iomObject, ReferenceState references, ResolveScratch scratch) {
+            var value = resolve(iomObject, path, references, scratch);
             if (value.skipEvaluation()) {
                 return MatchResult.UNRESOLVED_REF;
             } else if (value.isUndefined()) {
@@ -485,6 +989,17 @@ public final class ObjectMapper {
                 }
             }
         }
+
+        @Override
+        public String describe() {
+            return path.elements().stream().map(PathElement::name).collect(Collectors.joining("->")) + "=" + String.join(" ", values);
+        }
+    }
+
+    /**
+     * A translated path with the ids of its prefixes, see {@link #createPath(List)}.
+     */
+    private record AttributePath(List<PathElement> elements, int[] prefixIds) {
     }
 
     private record PathElement(String name, Resolution resolution, AbstractLeafElement element) {
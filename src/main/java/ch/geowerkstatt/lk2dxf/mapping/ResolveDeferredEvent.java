@@ -0,0 +1,60 @@
+package ch.geowerkstatt.lk2dxf.mapping;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event covering the mapping of the objects that were deferred because of forward references,
+ * either at the end of a basket or after all objects were read.
+ */
+@Name("ch.geowerkstatt.lk2dxf.ResolveDeferred")
+@Label("Resolve Deferred Objects")
+@Category({"lk2dxf", "Mapping"})
+@Description("Mapping of the deferred objects at the end of a basket, or after all objects were read including the writing of the mapped objects")
+final class ResolveDeferredEvent extends jdk.jfr.Event {
+    @Label("Deferred Objects")
+    private int deferredObjects;
+
+    @Label("Mapped Objects")
+    private int mappedObjects;
+
+    @Label("Unmapped Objects")
+    private int unmappedObjects;
+
+    @Label("Cached Objects")
+    @Description("The number of objects kept in memory to resolve references")
+    private int cachedObjects;
+
+    @Label("Released Objects")
+    @Description("The number of cached objects released because they can only be referenced from within their basket")
+    private int releasedObjects;
+
+    private final transient MappingStatistics statistics;
+    private final transient int mappedBefore;
+    private final transient int unmappedBefore;
+    private final transient int releasedBefore;
+
+    ResolveDeferredEvent(MappingStatistics statistics, int deferredObjects) {
+        this.statistics = statistics;
+        this.deferredObjects = deferredObjects;
+        this.mappedBefore = statistics.getMappedObjects();
+        this.unmappedBefore = statistics.getUnmappedObjects();
+        this.releasedBefore = statistics.getReleasedObjects();
+    }
+
+    /**
+     * Ends the phase and commits the event.
+     */
+    void complete() {
+        end();
+        if (shouldCommit()) {
+            mappedObjects = statistics.getMappedObjects() - mappedBefore;
+            unmappedObjects = statistics.getUnmappedObjects() - unmappedBefore;
+            cachedObjects = statistics.getCachedObjects() - statistics.getReleasedObjects();
+            releasedObjects = statistics.getReleasedObjects() - releasedBefore;
+            commit();
+        }
+    }
+}
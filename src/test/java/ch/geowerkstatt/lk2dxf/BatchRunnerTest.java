@@ -0,0 +1,69 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.ehi.basics.logging.EhiLogger;
+import ch.ehi.basics.logging.StdListener;
+import ch.geowerkstatt.lk2dxf.mapping.ObjectMapper;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class BatchRunnerTest {
+    private static final String TEST_FILE = "src/test/data/MapperTest/MapWithText.xtf";
+    private static final String TEST_OUT_DIR = "src/test/data/Results/BatchRunner/";
+
+    @BeforeAll
+    static void initAll() {
+        new File(TEST_OUT_DIR).mkdirs();
+
+        // Configure logging
+        Configurator.setRootLevel(Level.TRACE);
+        EhiLogger.getInstance().addListener(new EhiLogAdapter());
+        EhiLogger.getInstance().removeListener(StdListener.getInstance());
+    }
+
+    @Test
+    public void runManifest() throws Exception {
+        var manifest = new File(TEST_OUT_DIR + "manifest.json");
+        Files.writeString(manifest.toPath(), """
+                [
+                  {"inputs": ["%1$s"], "output": "%2$sfirst.dxf"},
+                  {"inputs": ["%2$sMissing.xtf"], "output": "%2$smissing.dxf"},
+                  {"inputs": ["%1$s", "%1$s"], "output": "%2$sthird.dxf", "perimeter": "POLYGON ((0 0, 1 0, 1 1, 0 0))"}
+                ]
+                """.formatted(TEST_FILE, TEST_OUT_DIR));
+
+        List<ConversionJob> jobs = BatchRunner.readManifest(manifest);
+        assertEquals(3, jobs.size());
+
+        var results = new BatchRunner(new Converter(new ObjectMapper(), null), 2).run(jobs);
+        BatchRunner.logSummary(results);
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccessful());
+        assertEquals(4, results.get(0).objectCount());
+        assertFalse(results.get(1).isSuccessful());
+        assertTrue(results.get(2).isSuccessful());
+        assertEquals(0, results.get(2).objectCount());
+        assertTrue(new File(TEST_OUT_DIR + "first.dxf").isFile());
+    }
+
+    @Test
+    public void rejectManifestWithoutOutput() throws Exception {
+        var manifest = new File(TEST_OUT_DIR + "manifestWithoutOutput.json");
+        Files.writeString(manifest.toPath(), "[{\"inputs\": [\"" + TEST_FILE + "\"]}]");
+
+        var exception = assertThrows(IOException.class, () -> BatchRunner.readManifest(manifest));
+        assertEquals("Job 1 of the manifest requires at least one input and an output.", exception.getMessage());
+    }
+}
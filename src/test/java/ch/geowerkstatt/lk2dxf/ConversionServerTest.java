@@ -0,0 +1,139 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.ehi.basics.logging.EhiLogger;
+import ch.ehi.basics.logging.StdListener;
+import ch.geowerkstatt.lk2dxf.mapping.ObjectMapper;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ConversionServerTest {
+    private static final String TEST_FILE = "src/test/data/MapperTest/MapWithText.xtf";
+    private static final String TEST_OUT_DIR = "src/test/data/Results/ConversionServer/";
+
+    private static ConversionServer server;
+    private static HttpClient client;
+    private static URI convertUri;
+
+    @BeforeAll
+    static void initAll() throws Exception {
+        new File(TEST_OUT_DIR).mkdirs();
+
+        // Configure logging
+        Configurator.setRootLevel(Level.TRACE);
+        EhiLogger.getInstance().addListener(new EhiLogAdapter());
+        EhiLogger.getInstance().removeListener(StdListener.getInstance());
+
+        server = new ConversionServer(new Converter(new ObjectMapper(), null), new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2, Path.of(TEST_OUT_DIR));
+        server.start();
+        client = HttpClient.newHttpClient();
+        convertUri = URI.create("http://localhost:" + server.getAddress().getPort() + "/convert");
+    }
+
+    @AfterAll
+    static void tearDownAll() {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void convertJsonJob() throws Exception {
+        var outputFile = new File(TEST_OUT_DIR + "convertJsonJob.dxf");
+        outputFile.delete();
+        var job = "{\"inputs\": [\"" + jsonPath(TEST_FILE) + "\"], \"output\": \"" + jsonPath(outputFile.getPath()) + "\"}";
+
+        var response = client.send(HttpRequest.newBuilder(convertUri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(job))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode(), response.body());
+        assertTrue(response.body().contains("\"objectCount\":4"), response.body());
+        assertTrue(response.body().contains("\"durationMillis\":"), response.body());
+        assertTrue(outputFile.isFile());
+    }
+
+    @Test
+    public void convertUpload() throws Exception {
+        var response = client.send(HttpRequest.newBuilder(convertUri)
+                .header("Content-Type", "application/xml")
+                .POST(HttpRequest.BodyPublishers.ofFile(Path.of(TEST_FILE)))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("4", response.headers().firstValue("X-Lk2dxf-Objects").orElseThrow());
+        assertTrue(response.headers().firstValue("X-Lk2dxf-Duration-Millis").isPresent());
+        assertTrue(response.body().contains("\nENTITIES\n"));
+        assertTrue(response.body().endsWith("\nEOF\n"));
+    }
+
+    @Test
+    public void rejectInvalidJob() throws Exception {
+        var response = client.send(HttpRequest.newBuilder(convertUri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"inputs\": [], \"output\": \"output.dxf\"}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().contains("At least one input file is required."), response.body());
+    }
+
+    @Test
+    public void convertJsonJobWithRelativeOutput() throws Exception {
+        var outputFile = new File(TEST_OUT_DIR + "convertJsonJobWithRelativeOutput.dxf");
+        outputFile.delete();
+        var job = "{\"inputs\": [\"" + jsonPath(TEST_FILE) + "\"], \"output\": \"convertJsonJobWithRelativeOutput.dxf\"}";
+
+        var response = client.send(HttpRequest.newBuilder(convertUri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(job))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode(), response.body());
+        assertTrue(outputFile.isFile());
+    }
+
+    @Test
+    public void rejectOutputOutsideOfOutputRoot() throws Exception {
+        var outsideFile = new File(TEST_OUT_DIR, "../rejectOutputOutsideOfOutputRoot.dxf");
+        outsideFile.delete();
+
+        for (String output : List.of("../rejectOutputOutsideOfOutputRoot.dxf", jsonPath(outsideFile.getPath()))) {
+            var job = "{\"inputs\": [\"" + jsonPath(TEST_FILE) + "\"], \"output\": \"" + output + "\"}";
+            var response = client.send(HttpRequest.newBuilder(convertUri)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(job))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(400, response.statusCode(), response.body());
+            assertTrue(response.body().contains("is outside of the output root"), response.body());
+        }
+
+        var uploadResponse = client.send(HttpRequest.newBuilder(URI.create(convertUri + "?output=..%2FrejectOutputOutsideOfOutputRoot.dxf"))
+                .header("Content-Type", "application/xml")
+                .POST(HttpRequest.BodyPublishers.ofFile(Path.of(TEST_FILE)))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, uploadResponse.statusCode(), uploadResponse.body());
+        assertFalse(outsideFile.exists());
+    }
+
+    private static String jsonPath(String path) {
+        return new File(path).getAbsolutePath().replace("\\", "\\\\");
+    }
+}
@@ -16,9 +16,11 @@ import java.util.Collection;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public final class DxfWriterTest {
     private static final String TEST_OUT_DIR = "src/test/data/Results/DxfWriter/";
+    private static final double NO_ARC = Double.NaN;
 
     private StringWriter stringWriter;
     private Writer testOutputWriter;
@@ -191,6 +193,137 @@ public final class DxfWriterTest {
         }
     }
 
+    @Test
+    public void writeOpenPolylineWithArcFromBuffer() throws Exception {
+        var polyline = IomObjectHelper.createPolyline(
+                IomObjectHelper.createCoord("1.25", "2.5"),
+                IomObjectHelper.createArc("3", "4.5", "5", "5"),
+                IomObjectHelper.createCoord("7", "1"));
+        var buffer = new PolylineBuffer();
+        buffer.addVertex(1.25, 2.5, NO_ARC, NO_ARC);
+        buffer.addVertex(5, 5, 3, 4.5);
+        buffer.addVertex(7, 1, NO_ARC, NO_ARC);
+        buffer.endPart(false);
+
+        try (var dxfWriter = new DxfWriter(testOutputWriter)) {
+            stringWriter.getBuffer().setLength(0);
+            dxfWriter.writeLwPolyline("LAYER_NAME", polyline);
+            assertEquals("0\nLWPOLYLINE\n5\n18\n100\nAcDbEntity\n8\nLAYER_NAME\n100\nAcDbPolyline\n90\n3\n70\n0\n10\n1.25\n20\n2.5\n42\n-0.313\n10\n5\n20\n5\n42\n0\n10\n7\n20\n1\n42\n0\n", stringWriter.toString());
+
+            stringWriter.getBuffer().setLength(0);
+            dxfWriter.writeLwPolyline("LAYER_NAME", buffer);
+            assertEquals("0\nLWPOLYLINE\n5\n19\n100\nAcDbEntity\n8\nLAYER_NAME\n100\nAcDbPolyline\n90\n3\n70\n0\n10\n1.25\n20\n2.5\n42\n-0.313\n10\n5\n20\n5\n42\n0\n10\n7\n20\n1\n42\n0\n", stringWriter.toString());
+        }
+    }
+
+    @Test
+    public void writeClosedPolylineWithArcsFromBuffer() throws Exception {
+        var polyline = IomObjectHelper.createPolyline(
+                IomObjectHelper.createCoord("0", "0"),
+                IomObjectHelper.createCoord("10", "0"),
+                IomObjectHelper.createArc("12", "5", "10", "10"),
+                IomObjectHelper.createCoord("0", "10"),
+                IomObjectHelper.createArc("-2", "5", "0", "0"));
+        var buffer = new PolylineBuffer();
+        buffer.addVertex(0, 0, NO_ARC, NO_ARC);
+        buffer.addVertex(10, 0, NO_ARC, NO_ARC);
+        buffer.addVertex(10, 10, 12, 5);
+        buffer.addVertex(0, 10, NO_ARC, NO_ARC);
+        buffer.addVertex(0, 0, -2, 5);
+        buffer.endPart(false);
+
+        try (var dxfWriter = new DxfWriter(testOutputWriter)) {
+            stringWriter.getBuffer().setLength(0);
+            dxfWriter.writeLwPolyline("LAYER_NAME", polyline);
+            assertEquals("0\nLWPOLYLINE\n5\n18\n100\nAcDbEntity\n8\nLAYER_NAME\n100\nAcDbPolyline\n90\n4\n70\n1\n10\n0\n20\n0\n42\n0\n10\n10\n20\n0\n42\n0.4\n10\n10\n20\n10\n42\n0\n10\n0\n20\n10\n42\n0.4\n", stringWriter.toString());
+
+            stringWriter.getBuffer().setLength(0);
+            dxfWriter.writeLwPolyline("LAYER_NAME", buffer);
+            assertEquals("0\nLWPOLYLINE\n5\n19\n100\nAcDbEntity\n8\nLAYER_NAME\n100\nAcDbPolyline\n90\n4\n70\n1\n10\n0\n20\n0\n42\n0\n10\n10\n20\n0\n42\n0.4\n10\n10\n20\n10\n42\n0\n10\n0\n20\n10\n42\n0.4\n", stringWriter.toString());
+        }
+    }
+
+    @Test
+    public void writeHatchWithArcsAndHolesFromBuffer() throws Exception {
+        var surface = IomObjectHelper.createPolygonFromBoundaries(
+                IomObjectHelper.createBoundary(
+                        IomObjectHelper.createCoord("0", "0"),
+                        IomObjectHelper.createCoord("20", "0"),
+                        IomObjectHelper.createArc("25", "10", "20", "20"),
+                        IomObjectHelper.createCoord("0", "20"),
+                        IomObjectHelper.createCoord("0", "0")),
+                IomObjectHelper.createBoundary(
+                        IomObjectHelper.createCoord("5", "10"),
+                        IomObjectHelper.createArc("7", "12", "9", "10"),
+                        IomObjectHelper.createArc("7", "8", "5", "10")),
+                IomObjectHelper.createRectangleBoundary("12", "4", "16", "8"));
+        var buffer = new PolylineBuffer();
+        buffer.addVertex(0, 0, NO_ARC, NO_ARC);
+        buffer.addVertex(20, 0, NO_ARC, NO_ARC);
+        buffer.addVertex(20, 20, 25, 10);
+        buffer.addVertex(0, 20, NO_ARC, NO_ARC);
+        buffer.addVertex(0, 0, NO_ARC, NO_ARC);
+        buffer.endPart(true);
+        buffer.addVertex(5, 10, NO_ARC, NO_ARC);
+        buffer.addVertex(9, 10, 7, 12);
+        buffer.addVertex(5, 10, 7, 8);
+        buffer.endPart(false);
+        buffer.add(IomObjectHelper.createRectangleBoundary("12", "4", "16", "8").getattrobj("polyline", 0), false);
+
+        try (var dxfWriter = new DxfWriter(testOutputWriter)) {
+            stringWriter.getBuffer().setLength(0);
+            dxfWriter.writeHatch("LAYER_NAME", surface);
+            assertEquals("0\nHATCH\n5\n18\n100\nAcDbEntity\n8\nLAYER_NAME\n100\nAcDbHatch\n10\n0\n20\n0\n30\n0\n210\n0\n220\n0\n230\n1\n2\nSOLID\n70\n1\n71\n0\n91\n3\n92\n3\n72\n1\n73\n1\n93\n4\n10\n0\n20\n0\n42\n0\n10\n20\n20\n0\n42\n0.5\n10\n20\n20\n20\n42\n0\n10\n0\n20\n20\n42\n0\n97\n0\n92\n18\n72\n1\n73\n1\n93\n2\n10\n5\n20\n10\n42\n-1\n10\n9\n20\n10\n42\n-1\n97\n0\n92\n18\n72\n1\n73\n1\n93\n4\n10\n12\n20\n4\n42\n0\n10\n12\n20\n8\n42\n0\n10\n16\n20\n8\n42\n0\n10\n16\n20\n4\n42\n0\n97\n0\n75\n0\n76\n1\n98\n0\n", stringWriter.toString());
+
+            stringWriter.getBuffer().setLength(0);
+            dxfWriter.writeHatch("LAYER_NAME", buffer);
+            assertEquals("0\nHATCH\n5\n19\n100\nAcDbEntity\n8\nLAYER_NAME\n100\nAcDbHatch\n10\n0\n20\n0\n30\n0\n210\n0\n220\n0\n230\n1\n2\nSOLID\n70\n1\n71\n0\n91\n3\n92\n3\n72\n1\n73\n1\n93\n4\n10\n0\n20\n0\n42\n0\n10\n20\n20\n0\n42\n0.5\n10\n20\n20\n20\n42\n0\n10\n0\n20\n20\n42\n0\n97\n0\n92\n18\n72\n1\n73\n1\n93\n2\n10\n5\n20\n10\n42\n-1\n10\n9\n20\n10\n42\n-1\n97\n0\n92\n18\n72\n1\n73\n1\n93\n4\n10\n12\n20\n4\n42\n0\n10\n12\n20\n8\n42\n0\n10\n16\n20\n8\n42\n0\n10\n16\n20\n4\n42\n0\n97\n0\n75\n0\n76\n1\n98\n0\n", stringWriter.toString());
+        }
+    }
+
+    @Test
+    public void writeFromReusedBuffer() throws Exception {
+        var longSegments = new IomObject[300];
+        for (int i = 0; i < longSegments.length; i++) {
+            longSegments[i] = i % 3 == 2
+                    ? IomObjectHelper.createArc(Integer.toString(i), Double.toString(i + 0.5), Integer.toString(i + 1), "0")
+                    : IomObjectHelper.createCoord(Integer.toString(i + 1), "0");
+        }
+        var boundaries = new IomObject[10];
+        boundaries[0] = IomObjectHelper.createRectangleBoundary("0", "0", "100", "10");
+        for (int i = 1; i < boundaries.length; i++) {
+            boundaries[i] = IomObjectHelper.createRectangleBoundary(Integer.toString(i * 10), "1", Integer.toString(i * 10 + 5), "9");
+        }
+        var longPolyline = IomObjectHelper.createPolyline(longSegments);
+        var surface = IomObjectHelper.createPolygonFromBoundaries(boundaries);
+        var shortPolyline = IomObjectHelper.createPolyline(IomObjectHelper.createCoord("1", "2"), IomObjectHelper.createCoord("3", "4"));
+
+        var expected = new StringWriter();
+        try (var dxfWriter = new DxfWriter(expected)) {
+            dxfWriter.writeLwPolyline("LAYER_NAME", longPolyline);
+            dxfWriter.writeHatch("LAYER_NAME", surface);
+            dxfWriter.writeLwPolyline("LAYER_NAME", shortPolyline);
+        }
+
+        // the buffer grows beyond its initial capacity and is reused for the following geometries
+        var buffer = new PolylineBuffer();
+        try (var dxfWriter = new DxfWriter(testOutputWriter)) {
+            buffer.add(longPolyline, false);
+            dxfWriter.writeLwPolyline("LAYER_NAME", buffer);
+            buffer.clear();
+            for (int i = 0; i < boundaries.length; i++) {
+                buffer.add(boundaries[i].getattrobj("polyline", 0), i == 0);
+            }
+            dxfWriter.writeHatch("LAYER_NAME", buffer);
+            buffer.clear();
+            buffer.add(shortPolyline, false);
+            dxfWriter.writeLwPolyline("LAYER_NAME", buffer);
+        }
+
+        assertEquals(expected.toString(), stringWriter.toString());
+        assertTrue(stringWriter.toString().contains("\n90\n300\n"), "All vertices of the long polyline should be written");
+    }
+
     private IomObject[] createArcTestSegments(double pointRadius, double midPointRadius, int segmentCount) {
         var segments = new IomObject[segmentCount + 1];
         segments[0] = IomObjectHelper.createCoord(Double.toString(pointRadius), "0");
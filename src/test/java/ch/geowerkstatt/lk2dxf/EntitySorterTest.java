@@ -0,0 +1,53 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.geowerkstatt.lk2dxf.mapping.LayerMapping;
+import ch.geowerkstatt.lk2dxf.mapping.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public final class EntitySorterTest {
+    @Test
+    public void spilledRunsProduceSameOutputAsInMemorySort() throws Exception {
+        var layerMappings = new ObjectMapper().getLayerMappings();
+        var pointMappings = layerMappings.stream().filter(m -> m.output() == LayerMapping.OutputType.POINT).limit(3).toList();
+        var objects = new ArrayList<MappedObject>();
+        for (int i = 0; i < 30; i++) {
+            var coord = IomObjectHelper.createCoord(String.valueOf(2_600_000 + i), String.valueOf(1_200_000 + i));
+            objects.add(new MappedObject("obj_" + i, coord, null, null, null, null, pointMappings.get(i % pointMappings.size())));
+        }
+        ToLongFunction<MappedObject> layerKey = o -> pointMappings.indexOf(o.layerMapping());
+
+        String inMemory = sort(objects, layerKey, layerMappings, EntitySorter.DEFAULT_MEMORY_CHARACTERS);
+        String spilled = sort(objects, layerKey, layerMappings, 1);
+        assertEquals(inMemory, spilled);
+
+        var layerOrder = new ArrayList<String>();
+        var lines = inMemory.split("\n");
+        for (int i = 0; i < lines.length - 1; i += 2) {
+            if (lines[i].equals("8") && (layerOrder.isEmpty() || !layerOrder.getLast().equals(lines[i + 1]))) {
+                layerOrder.add(lines[i + 1]);
+            }
+        }
+        assertEquals(pointMappings.stream().map(LayerMapping::layer).toList(), layerOrder);
+    }
+
+    private static String sort(List<MappedObject> objects, ToLongFunction<MappedObject> sortKey, List<LayerMapping> layerMappings, long memoryCharacters) throws Exception {
+        var output = new StringWriter();
+        try (var sorter = new EntitySorter(sortKey, 3, layerMappings, memoryCharacters)) {
+            for (var object : objects) {
+                sorter.add(object);
+            }
+
+            var dxfWriter = new DxfWriter(output, 3, layerMappings, null);
+            output.getBuffer().setLength(0);
+            sorter.writeTo(dxfWriter);
+        }
+        return output.toString();
+    }
+}
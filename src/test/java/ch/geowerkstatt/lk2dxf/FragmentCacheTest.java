@@ -0,0 +1,87 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.ehi.basics.logging.EhiLogger;
+import ch.ehi.basics.logging.StdListener;
+import ch.geowerkstatt.lk2dxf.mapping.ObjectMapper;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class FragmentCacheTest {
+    private static final String TEST_FILE = "src/test/data/MapperTest/MapWithText.xtf";
+    private static final String TEST_OUT_DIR = "src/test/data/Results/FragmentCache/";
+
+    @BeforeAll
+    static void initAll() {
+        new File(TEST_OUT_DIR).mkdirs();
+
+        // Configure logging
+        Configurator.setRootLevel(Level.TRACE);
+        EhiLogger.getInstance().addListener(new EhiLogAdapter());
+        EhiLogger.getInstance().removeListener(StdListener.getInstance());
+    }
+
+    @Test
+    public void replayProducesSameOutput() throws Exception {
+        Path cacheDirectory = Path.of(TEST_OUT_DIR, "cache");
+        deleteDirectory(cacheDirectory);
+        var objectMapper = new ObjectMapper();
+        var cache = new FragmentCache(cacheDirectory);
+
+        var uncached = new Converter(objectMapper, null).convert(List.of(TEST_FILE), TEST_OUT_DIR + "uncached.dxf", Optional.empty());
+        var first = new Converter(objectMapper, null, Optional.of(cache)).convert(List.of(TEST_FILE), TEST_OUT_DIR + "first.dxf", Optional.empty());
+        var second = new Converter(objectMapper, null, Optional.of(cache)).convert(List.of(TEST_FILE), TEST_OUT_DIR + "second.dxf", Optional.empty());
+
+        assertEquals(4, uncached.objectCount());
+        assertEquals(4, first.objectCount());
+        assertFalse(first.files().get(0).cached());
+        assertTrue(second.files().get(0).cached());
+        assertEquals(first.layerCounts(), second.layerCounts());
+        assertEquals(Files.readString(Path.of(TEST_OUT_DIR + "first.dxf")), Files.readString(Path.of(TEST_OUT_DIR + "second.dxf")));
+
+        try (var entries = Files.list(cacheDirectory)) {
+            assertEquals(List.of(".counts", ".fragment.gz"), entries.map(p -> p.getFileName().toString().replaceFirst("^[0-9a-f]{64}", "")).sorted().toList());
+        }
+    }
+
+    @Test
+    public void fingerprintChangesKey() throws Exception {
+        var cache = new FragmentCache(Path.of(TEST_OUT_DIR, "keys"));
+        var file = new File(TEST_FILE);
+
+        String key = cache.computeKey(file, "fingerprint");
+        assertEquals(key, cache.computeKey(file, "fingerprint"));
+        assertNotEquals(key, cache.computeKey(file, "fingerprint\nPOLYGON ((0 0, 1 0, 1 1, 0 0))"));
+    }
+
+    @Test
+    public void codeFingerprintIsStable() throws Exception {
+        byte[] fingerprint = FragmentCache.computeCodeFingerprint();
+        assertEquals(32, fingerprint.length);
+        assertArrayEquals(fingerprint, FragmentCache.computeCodeFingerprint());
+    }
+
+    private static void deleteDirectory(Path directory) throws Exception {
+        if (Files.isDirectory(directory)) {
+            try (var entries = Files.list(directory)) {
+                for (Path entry : entries.toList()) {
+                    Files.delete(entry);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ch.geowerkstatt.lk2dxf;
+
+import com.vividsolutions.jts.geom.Envelope;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class HilbertCurveTest {
+    @Test
+    public void indexFollowsCurveOfOrderTwo() {
+        int[][] expected = {
+                {0, 1, 14, 15},
+                {3, 2, 13, 12},
+                {4, 7, 8, 11},
+                {5, 6, 9, 10},
+        };
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 4; x++) {
+                assertEquals(expected[y][x], HilbertCurve.index(2, x, y), "x=" + x + ", y=" + y);
+            }
+        }
+    }
+
+    @Test
+    public void consecutiveIndexesAreNeighbours() {
+        int order = 4;
+        int size = 1 << order;
+        int[][] cells = new int[size * size][];
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                cells[(int) HilbertCurve.index(order, x, y)] = new int[] {x, y};
+            }
+        }
+
+        var visited = new HashSet<Integer>();
+        for (int i = 0; i < cells.length; i++) {
+            assertTrue(visited.add(cells[i][0] * size + cells[i][1]));
+            if (i > 0) {
+                assertEquals(1, Math.abs(cells[i][0] - cells[i - 1][0]) + Math.abs(cells[i][1] - cells[i - 1][1]));
+            }
+        }
+    }
+
+    @Test
+    public void indexOfEnvelopeUsesCenterAndClampsToExtent() {
+        assertEquals(0, HilbertCurve.indexOf(new Envelope(2_400_000, 2_480_000, 1_000_000, 1_070_000)));
+        assertEquals(
+                HilbertCurve.indexOf(new Envelope(2_600_000, 2_600_000, 1_200_000, 1_200_000)),
+                HilbertCurve.indexOf(new Envelope(2_599_999, 2_600_001, 1_199_999, 1_200_001)));
+        assertEquals(Long.MAX_VALUE, HilbertCurve.indexOf(new Envelope()));
+    }
+}
@@ -4,28 +4,31 @@ import ch.ehi.basics.logging.EhiLogger;
 import ch.ehi.basics.logging.StdListener;
 import ch.geowerkstatt.lk2dxf.mapping.ObjectMapper;
 import ch.interlis.ili2c.Ili2cException;
-import ch.interlis.iom.IomObject;
-import ch.interlis.iom_j.xtf.XtfWriter;
 import ch.interlis.iox.IoxException;
-import ch.interlis.iox_j.EndBasketEvent;
-import ch.interlis.iox_j.EndTransferEvent;
-import ch.interlis.iox_j.ObjectEvent;
-import ch.interlis.iox_j.StartBasketEvent;
-import ch.interlis.iox_j.StartTransferEvent;
+import com.fasterxml.jackson.databind.json.JsonMapper;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.core.config.Configurator;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public final class IntegrationTest {
@@ -75,85 +78,182 @@ public final class IntegrationTest {
         assertTrue(Files.readString(logFile.toPath()).contains("The output DXF file contains 2606 mapped objects"));
     }
 
-    private void writeTestXTF(File file, int seed, int objectCount) throws IOException, URISyntaxException, Ili2cException, IoxException {
-        var objectMapper = new ObjectMapper();
-        var rand = new Random(seed);
-
-        XtfWriter writer = new XtfWriter(file, objectMapper.getTransferDescription());
-        try {
-            writer.write(new StartTransferEvent());
-            writer.write(new StartBasketEvent("SIA405_LKMap_2015_LV95.SIA405_LKMap", "BASKET1"));
-            for (int i = seed; i < objectCount + seed; i += 4) {
-                var x = rand.nextDouble() * 300_000 + 2510_000;
-                var y = rand.nextDouble() * 200_000 + 1085_000;
-                var size = rand.nextDouble() * 7000 + 3000;
-                writer.write(new ObjectEvent(createTextObject(i, x, y, "obj_" + (i + 1))));
-                writer.write(new ObjectEvent(createLineObject(i + 1, x, y, size)));
-                writer.write(new ObjectEvent(createFlaecheObject(i + 2, x, y)));
-                writer.write(new ObjectEvent(createPointObject(i + 3, x, y)));
-            }
-            writer.write(new EndBasketEvent());
-            writer.write(new EndTransferEvent());
-        } finally {
-            writer.close();
+    @Test
+    public void writeReport() throws Exception {
+        var outputFile = new File(TEST_OUT_DIR + "writeReport.dxf");
+        var reportFile = new File(TEST_OUT_DIR + "writeReport.json");
+        reportFile.delete();
+
+        Main.main(new String[] {"src/test/data/MapperTest/MapWithText.xtf", outputFile.getPath(), "--report", reportFile.getPath()});
+
+        assertTrue(reportFile.isFile());
+        var report = JsonMapper.builder().build().readTree(reportFile);
+        assertEquals(4, report.get("objectCount").asInt());
+        assertEquals(outputFile.length(), report.get("outputBytes").asLong());
+        assertEquals(1, report.get("files").size());
+
+        var fileReport = report.get("files").get(0);
+        assertEquals(4, fileReport.get("objectCount").asInt());
+        assertFalse(fileReport.get("cached").asBoolean());
+        assertTrue(fileReport.get("readMillis").asDouble() > 0);
+        assertTrue(fileReport.get("writtenCharacters").asLong() > 0);
+        assertTrue(fileReport.has("deferredObjects"));
+    }
+
+    @Test
+    public void compressedOutput() throws Exception {
+        var converter = new Converter(new ObjectMapper(), null);
+        var input = List.of("src/test/data/MapperTest/MapWithText.xtf");
+        var plainFile = new File(TEST_OUT_DIR + "compressedOutput.dxf");
+        var gzipFile = new File(TEST_OUT_DIR + "compressedOutput.dxf.gz");
+        var zipFile = new File(TEST_OUT_DIR + "compressedOutput.zip");
+
+        converter.convert(input, plainFile.getPath(), Optional.empty());
+        converter.convert(input, gzipFile.getPath(), Optional.empty(), Optional.empty(), new OutputOptions(OutputCompression.GZIP));
+        converter.convert(input, zipFile.getPath(), Optional.empty(), Optional.empty(), new OutputOptions(OutputCompression.ZIP));
+
+        byte[] expected = Files.readAllBytes(plainFile.toPath());
+        try (var gzipInput = new GZIPInputStream(new FileInputStream(gzipFile))) {
+            assertArrayEquals(expected, gzipInput.readAllBytes());
+        }
+        try (var zipInput = new ZipInputStream(new FileInputStream(zipFile))) {
+            assertEquals("compressedOutput.dxf", zipInput.getNextEntry().getName());
+            assertArrayEquals(expected, zipInput.readAllBytes());
+            assertNull(zipInput.getNextEntry());
         }
     }
 
-    private final String[] precisionValues = new String[]{"genau", "unbekannt", "ungenau"};
-    private final String[] lineObjectTypeValues = new String[]{"Abwasser.Fernwirkkabel", "Abwasser.Haltung_Kanal", "Abwasser.Schutzrohr", "Elektrizitaet.AnkerStrebe", "Elektrizitaet.Trasse.oberirdisch", "Elektrizitaet.Trasse.unterirdisch", "Fernwaerme.Fernwirkkabel", "Fernwaerme.Trasse", "Gas.Fernwirkkabel", "Gas.Leitung", "Gas.Schutzrohr", "Kommunikation.Trasse.oberirdisch", "Kommunikation.Trasse.unterirdisch", "Wasser.Fernwirkkabel", "Wasser.Leitung", "Wasser.Schutzrohr", "weitereMedien.Fernwirkkabel", "weitereMedien.Leitung", "weitereMedien.Schutzrohr"};
-    private final String[] objectTypeValues = new String[]{"Abwasser", "Elektrizitaet", "Fernwaerme", "Gas", "Kommunikation", "Wasser", "weitereMedien"};
-    private final String[] objectStatusValues = new String[]{"ausser_Betrieb", "in_Betrieb", "tot", "unbekannt", "weitere"};
-
-    private IomObject createLineObject(int oid, double x, double y, double size) {
-        var rings = 4;
-        var angleCount = 7;
-        var segments = new ArrayList<IomObject>();
-        for (double r = size; r > 0.1; r -= size / rings) {
-            for (int i = 0; i < angleCount; i++) {
-                var angle = Math.TAU / angleCount * i;
-                var segment = IomObjectHelper.createCoord(Double.toString(x + r * Math.cos(angle)), Double.toString(y + r * Math.sin(angle)));
-                segments.add(segment);
-            }
+    @Test
+    public void splitLayers() throws Exception {
+        var converter = new Converter(new ObjectMapper(), null);
+        var input = List.of("src/test/data/MapperTest/MapWithText.xtf");
+        var layerDirectory = new File(TEST_OUT_DIR + "splitLayers");
+        var groupDirectory = new File(TEST_OUT_DIR + "splitLayerGroups");
+
+        var layerResult = converter.convert(input, layerDirectory.getPath(), Optional.empty(), Optional.empty(), new OutputOptions(OutputCompression.NONE, true, Map.of(), EntityOrder.INPUT, false));
+        assertEquals(4, layerResult.objectCount());
+        for (String layer : List.of("WAS-FLAECHE", "WAS-PUNKT", "FER-PUNKT", "FER-TEXT")) {
+            assertTrue(new File(layerDirectory, layer + ".dxf").isFile(), "Missing file of layer " + layer);
+        }
+
+        var groups = Map.of("WAS-FLAECHE", "wasser", "WAS-PUNKT", "wasser", "ELE-PUNKT", "elektrizitaet");
+        var groupResult = converter.convert(input, groupDirectory.getPath(), Optional.empty(), Optional.empty(), new OutputOptions(OutputCompression.NONE, true, groups, EntityOrder.INPUT, false));
+        assertEquals(2, groupResult.objectCount());
+        assertFalse(new File(groupDirectory, "elektrizitaet.dxf").exists(), "Groups without objects should not be written");
+
+        String wasser = Files.readString(new File(groupDirectory, "wasser.dxf").toPath());
+        assertTrue(wasser.contains("WAS-FLAECHE"));
+        assertTrue(wasser.contains("WAS-PUNKT"));
+        assertFalse(wasser.contains("FER-PUNKT"), "Layers of other groups should not be defined");
+    }
+
+    @Test
+    public void splitLayerGroupsWithSameFileName() throws Exception {
+        var converter = new Converter(new ObjectMapper(), null);
+        var input = List.of("src/test/data/MapperTest/MapWithText.xtf");
+        var groupDirectory = new File(TEST_OUT_DIR + "splitLayerGroupsWithSameFileName");
+        for (String name : List.of("wasser_a.dxf", "wasser_a_2.dxf")) {
+            Files.deleteIfExists(new File(groupDirectory, name).toPath());
         }
 
-        var polyline = IomObjectHelper.createPolyline(segments.toArray(new IomObject[0]));
-        var rand = new Random(oid);
-        return IomObjectHelper.createIomObject("SIA405_LKMap_2015_LV95.SIA405_LKMap.LKLinie", "obj_" + oid,
-                o -> o.addattrobj("Linie", polyline),
-                o -> o.addattrvalue("Objektart", lineObjectTypeValues[rand.nextInt(lineObjectTypeValues.length)]),
-                o -> o.addattrvalue("Lagebestimmung", precisionValues[rand.nextInt(precisionValues.length)]),
-                o -> o.addattrvalue("Status", objectStatusValues[rand.nextInt(objectStatusValues.length)]),
-                o -> o.addattrvalue("Eigentuemer", "Keine_Angabe"));
+        var groups = new LinkedHashMap<String, String>();
+        groups.put("WAS-FLAECHE", "wasser/a");
+        groups.put("WAS-PUNKT", "wasser_a");
+        var result = converter.convert(input, groupDirectory.getPath(), Optional.empty(), Optional.empty(), new OutputOptions(OutputCompression.NONE, true, groups, EntityOrder.INPUT, false));
+        assertEquals(2, result.objectCount());
+
+        String first = Files.readString(new File(groupDirectory, "wasser_a.dxf").toPath());
+        String second = Files.readString(new File(groupDirectory, "wasser_a_2.dxf").toPath());
+        assertTrue(first.contains("WAS-FLAECHE") != second.contains("WAS-FLAECHE"), "Each group should be written to its own file");
+        assertTrue(first.contains("WAS-PUNKT") != second.contains("WAS-PUNKT"), "Each group should be written to its own file");
     }
 
-    private IomObject createFlaecheObject(int oid, double x, double y) {
-        var rand = new Random(oid);
-        return IomObjectHelper.createIomObject("SIA405_LKMap_2015_LV95.SIA405_LKMap.LKFlaeche", "obj_" + oid,
-                o -> o.addattrobj("Flaeche", IomObjectHelper.createRectangleGeometry(Double.toString(x), Double.toString(y), Double.toString(x - 1.5), Double.toString(y + 10))),
-                o -> o.addattrvalue("Objektart", objectTypeValues[rand.nextInt(objectTypeValues.length)]),
-                o -> o.addattrvalue("Lagebestimmung", precisionValues[rand.nextInt(precisionValues.length)]),
-                o -> o.addattrvalue("Status", objectStatusValues[rand.nextInt(objectStatusValues.length)]),
-                o -> o.addattrvalue("Eigentuemer", "Keine_Angabe"));
+    @Test
+    public void dedupeOverlappingFiles() throws Exception {
+        var converter = new Converter(new ObjectMapper(), null);
+        var input = List.of("src/test/data/MapperTest/MapWithText.xtf", "src/test/data/MapperTest/MapWithText.xtf");
+        var outputFile = new File(TEST_OUT_DIR + "dedupeOverlappingFiles.dxf");
+
+        var result = converter.convert(input, outputFile.getPath(), Optional.empty(), Optional.empty(), new OutputOptions(OutputCompression.NONE, false, Map.of(), EntityOrder.INPUT, true));
+        assertEquals(4, result.objectCount());
+        assertEquals(0, result.files().get(0).duplicateObjects());
+        assertEquals(4, result.files().get(1).duplicateObjects());
+        assertEquals(0, result.files().get(1).objectCount());
     }
 
-    private IomObject createPointObject(int oid, double x, double y) {
-        var rand = new Random(oid);
-        return IomObjectHelper.createIomObject("SIA405_LKMap_2015_LV95.SIA405_LKMap.LKPunkt", "obj_" + oid,
-                o -> o.addattrobj("SymbolPos", IomObjectHelper.createCoord(Double.toString(x), Double.toString(y))),
-                o -> o.addattrvalue("Objektart", objectTypeValues[rand.nextInt(objectTypeValues.length)]),
-                o -> o.addattrvalue("Lagebestimmung", precisionValues[rand.nextInt(precisionValues.length)]),
-                o -> o.addattrvalue("Status", objectStatusValues[rand.nextInt(objectStatusValues.length)]),
-                o -> o.addattrvalue("Eigentuemer", "Keine_Angabe"));
+    @Test
+    public void referencesAcrossFiles() throws Exception {
+        // Split the text and the object it references into separate files
+        var lines = Files.readAllLines(new File("src/test/data/MapperTest/MapWithText.xtf").toPath());
+        var textFile = new File(TEST_OUT_DIR + "referencesAcrossFiles_text.xtf");
+        var pointFile = new File(TEST_OUT_DIR + "referencesAcrossFiles_point.xtf");
+        Files.write(textFile.toPath(), Stream.concat(lines.subList(0, 89).stream(), lines.subList(109, lines.size()).stream()).toList());
+        Files.write(pointFile.toPath(), Stream.concat(lines.subList(0, 13).stream(), lines.subList(89, lines.size()).stream()).toList());
+
+        var converter = new Converter(new ObjectMapper(), null);
+        var outputFile = new File(TEST_OUT_DIR + "referencesAcrossFiles.dxf");
+        var result = converter.convert(List.of(textFile.getPath(), pointFile.getPath()), outputFile.getPath(), Optional.empty());
+
+        assertEquals(4, result.objectCount());
+        assertEquals(3, result.files().get(0).objectCount());
+        assertEquals(1, result.files().get(1).objectCount());
+        assertTrue(result.layerCounts().containsKey("FER-TEXT"));
     }
 
-    private IomObject createTextObject(int oid, double x, double y, String objectRef) {
-        return IomObjectHelper.createIomObject("SIA405_LKMap_2015_LV95.SIA405_LKMap.LKObjekt_Text", "obj_" + oid,
-                o -> o.addattrobj("TextPos", IomObjectHelper.createCoord(Double.toString(x), Double.toString(y))),
-                o -> o.addattrvalue("TextOri", "90"),
-                o -> o.addattrvalue("TextHAli", "Left"),
-                o -> o.addattrvalue("TextVAli", "Base"),
-                o -> o.addattrvalue("Textinhalt", "obj_" + oid),
-                o -> o.addattrobj("LKObjektRef", IomObjectHelper.createIomObject("REF", null,
-                        r -> r.setobjectrefoid(objectRef))));
+    @Test
+    public void referencesAcrossFilesWithCache() throws Exception {
+        // The text of the second file references the point of the first file
+        var lines = Files.readAllLines(new File("src/test/data/MapperTest/MapWithText.xtf").toPath());
+        var pointFile = new File(TEST_OUT_DIR + "referencesAcrossFilesWithCache_point.xtf");
+        var textFile = new File(TEST_OUT_DIR + "referencesAcrossFilesWithCache_text.xtf");
+        Files.write(pointFile.toPath(), Stream.concat(lines.subList(0, 13).stream(), lines.subList(89, lines.size()).stream()).toList());
+        Files.write(textFile.toPath(), Stream.concat(lines.subList(0, 89).stream(), lines.subList(109, lines.size()).stream()).toList());
+
+        var cacheDirectory = new File(TEST_OUT_DIR + "referencesAcrossFilesWithCache_cache");
+        var cachedFiles = cacheDirectory.listFiles();
+        if (cachedFiles != null) {
+            for (var file : cachedFiles) {
+                assertTrue(file.delete(), "Failed to delete cache entry " + file);
+            }
+        }
+
+        var converter = new Converter(new ObjectMapper(), null, Optional.of(new FragmentCache(cacheDirectory.toPath())));
+        var outputFile = new File(TEST_OUT_DIR + "referencesAcrossFilesWithCache.dxf");
+        var first = converter.convert(List.of(pointFile.getPath(), textFile.getPath()), outputFile.getPath(), Optional.empty());
+        assertEquals(4, first.objectCount());
+        assertTrue(first.layerCounts().containsKey("FER-TEXT"));
+        assertTrue(first.files().stream().noneMatch(FileStatistics::cached));
+
+        // only the point file is cached, the entities of the text file depend on the point file
+        var entries = cacheDirectory.listFiles();
+        assertEquals(2, entries.length);
+
+        // the point file is read again to resolve the reference of the text
+        var second = converter.convert(List.of(pointFile.getPath(), textFile.getPath()), outputFile.getPath(), Optional.empty());
+        assertEquals(4, second.objectCount());
+        assertEquals(first.layerCounts(), second.layerCounts());
+        assertTrue(second.files().get(0).cached());
+        assertFalse(second.files().get(1).cached());
+        assertEquals(3, second.files().get(1).objectCount());
+    }
+
+    @Test
+    public void streamingParserMatchesStrictReader() throws Exception {
+        var inputFile = new File(TEST_OUT_DIR + "streamingParserMatchesStrictReader.xtf");
+        var generator = new LKMapDataGenerator(LKMapDataGenerator.Language.GERMAN, LKMapDataGenerator.ClassMix.DEFAULT, 0.3, 1);
+        generator.write(inputFile, new ObjectMapper().getTransferDescription(), 0, 2_000);
+        var input = List.of(inputFile.getPath());
+        var strictFile = new File(TEST_OUT_DIR + "streamingParserMatchesStrictReader_strict.dxf");
+        var streamingFile = new File(TEST_OUT_DIR + "streamingParserMatchesStrictReader_streaming.dxf");
+
+        new Converter(new ObjectMapper(), null, Optional.empty(), true).convert(input, strictFile.getPath(), Optional.empty());
+        var result = new Converter(new ObjectMapper(), null, Optional.empty(), false).convert(input, streamingFile.getPath(), Optional.empty());
+
+        assertTrue(result.objectCount() > 0);
+        assertArrayEquals(Files.readAllBytes(strictFile.toPath()), Files.readAllBytes(streamingFile.toPath()));
+    }
+
+    private void writeTestXTF(File file, int seed, int objectCount) throws IOException, URISyntaxException, Ili2cException, IoxException {
+        LKMapDataGenerator.DEFAULT.write(file, new ObjectMapper().getTransferDescription(), seed, objectCount);
     }
 }
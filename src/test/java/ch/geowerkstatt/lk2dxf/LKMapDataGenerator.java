@@ -0,0 +1,310 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.interlis.ili2c.metamodel.TransferDescription;
+import ch.interlis.iom.IomObject;
+import ch.interlis.iom_j.xtf.XtfWriter;
+import ch.interlis.iox.IoxException;
+import ch.interlis.iox_j.EndBasketEvent;
+import ch.interlis.iox_j.EndTransferEvent;
+import ch.interlis.iox_j.ObjectEvent;
+import ch.interlis.iox_j.StartBasketEvent;
+import ch.interlis.iox_j.StartTransferEvent;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Generates synthetic LKMap objects for tests and benchmarks.
+ * <p>
+ * The objects are created in groups that share a random position. Each group contains the texts of the
+ * {@link ClassMix} followed by its lines, surfaces and points, the texts reference the first other object of the group.
+ * The output only depends on the settings and the first OID, so the same data is generated on every run.
+ *
+ * @param language The model language of the generated objects.
+ * @param classMix The number of objects of each class per group.
+ * @param arcShare The share of line and boundary segments that are arcs, between 0 and 1.
+ * @param referenceShare The share of texts that reference another object, between 0 and 1.
+ */
+public record LKMapDataGenerator(Language language, ClassMix classMix, double arcShare, double referenceShare) {
+    /**
+     * The generator used by the integration tests: German objects in a 1:1:1:1 mix without arcs, all texts with reference.
+     */
+    public static final LKMapDataGenerator DEFAULT = new LKMapDataGenerator(Language.GERMAN, ClassMix.DEFAULT, 0, 1);
+
+    public LKMapDataGenerator {
+        if (classMix.groupSize() == 0) {
+            throw new IllegalArgumentException("The class mix must contain at least one object.");
+        }
+        if (arcShare < 0 || arcShare > 1 || referenceShare < 0 || referenceShare > 1) {
+            throw new IllegalArgumentException("Shares must be between 0 and 1.");
+        }
+    }
+
+    /**
+     * Writes a transfer file with one basket containing the generated objects.
+     *
+     * @param file The file to write.
+     * @param transferDescription The compiled models, see {@link ch.geowerkstatt.lk2dxf.mapping.ObjectMapper#getTransferDescription()}.
+     * @param firstOid The number of the first OID, also used as seed for the positions.
+     * @param objectCount The number of objects to generate, rounded up to complete groups.
+     */
+    public void write(File file, TransferDescription transferDescription, int firstOid, int objectCount) throws IoxException {
+        XtfWriter writer = new XtfWriter(file, transferDescription);
+        try {
+            writer.write(new StartTransferEvent());
+            writer.write(new StartBasketEvent(language.topic, "BASKET1"));
+            createObjects(firstOid, objectCount).forEach(o -> {
+                try {
+                    writer.write(new ObjectEvent(o));
+                } catch (IoxException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            writer.write(new EndBasketEvent());
+            writer.write(new EndTransferEvent());
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Lazily creates the objects, so arbitrarily large datasets can be generated with constant memory.
+     *
+     * @param firstOid The number of the first OID, also used as seed for the positions.
+     * @param objectCount The number of objects to generate, rounded up to complete groups.
+     */
+    public Stream<IomObject> createObjects(int firstOid, int objectCount) {
+        var rand = new Random(firstOid);
+        int groupSize = classMix.groupSize();
+        return IntStream.iterate(firstOid, i -> i < firstOid + objectCount, i -> i + groupSize)
+                .mapToObj(i -> createGroup(i, rand).stream())
+                .flatMap(s -> s);
+    }
+
+    private List<IomObject> createGroup(int firstOid, Random rand) {
+        var x = rand.nextDouble() * 300_000 + 2510_000;
+        var y = rand.nextDouble() * 200_000 + 1085_000;
+        var size = rand.nextDouble() * 7000 + 3000;
+
+        var objects = new ArrayList<IomObject>(classMix.groupSize());
+        int oid = firstOid;
+        String referencedOid = "obj_" + (firstOid + classMix.texts());
+        for (int i = 0; i < classMix.texts(); i++, oid++) {
+            objects.add(createTextObject(oid, x, y, classMix.groupSize() > classMix.texts() ? referencedOid : null));
+        }
+        for (int i = 0; i < classMix.lines(); i++, oid++) {
+            objects.add(createLineObject(oid, x, y, size));
+        }
+        for (int i = 0; i < classMix.surfaces(); i++, oid++) {
+            objects.add(createSurfaceObject(oid, x, y));
+        }
+        for (int i = 0; i < classMix.points(); i++, oid++) {
+            objects.add(createPointObject(oid, x, y));
+        }
+        return objects;
+    }
+
+    private IomObject createLineObject(int oid, double x, double y, double size) {
+        var rings = 4;
+        var angleCount = 7;
+        var segments = new ArrayList<IomObject>();
+        for (double r = size; r > 0.1; r -= size / rings) {
+            for (int i = 0; i < angleCount; i++) {
+                var angle = Math.TAU / angleCount * i;
+                if (i > 0 && isArc(segments.size())) {
+                    var midAngle = angle - Math.TAU / angleCount / 2;
+                    segments.add(IomObjectHelper.createArc(
+                            Double.toString(x + r * Math.cos(midAngle)), Double.toString(y + r * Math.sin(midAngle)),
+                            Double.toString(x + r * Math.cos(angle)), Double.toString(y + r * Math.sin(angle))));
+                } else {
+                    segments.add(IomObjectHelper.createCoord(Double.toString(x + r * Math.cos(angle)), Double.toString(y + r * Math.sin(angle))));
+                }
+            }
+        }
+
+        var polyline = IomObjectHelper.createPolyline(segments.toArray(new IomObject[0]));
+        var rand = new Random(oid);
+        return IomObjectHelper.createIomObject(language.lineClass, "obj_" + oid,
+                o -> o.addattrobj(language.lineGeometry, polyline),
+                o -> o.addattrvalue(language.objectType, pick(rand, language.lineObjectTypeValues)),
+                o -> o.addattrvalue(language.precision, pick(rand, language.precisionValues)),
+                o -> o.addattrvalue(language.status, pick(rand, language.statusValues)),
+                o -> o.addattrvalue(language.owner, language.unknownOwner));
+    }
+
+    private IomObject createSurfaceObject(int oid, double x, double y) {
+        var rand = new Random(oid);
+        return IomObjectHelper.createIomObject(language.surfaceClass, "obj_" + oid,
+                o -> o.addattrobj(language.surfaceGeometry, createRectangle(x, y, x - 1.5, y + 10)),
+                o -> o.addattrvalue(language.objectType, pick(rand, language.objectTypeValues)),
+                o -> o.addattrvalue(language.precision, pick(rand, language.precisionValues)),
+                o -> o.addattrvalue(language.status, pick(rand, language.statusValues)),
+                o -> o.addattrvalue(language.owner, language.unknownOwner));
+    }
+
+    private IomObject createPointObject(int oid, double x, double y) {
+        var rand = new Random(oid);
+        return IomObjectHelper.createIomObject(language.pointClass, "obj_" + oid,
+                o -> o.addattrobj(language.pointGeometry, IomObjectHelper.createCoord(Double.toString(x), Double.toString(y))),
+                o -> o.addattrvalue(language.objectType, pick(rand, language.objectTypeValues)),
+                o -> o.addattrvalue(language.precision, pick(rand, language.precisionValues)),
+                o -> o.addattrvalue(language.status, pick(rand, language.statusValues)),
+                o -> o.addattrvalue(language.owner, language.unknownOwner));
+    }
+
+    private IomObject createTextObject(int oid, double x, double y, String referencedOid) {
+        var text = IomObjectHelper.createIomObject(language.textClass, "obj_" + oid,
+                o -> o.addattrobj(language.textPosition, IomObjectHelper.createCoord(Double.toString(x), Double.toString(y))),
+                o -> o.addattrvalue(language.textOrientation, "90"),
+                o -> o.addattrvalue(language.textHAlignment, "Left"),
+                o -> o.addattrvalue(language.textVAlignment, "Base"),
+                o -> o.addattrvalue(language.textContent, "obj_" + oid));
+        if (referencedOid != null && (referenceShare == 1 || new Random(oid).nextDouble() < referenceShare)) {
+            text.addattrobj(language.textReference, IomObjectHelper.createIomObject("REF", null, r -> r.setobjectrefoid(referencedOid)));
+        }
+        return text;
+    }
+
+    /**
+     * Creates a rectangle whose edges are arcs bulging outwards if selected by the {@link #arcShare}.
+     */
+    private IomObject createRectangle(double x1, double y1, double x2, double y2) {
+        double[][] corners = {{x1, y1}, {x1, y2}, {x2, y2}, {x2, y1}, {x1, y1}};
+        double centerX = (x1 + x2) / 2;
+        double centerY = (y1 + y2) / 2;
+        var segments = new ArrayList<IomObject>();
+        segments.add(IomObjectHelper.createCoord(Double.toString(x1), Double.toString(y1)));
+        for (int i = 1; i < corners.length; i++) {
+            String endX = Double.toString(corners[i][0]);
+            String endY = Double.toString(corners[i][1]);
+            if (isArc(i)) {
+                double midX = (corners[i - 1][0] + corners[i][0]) / 2;
+                double midY = (corners[i - 1][1] + corners[i][1]) / 2;
+                midX += (midX - centerX) * 0.1;
+                midY += (midY - centerY) * 0.1;
+                segments.add(IomObjectHelper.createArc(Double.toString(midX), Double.toString(midY), endX, endY));
+            } else {
+                segments.add(IomObjectHelper.createCoord(endX, endY));
+            }
+        }
+        return IomObjectHelper.createPolygonFromBoundaries(IomObjectHelper.createBoundary(segments.toArray(new IomObject[0])));
+    }
+
+    /**
+     * Distributes the arcs evenly over the segments according to the {@link #arcShare}.
+     */
+    private boolean isArc(int segmentIndex) {
+        return Math.floor(segmentIndex * arcShare) > Math.floor((segmentIndex - 1) * arcShare);
+    }
+
+    private static String pick(Random rand, String[] values) {
+        return values[rand.nextInt(values.length)];
+    }
+
+    /**
+     * The number of objects of each class in a group of generated objects.
+     *
+     * @param texts The number of texts, which are written first and reference the first other object of the group.
+     * @param lines The number of lines.
+     * @param surfaces The number of surfaces.
+     * @param points The number of points.
+     */
+    public record ClassMix(int texts, int lines, int surfaces, int points) {
+        /**
+         * One object of each class.
+         */
+        public static final ClassMix DEFAULT = new ClassMix(1, 1, 1, 1);
+
+        /**
+         * Parses a class mix in the format {@code texts:lines:surfaces:points}, e.g. {@code 1:2:1:4}.
+         */
+        public static ClassMix parse(String value) {
+            String[] parts = value.split(":");
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Expected a class mix in the format texts:lines:surfaces:points but got: " + value);
+            }
+            return new ClassMix(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), Integer.parseInt(parts[3]));
+        }
+
+        int groupSize() {
+            return texts + lines + surfaces + points;
+        }
+    }
+
+    /**
+     * The supported languages of the LKMap model with the names and values used for the generated objects.
+     */
+    public enum Language {
+        GERMAN("SIA405_LKMap_2015_LV95.SIA405_LKMap", "LKLinie", "LKFlaeche", "LKPunkt", "LKObjekt_Text",
+                "Linie", "Flaeche", "SymbolPos", "Objektart", "Lagebestimmung", "Status", "Eigentuemer", "Keine_Angabe",
+                "TextPos", "TextOri", "TextHAli", "TextVAli", "Textinhalt", "LKObjektRef",
+                new String[]{"genau", "unbekannt", "ungenau"},
+                new String[]{"Abwasser.Fernwirkkabel", "Abwasser.Haltung_Kanal", "Abwasser.Schutzrohr", "Elektrizitaet.AnkerStrebe", "Elektrizitaet.Trasse.oberirdisch", "Elektrizitaet.Trasse.unterirdisch", "Fernwaerme.Fernwirkkabel", "Fernwaerme.Trasse", "Gas.Fernwirkkabel", "Gas.Leitung", "Gas.Schutzrohr", "Kommunikation.Trasse.oberirdisch", "Kommunikation.Trasse.unterirdisch", "Wasser.Fernwirkkabel", "Wasser.Leitung", "Wasser.Schutzrohr", "weitereMedien.Fernwirkkabel", "weitereMedien.Leitung", "weitereMedien.Schutzrohr"},
+                new String[]{"Abwasser", "Elektrizitaet", "Fernwaerme", "Gas", "Kommunikation", "Wasser", "weitereMedien"},
+                new String[]{"ausser_Betrieb", "in_Betrieb", "tot", "unbekannt", "weitere"}),
+        FRENCH("SIA405_LKMap_2015_f_LV95.SIA405_LKMap_f", "LKLIGNE", "LKSURFACE", "LKPOINT", "LKOBJET_Texte",
+                "LIGNE", "SURFACE2D", "SYMBOLEPOS", "TYPE_OBJET", "DETERMINATION_PLANIMETRIQUE", "ETAT", "PROPRIETAIRE", "aucune_indication",
+                "TEXTEPOS", "TEXTEORI", "TEXTEHALI", "TEXTEVALI", "TEXTE", "LKOBJETRef",
+                new String[]{"precis", "inconnue", "imprecis"},
+                new String[]{"eaux_usees.cable_de_controle_a_distance", "eaux_usees.troncon_canalisation", "eaux_usees.tube_de_protection", "electricite.hauban_contrefiche", "electricite.trace.aerien", "electricite.trace.souterrain", "chauffage_a_distance.cable_de_controle_a_distance", "chauffage_a_distance.trace", "gaz.cable_de_controle_a_distance", "gaz.conduite", "gaz.tube_de_protection", "communication.trace.aerien", "communication.trace.souterrain", "eau.cable_de_controle_a_distance", "eau.conduite", "eau.tube_de_protection", "autres_fluides.cable_de_controle_a_distance", "autres_fluides.conduite", "autres_fluides.tube_de_protection"},
+                new String[]{"eaux_usees", "electricite", "chauffage_a_distance", "gaz", "communication", "eau", "autres_fluides"},
+                new String[]{"hors_service", "en_service", "abandonne", "inconnu", "autre"});
+
+        private final String topic;
+        private final String lineClass;
+        private final String surfaceClass;
+        private final String pointClass;
+        private final String textClass;
+        private final String lineGeometry;
+        private final String surfaceGeometry;
+        private final String pointGeometry;
+        private final String objectType;
+        private final String precision;
+        private final String status;
+        private final String owner;
+        private final String unknownOwner;
+        private final String textPosition;
+        private final String textOrientation;
+        private final String textHAlignment;
+        private final String textVAlignment;
+        private final String textContent;
+        private final String textReference;
+        private final String[] precisionValues;
+        private final String[] lineObjectTypeValues;
+        private final String[] objectTypeValues;
+        private final String[] statusValues;
+
+        Language(String topic, String lineClass, String surfaceClass, String pointClass, String textClass,
+                 String lineGeometry, String surfaceGeometry, String pointGeometry, String objectType, String precision, String status, String owner, String unknownOwner,
+                 String textPosition, String textOrientation, String textHAlignment, String textVAlignment, String textContent, String textReference,
+                 String[] precisionValues, String[] lineObjectTypeValues, String[] objectTypeValues, String[] statusValues) {
+            this.topic = topic;
+            this.lineClass = topic + "." + lineClass;
+            this.surfaceClass = topic + "." + surfaceClass;
+            this.pointClass = topic + "." + pointClass;
+            this.textClass = topic + "." + textClass;
+            this.lineGeometry = lineGeometry;
+            this.surfaceGeometry = surfaceGeometry;
+            this.pointGeometry = pointGeometry;
+            this.objectType = objectType;
+            this.precision = precision;
+            this.status = status;
+            this.owner = owner;
+            this.unknownOwner = unknownOwner;
+            this.textPosition = textPosition;
+            this.textOrientation = textOrientation;
+            this.textHAlignment = textHAlignment;
+            this.textVAlignment = textVAlignment;
+            this.textContent = textContent;
+            this.textReference = textReference;
+            this.precisionValues = precisionValues;
+            this.lineObjectTypeValues = lineObjectTypeValues;
+            this.objectTypeValues = objectTypeValues;
+            this.statusValues = statusValues;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.geowerkstatt.lk2dxf.mapping.MappingReader;
+import ch.geowerkstatt.lk2dxf.mapping.ObjectMapper;
+import com.vividsolutions.jts.io.WKTReader;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class MappedObjectStoreTest {
+    private static final String TEST_OUT_DIR = "src/test/data/Results/MappedObjectStore/";
+
+    @BeforeAll
+    static void initAll() {
+        new File(TEST_OUT_DIR).mkdirs();
+    }
+
+    @Test
+    public void exportProducesSameOutputAsConversion() throws Exception {
+        var inputFile = new File(TEST_OUT_DIR, "generated.xtf");
+        var generator = new LKMapDataGenerator(LKMapDataGenerator.Language.GERMAN, LKMapDataGenerator.ClassMix.DEFAULT, 0.3, 1);
+        generator.write(inputFile, new ObjectMapper().getTransferDescription(), 0, 2_000);
+        var perimeter = Optional.of(new WKTReader().read("POLYGON ((2600000 1150000, 2700000 1150000, 2700000 1250000, 2600000 1250000, 2600000 1150000))"));
+        var converter = new Converter(new ObjectMapper(), null);
+        String storeFile = TEST_OUT_DIR + "generated" + MappedObjectStore.EXTENSION;
+
+        var imported = converter.importFiles(List.of(inputFile.getPath()), storeFile);
+        var converted = converter.convert(List.of(inputFile.getPath()), TEST_OUT_DIR + "converted.dxf", perimeter);
+        var exported = converter.convert(List.of(storeFile), TEST_OUT_DIR + "exported.dxf", perimeter);
+
+        try (var store = MappedObjectStore.open(new File(storeFile), new ObjectMapper())) {
+            assertEquals(imported.objectCount(), store.getObjectCount());
+        }
+        assertEquals(converted.objectCount(), exported.objectCount());
+        assertEquals(converted.layerCounts(), exported.layerCounts());
+        assertEquals(Files.readString(Path.of(TEST_OUT_DIR + "converted.dxf")), Files.readString(Path.of(TEST_OUT_DIR + "exported.dxf")));
+    }
+
+    @Test
+    public void exportWithoutGeometryProducesSameOutputAsConversion() throws Exception {
+        var inputFile = new File(TEST_OUT_DIR, "generatedWithoutGeometry.xtf");
+        var generator = new LKMapDataGenerator(LKMapDataGenerator.Language.GERMAN, LKMapDataGenerator.ClassMix.DEFAULT, 0.3, 1);
+        generator.write(inputFile, new ObjectMapper().getTransferDescription(), 0, 2_000);
+        var converter = new Converter(new ObjectMapper(), null);
+        String storeFile = TEST_OUT_DIR + "generatedWithoutGeometry" + MappedObjectStore.EXTENSION;
+        String reimportedStoreFile = TEST_OUT_DIR + "reimported" + MappedObjectStore.EXTENSION;
+        var hilbertOrder = new OutputOptions(OutputCompression.NONE, false, Map.of(), EntityOrder.HILBERT, false);
+
+        converter.importFiles(List.of(inputFile.getPath()), storeFile);
+        converter.importFiles(List.of(storeFile), reimportedStoreFile);
+        converter.convert(List.of(inputFile.getPath()), TEST_OUT_DIR + "convertedWithoutGeometry.dxf", Optional.empty());
+        converter.convert(List.of(reimportedStoreFile), TEST_OUT_DIR + "exportedWithoutGeometry.dxf", Optional.empty());
+        converter.convert(List.of(inputFile.getPath()), TEST_OUT_DIR + "convertedHilbert.dxf", Optional.empty(), Optional.empty(), hilbertOrder);
+        converter.convert(List.of(storeFile), TEST_OUT_DIR + "exportedHilbert.dxf", Optional.empty(), Optional.empty(), hilbertOrder);
+
+        assertEquals(Files.readString(Path.of(TEST_OUT_DIR + "convertedWithoutGeometry.dxf")), Files.readString(Path.of(TEST_OUT_DIR + "exportedWithoutGeometry.dxf")));
+        assertEquals(Files.readString(Path.of(TEST_OUT_DIR + "convertedHilbert.dxf")), Files.readString(Path.of(TEST_OUT_DIR + "exportedHilbert.dxf")));
+    }
+
+    @Test
+    public void rejectStoreOfOtherLayerMappings() throws Exception {
+        String storeFile = TEST_OUT_DIR + "mapWithText" + MappedObjectStore.EXTENSION;
+        new Converter(new ObjectMapper(), null).importFiles(List.of("src/test/data/MapperTest/MapWithText.xtf"), storeFile);
+
+        var otherMappings = MappingReader.readMappings().subList(1, MappingReader.readMappings().size());
+        var converter = new Converter(new ObjectMapper(otherMappings), null);
+        var exception = assertThrows(IllegalStateException.class, () -> converter.convert(List.of(storeFile), TEST_OUT_DIR + "other.dxf", Optional.empty()));
+        assertInstanceOf(IOException.class, exception.getCause());
+    }
+}
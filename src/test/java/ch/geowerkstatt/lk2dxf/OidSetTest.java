@@ -0,0 +1,55 @@
+package ch.geowerkstatt.lk2dxf;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class OidSetTest {
+    @Test
+    public void containsAddedUuidsIgnoringCase() {
+        var oids = new OidSet();
+        oids.add("4b6f2a9e-1c3d-4e5f-8a7b-9c0d1e2f3a4b");
+
+        assertTrue(oids.contains("4b6f2a9e-1c3d-4e5f-8a7b-9c0d1e2f3a4b"));
+        assertTrue(oids.contains("4B6F2A9E-1C3D-4E5F-8A7B-9C0D1E2F3A4B"));
+        assertFalse(oids.contains("4b6f2a9e-1c3d-4e5f-8a7b-9c0d1e2f3a4c"));
+        assertEquals(1, oids.size());
+    }
+
+    @Test
+    public void containsAddedOtherOids() {
+        var oids = new OidSet();
+        oids.add("obj_1");
+        oids.add("ch1234560000abcd");
+        oids.add("4b6f2a9e-1c3d-4e5f-8a7b-9c0d1e2f3a4g");
+
+        assertTrue(oids.contains("obj_1"));
+        assertTrue(oids.contains("ch1234560000abcd"));
+        assertTrue(oids.contains("4b6f2a9e-1c3d-4e5f-8a7b-9c0d1e2f3a4g"));
+        assertFalse(oids.contains("obj_2"));
+        assertEquals(3, oids.size());
+    }
+
+    @Test
+    public void growsBeyondInitialCapacity() {
+        var oids = new OidSet();
+        var added = new ArrayList<String>();
+        for (int i = 0; i < 200_000; i++) {
+            String oid = UUID.randomUUID().toString();
+            added.add(oid);
+            oids.add(oid);
+        }
+        oids.add(added.getFirst());
+
+        assertEquals(added.size(), oids.size());
+        for (String oid : added) {
+            assertTrue(oids.contains(oid));
+        }
+        assertFalse(oids.contains(UUID.randomUUID().toString()));
+    }
+}
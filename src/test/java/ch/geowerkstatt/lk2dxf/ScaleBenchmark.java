@@ -0,0 +1,158 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.geowerkstatt.lk2dxf.mapping.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs full conversions of generated LKMap datasets in a separate JVM and reports throughput, peak RSS and output size.
+ * <p>
+ * Started by the {@code scaleBenchmark} Gradle task with the arguments:
+ * output directory, object counts, languages, class mix, arc share, reference share and optional JVM arguments of the conversion.
+ * Generated datasets are kept in the output directory and reused by later runs with the same settings.
+ */
+public final class ScaleBenchmark {
+    private static final long RSS_SAMPLE_MILLIS = 50;
+    private static final Pattern OBJECT_COUNT_PATTERN = Pattern.compile("The output DXF file contains (\\d+) mapped objects");
+    private static final Pattern VM_HWM_PATTERN = Pattern.compile("VmHWM:\\s+(\\d+) kB");
+
+    private ScaleBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 6) {
+            throw new IllegalArgumentException("Usage: ScaleBenchmark <directory> <counts> <languages> <classMix> <arcShare> <referenceShare> [jvmArgs]");
+        }
+
+        Path directory = Path.of(args[0]);
+        List<Integer> objectCounts = Arrays.stream(args[1].split(",")).map(String::trim).map(Integer::parseInt).toList();
+        List<LKMapDataGenerator.Language> languages = Arrays.stream(args[2].split(",")).map(String::trim).map(LKMapDataGenerator.Language::valueOf).toList();
+        var classMix = LKMapDataGenerator.ClassMix.parse(args[3]);
+        double arcShare = Double.parseDouble(args[4]);
+        double referenceShare = Double.parseDouble(args[5]);
+        List<String> jvmArgs = args.length > 6 && !args[6].isBlank() ? List.of(args[6].trim().split("\\s+")) : List.of();
+        String classpath = System.getProperty("lk2dxf.classpath", System.getProperty("java.class.path"));
+
+        Files.createDirectories(directory);
+        var transferDescription = new ObjectMapper().getTransferDescription();
+        var results = new ArrayList<Result>();
+        for (var language : languages) {
+            var generator = new LKMapDataGenerator(language, classMix, arcShare, referenceShare);
+            for (int objectCount : objectCounts) {
+                String name = String.format(Locale.ROOT, "lkmap_%s_%d_%d-%d-%d-%d_arc%s_ref%s",
+                        language.name().toLowerCase(Locale.ROOT), objectCount,
+                        classMix.texts(), classMix.lines(), classMix.surfaces(), classMix.points(), arcShare, referenceShare);
+                Path xtfFile = directory.resolve(name + ".xtf");
+                if (!Files.isRegularFile(xtfFile)) {
+                    System.out.printf("Generating %s%n", xtfFile);
+                    Path tempFile = directory.resolve(name + ".xtf.tmp");
+                    generator.write(tempFile.toFile(), transferDescription, 0, objectCount);
+                    Files.move(tempFile, xtfFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                System.out.printf("Converting %s%n", xtfFile);
+                results.add(convert(name, xtfFile, directory.resolve(name + ".dxf"), directory.resolve(name + ".log"), classpath, jvmArgs));
+            }
+        }
+
+        printResults(results);
+        Path resultFile = directory.resolve("results.json");
+        JsonMapper.builder().enable(SerializationFeature.INDENT_OUTPUT).build().writeValue(resultFile.toFile(), results);
+        System.out.printf("Results written to %s%n", resultFile);
+    }
+
+    private static Result convert(String name, Path xtfFile, Path dxfFile, Path logFile, String classpath, List<String> jvmArgs) throws IOException, InterruptedException {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        var command = new ArrayList<String>();
+        command.add(java);
+        command.addAll(jvmArgs);
+        command.addAll(List.of("-cp", classpath, Main.class.getName(), xtfFile.toString(), dxfFile.toString(), "--logfile", logFile.toString()));
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+
+        long peakRssKb = 0;
+        while (!process.waitFor(RSS_SAMPLE_MILLIS, TimeUnit.MILLISECONDS)) {
+            OptionalLong rss = readPeakRssKb(process.pid());
+            if (rss.isPresent()) {
+                peakRssKb = Math.max(peakRssKb, rss.getAsLong());
+            }
+        }
+        long durationMillis = (System.nanoTime() - start) / 1_000_000;
+
+        String log = Files.readString(logFile);
+        Matcher matcher = OBJECT_COUNT_PATTERN.matcher(log);
+        long writtenObjects = matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+        long inputBytes = Files.size(xtfFile);
+        long outputBytes = Files.isRegularFile(dxfFile) ? Files.size(dxfFile) : 0;
+        double seconds = Math.max(durationMillis, 1) / 1000.0;
+
+        return new Result(
+                name,
+                process.exitValue(),
+                durationMillis,
+                writtenObjects,
+                writtenObjects / seconds,
+                inputBytes,
+                inputBytes / seconds / (1024 * 1024),
+                outputBytes,
+                peakRssKb / 1024);
+    }
+
+    /**
+     * Reads the peak resident set size of a process, only available on Linux.
+     */
+    private static OptionalLong readPeakRssKb(long pid) {
+        File status = new File("/proc/" + pid + "/status");
+        try {
+            Matcher matcher = VM_HWM_PATTERN.matcher(Files.readString(status.toPath()));
+            return matcher.find() ? OptionalLong.of(Long.parseLong(matcher.group(1))) : OptionalLong.empty();
+        } catch (IOException e) {
+            return OptionalLong.empty();
+        }
+    }
+
+    private static void printResults(List<Result> results) {
+        System.out.printf("%-48s %5s %10s %12s %12s %10s %12s %10s%n", "Dataset", "Exit", "Time ms", "Objects", "Objects/s", "MiB/s", "Output MiB", "RSS MiB");
+        for (var result : results) {
+            System.out.printf(Locale.ROOT, "%-48s %5d %10d %12d %12.0f %10.1f %12.1f %10d%n",
+                    result.dataset(),
+                    result.exitCode(),
+                    result.durationMillis(),
+                    result.writtenObjects(),
+                    result.objectsPerSecond(),
+                    result.inputMibPerSecond(),
+                    result.outputBytes() / (1024.0 * 1024.0),
+                    result.peakRssMib());
+        }
+    }
+
+    record Result(
+            String dataset,
+            int exitCode,
+            long durationMillis,
+            long writtenObjects,
+            double objectsPerSecond,
+            long inputBytes,
+            double inputMibPerSecond,
+            long outputBytes,
+            long peakRssMib) {
+    }
+}
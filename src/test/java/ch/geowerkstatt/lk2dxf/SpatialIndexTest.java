@@ -0,0 +1,95 @@
+package ch.geowerkstatt.lk2dxf;
+
+import ch.geowerkstatt.lk2dxf.mapping.ObjectMapper;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.io.WKTReader;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class SpatialIndexTest {
+    private static final String TEST_FILE = "src/test/data/MapperTest/MapWithText.xtf";
+    private static final String TEST_OUT_DIR = "src/test/data/Results/SpatialIndex/";
+    private static final String PERIMETER = "POLYGON ((2600000 1150000, 2700000 1150000, 2700000 1250000, 2600000 1250000, 2600000 1150000))";
+
+    @BeforeAll
+    static void initAll() {
+        new File(TEST_OUT_DIR).mkdirs();
+    }
+
+    @Test
+    public void perimeterExtractWithIndexMatchesFullConversion() throws Exception {
+        var inputFile = new File(TEST_OUT_DIR, "generated.xtf");
+        Files.deleteIfExists(SpatialIndex.getSidecarFile(inputFile).toPath());
+        var generator = new LKMapDataGenerator(LKMapDataGenerator.Language.GERMAN, LKMapDataGenerator.ClassMix.DEFAULT, 0.3, 1);
+        generator.write(inputFile, new ObjectMapper().getTransferDescription(), 0, 4_000);
+        var perimeter = Optional.of(new WKTReader().read(PERIMETER));
+        var converter = new Converter(new ObjectMapper(), null);
+        var fullFile = new File(TEST_OUT_DIR, "full.dxf");
+        var indexedFile = new File(TEST_OUT_DIR, "indexed.dxf");
+
+        var fullResult = converter.convert(List.of(inputFile.getPath()), fullFile.getPath(), perimeter);
+        assertTrue(SpatialIndex.create(inputFile) >= 4_000);
+        var indexedResult = converter.convert(List.of(inputFile.getPath()), indexedFile.getPath(), perimeter);
+
+        assertTrue(fullResult.objectCount() > 0);
+        assertEquals(fullResult.objectCount(), indexedResult.objectCount());
+        assertTrue(indexedResult.files().getFirst().inputBytes() < inputFile.length() / 2, "Only the objects within the perimeter should be read");
+        assertArrayEquals(Files.readAllBytes(fullFile.toPath()), Files.readAllBytes(indexedFile.toPath()));
+    }
+
+    @Test
+    public void selectIncludesReferencedObjects() throws Exception {
+        var inputFile = copyTestFile();
+        SpatialIndex.create(inputFile);
+        var index = SpatialIndex.open(inputFile).orElseThrow();
+        assertEquals(4, index.getObjectCount());
+
+        // the envelope around the text intersects the surface but not the point basket1object004 referenced by the text
+        int[] selected = index.select(textEnvelope(inputFile));
+        try (var reader = new XtfStreamReader(index.openExtract(inputFile, selected), inputFile.getName())) {
+            assertEquals(List.of("basket1object001", "basket1object003", "basket1object004"), reader.readObjects().map(o -> o.getobjectoid()).toList());
+        }
+    }
+
+    @Test
+    public void ignoreOutdatedIndex() throws Exception {
+        var inputFile = copyTestFile();
+        SpatialIndex.create(inputFile);
+
+        assertTrue(inputFile.setLastModified(inputFile.lastModified() + 60_000));
+        assertTrue(SpatialIndex.open(inputFile).isPresent(), "A changed modification time with the same content should keep the index valid");
+
+        Files.writeString(inputFile.toPath(), "\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        assertFalse(SpatialIndex.open(inputFile).isPresent());
+    }
+
+    private static File copyTestFile() throws Exception {
+        var file = new File(TEST_OUT_DIR, "MapWithText.xtf");
+        Files.copy(Path.of(TEST_FILE), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return file;
+    }
+
+    private static Envelope textEnvelope(File xtfFile) throws Exception {
+        try (var reader = new XtfStreamReader(xtfFile)) {
+            var text = reader.readObjects().filter(o -> "basket1object003".equals(o.getobjectoid())).findFirst().orElseThrow();
+            var position = text.getattrobj("TextPos", 0);
+            double x = Double.parseDouble(position.getattrvalue("C1"));
+            double y = Double.parseDouble(position.getattrvalue("C2"));
+            return new Envelope(x - 0.001, x + 0.001, y - 0.001, y + 0.001);
+        }
+    }
+}
@@ -1,14 +1,31 @@
 package ch.geowerkstatt.lk2dxf;
 
+import ch.geowerkstatt.lk2dxf.mapping.AttributeProjection;
 import ch.interlis.iom.IomObject;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public final class XtfStreamReaderTest {
     private static final String TEST_DIR = "src/test/data/LKMapXtfReaderTest/";
@@ -37,6 +54,47 @@ public final class XtfStreamReaderTest {
         }
     }
 
+    @Test
+    public void readFromInputStream() throws Exception {
+        try (XtfStreamReader reader = new XtfStreamReader(new FileInputStream(TEST_DIR + "ValidMultipleBaskets.xtf"), "stdin")) {
+            String[] objectIds = reader
+                    .readObjects()
+                    .map(IomObject::getobjectoid)
+                    .toArray(String[]::new);
+
+            assertArrayEquals(new String[] {"basket1object001", "basket1object002", "basket2object001"}, objectIds);
+        }
+    }
+
+    @Test
+    public void countBytesRead() throws Exception {
+        File file = new File(TEST_DIR + "ValidMultipleBaskets.xtf");
+        try (XtfStreamReader reader = new XtfStreamReader(file)) {
+            assertEquals(3, reader.readObjects().count());
+            assertEquals(file.length(), reader.getBytesRead());
+        }
+    }
+
+    @Test
+    public void recordBasketEvents(@TempDir Path tempDir) throws Exception {
+        Path recordingFile = tempDir.resolve("recording.jfr");
+        try (var recording = new Recording()) {
+            recording.enable("ch.geowerkstatt.lk2dxf.ReadBasket");
+            recording.start();
+            try (XtfStreamReader reader = new XtfStreamReader(new File(TEST_DIR + "ValidMultipleBaskets.xtf"))) {
+                reader.readObjects().forEach(o -> { });
+            }
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile).stream()
+                .sorted(Comparator.comparing(RecordedEvent::getStartTime))
+                .toList();
+        assertEquals(List.of(2, 1), events.stream().map(e -> e.getInt("objectCount")).toList());
+        assertTrue(events.stream().allMatch(e -> e.getLong("bytesRead") > 0));
+    }
+
     @Test
     public void readXtfForWrongModel() throws Exception {
         try (XtfStreamReader reader = new XtfStreamReader(new File(TEST_DIR + "WrongModel.xtf"))) {
@@ -45,6 +103,43 @@ public final class XtfStreamReaderTest {
         }
     }
 
+    @Test
+    public void streamingParserReadsSameObjectsAsStrictReader() throws Exception {
+        File file = new File("src/test/data/MapperTest/MapWithText.xtf");
+        List<String> strictObjects;
+        try (XtfStreamReader reader = new XtfStreamReader(file, true)) {
+            strictObjects = reader.readObjects().map(XtfStreamReaderTest::describe).toList();
+        }
+        try (XtfStreamReader reader = new XtfStreamReader(file, false)) {
+            assertEquals(strictObjects, reader.readObjects().map(XtfStreamReaderTest::describe).toList());
+        }
+    }
+
+    @Test
+    public void streamingParserRejectsOtherFormats() throws Exception {
+        var xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><TRANSFER xmlns=\"http://www.interlis.ch/xtf/2.4/INTERLIS\"></TRANSFER>";
+        try (XtfStreamReader reader = new XtfStreamReader(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), "test")) {
+            assertThrows(RuntimeException.class, () -> reader.readObjects().count());
+        }
+    }
+
+    @Test
+    public void skipObjectsOfClassesNotInProjection() throws Exception {
+        var projection = new AttributeProjection(Map.of("SIA405_LKMap_2015_LV95.SIA405_LKMap.LKPunkt", Set.of("Objektart")));
+        try (XtfStreamReader reader = new XtfStreamReader(new File("src/test/data/MapperTest/MapWithText.xtf"), false, Optional.of(projection))) {
+            List<IomObject> objects = reader.readObjects().toList();
+
+            assertEquals(List.of("basket1object002", "basket1object004"), objects.stream().map(IomObject::getobjectoid).toList());
+            assertTrue(objects.stream().allMatch(o -> o.getattrcount() == 1 && o.getattrvalue("Objektart") != null));
+            assertEquals(2, reader.getSkippedObjects());
+            assertTrue(reader.getSkippedBytes() > 0);
+            assertEquals(Map.of(
+                    "SIA405_LKMap_2015_LV95.SIA405_LKMap.LKFlaeche", 1,
+                    "SIA405_LKMap_2015_LV95.SIA405_LKMap.LKObjekt_Text", 1), reader.getSkippedTags());
+            assertEquals(2, reader.getReadObjects());
+        }
+    }
+
     @Test
     public void multipleReadsNotAllowed() throws Exception {
         try (XtfStreamReader reader = new XtfStreamReader(new File(TEST_DIR + "Valid.xtf"))) {
@@ -52,4 +147,21 @@ public final class XtfStreamReaderTest {
             assertThrows(IllegalStateException.class, reader::readObjects, "Multiple calls to readObjects should throw an exception");
         }
     }
+
+    /**
+     * Describes an object with its tag, OID, reference and all attributes sorted by name.
+     */
+    private static String describe(IomObject object) {
+        var attributes = new TreeMap<String, List<String>>();
+        for (int i = 0; i < object.getattrcount(); i++) {
+            String name = object.getattrname(i);
+            var values = new ArrayList<String>();
+            for (int j = 0; j < object.getattrvaluecount(name); j++) {
+                String value = object.getattrprim(name, j);
+                values.add(value != null ? value : describe(object.getattrobj(name, j)));
+            }
+            attributes.put(name, values);
+        }
+        return object.getobjecttag() + "[oid=" + object.getobjectoid() + ", ref=" + object.getobjectrefoid() + "]" + attributes;
+    }
 }
@@ -4,6 +4,7 @@ import ch.ehi.basics.logging.EhiLogger;
 import ch.ehi.basics.logging.StdListener;
 import ch.geowerkstatt.lk2dxf.EhiLogAdapter;
 import ch.geowerkstatt.lk2dxf.IomObjectHelper;
+import ch.geowerkstatt.lk2dxf.LKMapDataGenerator;
 import ch.geowerkstatt.lk2dxf.MappedObject;
 import ch.geowerkstatt.lk2dxf.XtfStreamReader;
 import ch.interlis.iom.IomObject;
@@ -13,13 +14,20 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public final class ObjectMapperTest {
     private static final String TEST_FILE = "src/test/data/MapperTest/MapWithText.xtf";
@@ -146,6 +154,24 @@ public final class ObjectMapperTest {
         assertArrayEquals(new String[] {"Test", "CatchAllText"}, actual);
     }
 
+    @Test
+    public void countUnmappedObjectsPerClassAndReason() throws Exception {
+        var objectMapper = new ObjectMapper(List.of(createTextLayerMapping("Test", Map.of("Plantyp", List.of("Leitungskataster")))));
+
+        var objects = Stream.concat(
+                IntStream.range(0, 7).mapToObj(i -> IomObjectHelper.createIomObject("SIA405_LKMap_2015_LV95.SIA405_LKMap.LKObjekt_Text", "obj_" + i,
+                        o -> o.addattrvalue("Plantyp", "Werkplan"))),
+                Stream.of(IomObjectHelper.createIomObject("Unknown_Model.Topic.Class", "obj_unknown")));
+        var statistics = new MappingStatistics();
+        assertEquals(0, objectMapper.mapObjects(objects, statistics).count());
+
+        assertEquals(8, statistics.getUnmappedObjects());
+        assertEquals(List.of(
+                new MappingStatistics.Issue("SIA405_LKMap_2015_LV95.SIA405_LKMap.LKObjekt_Text", MappingStatistics.Reason.NO_MATCH, 7, List.of("obj_0", "obj_1", "obj_2", "obj_3", "obj_4"), null),
+                new MappingStatistics.Issue("Unknown_Model.Topic.Class", MappingStatistics.Reason.UNKNOWN_CLASS, 1, List.of("obj_unknown"), null)),
+                statistics.getIssues());
+    }
+
     @Test
     public void mapObjectWithForwardRef() throws Exception {
         var layerMappings = createTextLayerMapping(Map.of("LKObjektRef->Objektart", List.of("Elektrizitaet")));
@@ -178,6 +204,93 @@ public final class ObjectMapperTest {
         assertArrayEquals(new String[] {"Test"}, actual);
     }
 
+    @Test
+    public void resolveDeferredObjectsAtBasketEnd() throws Exception {
+        var layerMappings = createTextLayerMapping(Map.of("LKObjektRef->Objektart", List.of("Elektrizitaet")));
+        var objectMapper = new ObjectMapper(layerMappings);
+
+        // the second text references a point of the next basket
+        var baskets = List.of(
+                List.of(createTextReferencing("text_1", "point_1"), createPoint("point_1"), createTextReferencing("text_2", "point_3")),
+                List.of(createPoint("point_2"), createTextReferencing("text_3", "point_2")),
+                List.of(createPoint("point_3"), createTextReferencing("text_4", "point_4"), createPoint("point_4")));
+        var completedBaskets = new AtomicInteger();
+        var objects = IntStream.range(0, baskets.size()).boxed().flatMap(i -> {
+            completedBaskets.set(i);
+            return baskets.get(i).stream();
+        });
+
+        var statistics = new MappingStatistics();
+        var unresolved = new ArrayList<IomObject>();
+        var oids = objectMapper.mapObjects(objects, statistics, completedBaskets::get, unresolved::add).map(MappedObject::oid).toList();
+        assertEquals(List.of("text_1", "text_3", "text_2", "text_4"), oids);
+        assertEquals(List.of(), unresolved);
+        assertEquals(3, statistics.getDeferredObjects());
+        assertEquals(2, statistics.getReleasedObjects());
+    }
+
+    @Test
+    public void resolveReleasedObjectsFromOtherBasket() throws Exception {
+        var layerMappings = createTextLayerMapping(Map.of("LKObjektRef->Objektart", List.of("Elektrizitaet")));
+        var objectMapper = new ObjectMapper(layerMappings);
+
+        // the text references a point of the previous basket, which was released at the end of its basket
+        var baskets = List.of(
+                List.of(createPoint("point_1")),
+                List.of(createTextReferencing("text_1", "point_1")));
+        var completedBaskets = new AtomicInteger();
+        var objects = IntStream.range(0, baskets.size()).boxed().flatMap(i -> {
+            completedBaskets.set(i);
+            return baskets.get(i).stream();
+        });
+
+        var statistics = new MappingStatistics();
+        var unresolved = new ArrayList<IomObject>();
+        var layers = objectMapper.mapObjects(objects, statistics, completedBaskets::get, unresolved::add).map(o -> o.layerMapping().layer()).toList();
+        assertEquals(List.of(), layers);
+        assertEquals(1, statistics.getReleasedObjects());
+        assertEquals(List.of("text_1"), unresolved.stream().map(IomObject::getobjectoid).toList());
+
+        // read the objects again to resolve the reference to the released point
+        var referenceIndex = new HashMap<String, IomObject>();
+        objectMapper.indexObjects(baskets.stream().flatMap(List::stream), referenceIndex);
+        var deferred = objectMapper.mapObjects(unresolved.stream(), statistics, () -> 0, referenceIndex, null).map(o -> o.layerMapping().layer()).toList();
+        assertEquals(List.of("Test"), deferred);
+    }
+
+    @Test
+    public void resolveReferencesAcrossStreams() throws Exception {
+        var layerMappings = createTextLayerMapping(Map.of("LKObjektRef->Objektart", List.of("Elektrizitaet")));
+        var objectMapper = new ObjectMapper(layerMappings);
+        var referenceIndex = new HashMap<String, IomObject>();
+
+        var unresolved = new ArrayList<IomObject>();
+        var first = objectMapper.mapObjects(Stream.of(createTextReferencing("text_1", "point_2"), createPoint("point_1")), new MappingStatistics(), () -> 0, referenceIndex, unresolved::add)
+                .map(MappedObject::oid).toList();
+        assertEquals(List.of(), first);
+        assertEquals(List.of("text_1"), unresolved.stream().map(IomObject::getobjectoid).toList());
+
+        var second = objectMapper.mapObjects(Stream.of(createPoint("point_2"), createTextReferencing("text_2", "point_1")), new MappingStatistics(), () -> 0, referenceIndex, null)
+                .map(MappedObject::oid).toList();
+        assertEquals(List.of("text_2"), second);
+        assertEquals(2, referenceIndex.size());
+
+        var deferred = objectMapper.mapObjects(unresolved.stream(), new MappingStatistics(), () -> 0, referenceIndex, null)
+                .map(o -> o.layerMapping().layer()).toList();
+        assertEquals(List.of("Test"), deferred);
+    }
+
+    private static IomObject createTextReferencing(String oid, String refOid) {
+        return IomObjectHelper.createIomObject("SIA405_LKMap_2015_LV95.SIA405_LKMap.LKObjekt_Text", oid,
+                o -> o.addattrobj("LKObjektRef", IomObjectHelper.createIomObject("REF", null,
+                        r -> r.setobjectrefoid(refOid))));
+    }
+
+    private static IomObject createPoint(String oid) {
+        return IomObjectHelper.createIomObject("SIA405_LKMap_2015_LV95.SIA405_LKMap.LKPunkt", oid,
+                o -> o.addattrvalue("Objektart", "Elektrizitaet"));
+    }
+
     @Test
     public void mapObjectWithMissingRef() throws Exception {
         var layerMappings = createTextLayerMapping(Map.of("LKObjektRef->Objektart", List.of("Elektrizitaet")));
@@ -202,6 +315,55 @@ public final class ObjectMapperTest {
         assertArrayEquals(new String[] {"CatchAllText"}, actual);
     }
 
+    @Test
+    public void rejectedObjectIsNotDeferredByUnresolvedRef() throws Exception {
+        var layerMappings = createTextLayerMapping(Map.of(
+                "LKObjektRef->Objektart", List.of("Elektrizitaet"),
+                "Plantyp", List.of("Leitungskataster")));
+        var objectMapper = new ObjectMapper(layerMappings);
+
+        var textObj = IomObjectHelper.createIomObject("SIA405_LKMap_2015_LV95.SIA405_LKMap.LKObjekt_Text", "textObj",
+                o -> o.addattrvalue("Plantyp", "Werkplan"),
+                o -> o.addattrobj("LKObjektRef", IomObjectHelper.createIomObject("REF", null,
+                        r -> r.setobjectrefoid("missingObj"))));
+
+        var statistics = new MappingStatistics();
+        List<String> layers = objectMapper.mapObjects(Stream.of(textObj), statistics).map(o -> o.layerMapping().layer()).toList();
+        assertEquals(List.of("CatchAllText"), layers);
+        assertEquals(0, statistics.getDeferredObjects());
+    }
+
+    @Test
+    public void evaluateRejectingFilterFirst() throws Exception {
+        var layerMappings = createTextLayerMapping(Map.of(
+                "LKObjektRef->Objektart", List.of("Elektrizitaet"),
+                "Plantyp", List.of("Leitungskataster")));
+        var objectMapper = new ObjectMapper(layerMappings);
+
+        var pointObj = IomObjectHelper.createIomObject("SIA405_LKMap_2015_LV95.SIA405_LKMap.LKPunkt", "punktObj",
+                o -> o.addattrvalue("Objektart", "Elektrizitaet"));
+        var textObjects = IntStream.range(0, 5_000).mapToObj(i -> IomObjectHelper.createIomObject("SIA405_LKMap_2015_LV95.SIA405_LKMap.LKObjekt_Text", "text_" + i,
+                o -> o.addattrvalue("Plantyp", "Werkplan"),
+                o -> o.addattrobj("LKObjektRef", IomObjectHelper.createIomObject("REF", null,
+                        r -> r.setobjectrefoid("punktObj")))));
+
+        var statistics = new MappingStatistics();
+        var layers = objectMapper.mapObjects(Stream.concat(Stream.of(pointObj), textObjects), statistics).map(o -> o.layerMapping().layer()).distinct().toList();
+        assertEquals(List.of("CatchAllText"), layers);
+
+        var filters = statistics.getFilterStatistics().stream()
+                .filter(f -> f.layer().equals("Test") && f.objectClass().equals("SIA405_LKMap_2015_LV95.SIA405_LKMap.LKObjekt_Text"))
+                .toList();
+        assertEquals(List.of("class SIA405_LKMap_2015_LV95.SIA405_LKMap.LKObjekt_Text", "LKObjektRef->Objektart=Elektrizitaet", "Plantyp=Leitungskataster"),
+                filters.stream().map(MappingStatistics.FilterStatistics::filter).sorted().toList());
+
+        var plantyp = filters.stream().filter(f -> f.filter().startsWith("Plantyp")).findFirst().orElseThrow();
+        var reference = filters.stream().filter(f -> f.filter().startsWith("LKObjektRef")).findFirst().orElseThrow();
+        assertEquals(5_000, plantyp.evaluations());
+        assertEquals(1.0, plantyp.rejectRate());
+        assertTrue(reference.evaluations() < plantyp.evaluations() / 2, "The reference filter should be evaluated after the rejecting filter");
+    }
+
     @Test
     public void resolvePathWithStruct() throws Exception {
         var layerMappings = List.of(
@@ -223,6 +385,42 @@ public final class ObjectMapperTest {
         assertEquals("MINATERI", output.getFirst().text());
     }
 
+    @Test
+    public void attributeProjectionContainsMappedPaths() throws Exception {
+        var layerMappings = List.of(
+                new LayerMapping("Test", List.of("SIA405_LKMap_2015_LV95.SIA405_LKMap.LKObjekt_Text"), LayerMapping.OutputType.TEXT,
+                        "TextPos", 1, "TextOri", "TextVAli", "TextHAli", "LKObjektRef->Metaattribute->Datenlieferant",
+                        "TestSymbol", "", 0.25, 1.25, "arial", Map.of("LKObjektRef->Objektart", List.of("Elektrizitaet"))));
+        var projection = new ObjectMapper(layerMappings).getAttributeProjection();
+
+        assertEquals(Set.of("TextPos", "TextOri", "TextVAli", "TextHAli", "LKObjektRef"), projection.getAttributes("SIA405_LKMap_2015_LV95.SIA405_LKMap.LKObjekt_Text"));
+        assertEquals(Set.of("Objektart", "Metaattribute"), projection.getAttributes("SIA405_LKMap_2015_LV95.SIA405_LKMap.LKPunkt"));
+        assertEquals(Set.of(), projection.getAttributes("SIA405_LKMap_2015_LV95.SIA405_LKMap.Unknown"));
+    }
+
+    @Test
+    public void mapProjectedObjects() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        List<MappedObject> expected;
+        try (XtfStreamReader xtfReader = new XtfStreamReader(new File(TEST_FILE))) {
+            expected = mapper.mapObjects(xtfReader.readObjects()).toList();
+        }
+
+        try (XtfStreamReader xtfReader = new XtfStreamReader(new File(TEST_FILE), false, Optional.of(mapper.getAttributeProjection()))) {
+            List<MappedObject> actual = mapper.mapObjects(xtfReader.readObjects()).toList();
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).oid(), actual.get(i).oid());
+                assertEquals(expected.get(i).layerMapping(), actual.get(i).layerMapping());
+                assertEquals(expected.get(i).text(), actual.get(i).text());
+                assertEquals(expected.get(i).orientation(), actual.get(i).orientation());
+                assertEquals(expected.get(i).vAlign(), actual.get(i).vAlign());
+                assertEquals(expected.get(i).hAlign(), actual.get(i).hAlign());
+                assertEquals(expected.get(i).geometry().toString(), actual.get(i).geometry().toString());
+            }
+        }
+    }
+
     private List<LayerMapping> createTextLayerMapping(Map<String, List<String>> mapping) {
         return List.of(
                 createTextLayerMapping("Test", mapping),
@@ -249,6 +447,20 @@ public final class ObjectMapperTest {
                 mapping);
     }
 
+    @Test
+    public void mapGeneratedGermanAndFrenchObjectsToSameLayers() throws Exception {
+        var objectMapper = new ObjectMapper();
+        var classMix = new LKMapDataGenerator.ClassMix(2, 1, 1, 1);
+        var german = new LKMapDataGenerator(LKMapDataGenerator.Language.GERMAN, classMix, 0.5, 1);
+        var french = new LKMapDataGenerator(LKMapDataGenerator.Language.FRENCH, classMix, 0.5, 1);
+
+        String[] germanLayers = getMappedLayers(objectMapper, german.createObjects(0, 100).toArray(IomObject[]::new));
+        String[] frenchLayers = getMappedLayers(objectMapper, french.createObjects(0, 100).toArray(IomObject[]::new));
+
+        assertTrue(germanLayers.length > 0);
+        assertArrayEquals(germanLayers, frenchLayers);
+    }
+
     private String[] getMappedLayers(ObjectMapper objectMapper, IomObject... objects) {
         return objectMapper.mapObjects(Stream.of(objects))
                 .map(o -> o.layerMapping().layer())